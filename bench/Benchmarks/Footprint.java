@@ -0,0 +1,87 @@
+package Benchmarks;
+
+import LexicalAnalyzer.TokenSequence;
+import Parser.ParseException;
+import Parser.Parser;
+
+import java.io.IOException;
+
+/**
+ * Heap retained per statement by the trees the generator can work on: the exact parse tree, the flattened parse
+ * tree and the lean AST. Each tree of a generated program is built and kept alive while the used heap is measured
+ * after a full collection, the tokens being allocated beforehand so that only the tree is counted.
+ * <br>
+ * Usage: java Benchmarks.Footprint [size]
+ *
+ * @author Alex Bataille
+ */
+public class Footprint {
+    /** Collections run before reading the used heap */
+    private static final int COLLECTIONS = 5;
+
+    /**
+     * Entry point of the measurement
+     *
+     * @param args the number of instructions of the generated programs, 100000 by default
+     * @throws IOException never, the programs are generated
+     * @throws ParseException never, the programs are syntactically correct
+     * @throws InterruptedException if interrupted while waiting for the collections
+     */
+    public static void main(String[] args) throws IOException, ParseException, InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        System.out.printf("%-10s %12s %16s %16s %16s%n", "shape", "statements", "exact B/stmt", "flat B/stmt", "ast B/stmt");
+        for (String shape : new String[] {"straight", "nested", "variables"}) {
+            TokenSequence tokens = Programs.scanner(Programs.source(shape, size)).scan();
+            Parser parser = new Parser(tokens);
+            parser.startParsingAst();
+            long statements = Programs.count(parser.getAst().code);
+            parser = null;
+
+            double[] bytes = new double[3];
+            for (int mode = 0; mode < 3; mode++) {
+                long before = usedHeap();
+                Object tree = build(tokens, mode);
+                long after = usedHeap();
+                bytes[mode] = (double) (after - before) / statements;
+                if (tree == null) {
+                    throw new IllegalStateException("No tree built");
+                }
+            }
+            System.out.printf("%-10s %12d %16.1f %16.1f %16.1f%n", shape, statements, bytes[0], bytes[1], bytes[2]);
+        }
+    }
+
+    /**
+     * Parses a program into one of the trees
+     *
+     * @param tokens the tokens of the program
+     * @param mode 0 for the exact parse tree, 1 for the flattened parse tree, 2 for the AST
+     * @return the root of the tree
+     * @throws ParseException never, the programs are syntactically correct
+     */
+    private static Object build(TokenSequence tokens, int mode) throws ParseException {
+        Parser parser = new Parser(tokens);
+        if (mode == 2) {
+            parser.startParsingAst();
+            return parser.getAst();
+        }
+        parser.setExactTree(mode == 0);
+        parser.startParsing();
+        return parser.getParseTree();
+    }
+
+    /**
+     * Returns the heap used once the garbage has been collected
+     *
+     * @return the used heap in bytes
+     * @throws InterruptedException if interrupted while waiting for the collections
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < COLLECTIONS; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
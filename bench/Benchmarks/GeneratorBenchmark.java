@@ -0,0 +1,100 @@
+package Benchmarks;
+
+import llvmGenerator.IrWriter;
+import llvmGenerator.LLVMGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the LLVMGenerator on a parse tree or an abstract syntax tree already in memory,
+ * the rate of LLVM IR produced being reported by the irBytes counter.
+ *
+ * @author Alex Bataille
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    /**
+     * Number of characters of LLVM IR generated, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        /** Characters generated during the iteration, one byte each as the IR is ASCII */
+        public long irBytes;
+    }
+
+    /**
+     * Channel discarding the code written to it, so that the streamed generation is measured without any I/O
+     */
+    public static class Discard implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            src.position(src.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Generates the LLVM IR code of a whole program
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the LLVM IR code
+     */
+    @Benchmark
+    public String generate(Programs.Input input, Counters counters) {
+        String code = new LLVMGenerator().generate(input.tree);
+        counters.irBytes += code.length();
+        return code;
+    }
+
+    /**
+     * Generates the LLVM IR code of a whole program from its abstract syntax tree
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the LLVM IR code
+     */
+    @Benchmark
+    public String generateAst(Programs.Input input, Counters counters) {
+        String code = new LLVMGenerator().generate(input.ast);
+        counters.irBytes += code.length();
+        return code;
+    }
+
+    /**
+     * Generates the LLVM IR code of a whole program from its abstract syntax tree, writing it through the buffer of
+     * an IrWriter instead of building a String
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the number of bytes written
+     * @throws IOException never, the channel discarding the code
+     */
+    @Benchmark
+    public long generateAstStreamed(Programs.Input input, Counters counters) throws IOException {
+        IrWriter out = new IrWriter(new Discard());
+        new LLVMGenerator().generate(input.ast, out);
+        counters.irBytes += out.size();
+        return out.size();
+    }
+}
@@ -0,0 +1,63 @@
+package Benchmarks;
+
+import Parser.TreeExporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the LaTeX export of a parse tree already in memory,
+ * the rate of tree nodes exported being reported by the nodes counter.
+ *
+ * @author Alex Bataille
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LaTeXBenchmark {
+
+    /**
+     * Number of parse tree nodes exported, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        /** Nodes exported during the iteration */
+        public long nodes;
+    }
+
+    /**
+     * Exports the parse tree of a whole program
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the LaTeX code
+     */
+    @Benchmark
+    public String toLaTeX(Programs.Input input, Counters counters) {
+        String latex = input.tree.toLaTeX();
+        counters.nodes += input.nodes;
+        return latex;
+    }
+
+    /**
+     * Streams the parse tree of a whole program to a buffered writer discarding the code
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the number of nodes written
+     * @throws IOException never, the writer discards the code
+     */
+    @Benchmark
+    public int export(Programs.Input input, Counters counters) throws IOException {
+        TreeExporter exporter = new TreeExporter(new BufferedWriter(Writer.nullWriter()));
+        exporter.writeDocument(input.tree);
+        counters.nodes += input.nodes;
+        return exporter.getNodes();
+    }
+}
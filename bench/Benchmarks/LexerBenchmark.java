@@ -0,0 +1,51 @@
+package Benchmarks;
+
+import LexicalAnalyzer.LexicalAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the JFlex scanner: LexicalAnalyzer.yylex is called until the end of the program,
+ * the rate of scanned tokens being reported by the tokens counter.
+ *
+ * @author Alex Bataille
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    /**
+     * Number of tokens scanned, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        /** Tokens scanned during the iteration */
+        public long tokens;
+    }
+
+    /**
+     * Scans a whole program
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the number of tokens, so that the scan is not optimized away
+     * @throws IOException never, the program is read from memory
+     */
+    @Benchmark
+    public int yylex(Programs.Input input, Counters counters) throws IOException {
+        LexicalAnalyzer scanner = Programs.scanner(input.source);
+        scanner.setKeepTokens(false);
+        int count = 0;
+        while (scanner.yylex() != LexicalAnalyzer.YYEOF) {
+            count++;
+        }
+        counters.tokens += count;
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package Benchmarks;
+
+import Parser.Ast;
+import Parser.ParseException;
+import Parser.ParseTree;
+import Parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the Parser on tokens already in memory, by recursive descent, with the table-driven engine and
+ * into the lean AST, the rate of parse tree nodes built being reported by the nodes counter and the rate of
+ * instructions parsed by the statements counter. With -prof gc, gc.alloc.rate.norm divided by statements/op
+ * gives the heap allocated per statement.
+ *
+ * @author Alex Bataille
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    /**
+     * Number of parse tree nodes built and of instructions parsed, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        /** Nodes built during the iteration */
+        public long nodes;
+        /** Instructions parsed during the iteration */
+        public long statements;
+    }
+
+    /**
+     * Parses a whole program
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the parse tree
+     * @throws ParseException never, the programs are syntactically correct
+     */
+    @Benchmark
+    public ParseTree startParsing(Programs.Input input, Counters counters) throws ParseException {
+        Parser parser = new Parser(input.tokens);
+        parser.startParsing();
+        counters.nodes += input.nodes;
+        counters.statements += input.statements;
+        return parser.getParseTree();
+    }
+
+    /**
+     * Parses a whole program with the table-driven engine
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the parse tree
+     * @throws ParseException never, the programs are syntactically correct
+     */
+    @Benchmark
+    public ParseTree tableDriven(Programs.Input input, Counters counters) throws ParseException {
+        Parser parser = new Parser(input.tokens);
+        parser.setTableDriven(true);
+        parser.startParsing();
+        counters.nodes += input.nodes;
+        counters.statements += input.statements;
+        return parser.getParseTree();
+    }
+
+    /**
+     * Parses a whole program into the lean abstract syntax tree
+     *
+     * @param input the program
+     * @param counters the counters to update
+     * @return the abstract syntax tree
+     * @throws ParseException never, the programs are syntactically correct
+     */
+    @Benchmark
+    public Ast.Program startParsingAst(Programs.Input input, Counters counters) throws ParseException {
+        Parser parser = new Parser(input.tokens);
+        parser.startParsingAst();
+        counters.statements += input.statements;
+        return parser.getAst();
+    }
+}
@@ -0,0 +1,200 @@
+package Benchmarks;
+
+import LexicalAnalyzer.LexicalAnalyzer;
+import LexicalAnalyzer.TokenSequence;
+import Parser.Ast;
+import Parser.ParseException;
+import Parser.ParseTree;
+import Parser.Parser;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Programs measured by the benchmarks, all held in memory.
+ * A program is either generated with one of the following shapes, or read from test/input as a realistic baseline:
+ * - straight  : long straight-line code over a few variables
+ * - nested    : If and While blocks nested 64 deep, repeated
+ * - variables : one assignment to each of many distinct variables
+ *
+ * @author Alex Bataille
+ */
+public class Programs {
+    /** Depth of the blocks of the nested shape */
+    private static final int NESTING = 64;
+    /** Stream discarding the dumps and lexical errors of the scanner */
+    static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    /**
+     * A program and the results of the stages of the compiler on it, computed once per trial so that every
+     * benchmark measures a single stage
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+        /** Shape of a generated program, or name of a program of test/input */
+        @Param({"straight", "nested", "variables", "Euclid", "sum_loop", "complex_calc"})
+        public String shape;
+        /** Number of instructions of a generated program, ignored for test/input */
+        @Param({"1000"})
+        public int size;
+
+        /** Text of the program */
+        public String source;
+        /** Tokens of the program */
+        public TokenSequence tokens;
+        /** Parse tree of the program */
+        public ParseTree tree;
+        /** Number of nodes of the parse tree */
+        public long nodes;
+        /** Abstract syntax tree of the program */
+        public Ast.Program ast;
+        /** Number of instructions of the program, nested ones included */
+        public long statements;
+
+        /**
+         * Builds the program and runs the stages preceding the measured one
+         *
+         * @throws IOException if a program of test/input cannot be read
+         * @throws ParseException if the program is not syntactically correct
+         */
+        @Setup(Level.Trial)
+        public void setup() throws IOException, ParseException {
+            source = source(shape, size);
+            tokens = scanner(source).scan();
+            Parser parser = new Parser(tokens);
+            parser.startParsing();
+            tree = parser.getParseTree();
+            nodes = count(tree);
+            parser = new Parser(tokens);
+            parser.startParsingAst();
+            ast = parser.getAst();
+            statements = count(ast.code);
+        }
+    }
+
+    /**
+     * Returns the text of a program
+     *
+     * @param shape the shape of a generated program, or the name of a program of test/input
+     * @param size the number of instructions of a generated program
+     * @return the text of the program
+     * @throws IOException if a program of test/input cannot be read
+     */
+    public static String source(String shape, int size) throws IOException {
+        switch (shape) {
+            case "straight": return straight(size);
+            case "nested": return nested(size);
+            case "variables": return variables(size);
+            default:
+                return new String(Files.readAllBytes(Paths.get("test/input", shape + ".ycc")), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Creates a scanner over a program, printing nothing
+     *
+     * @param source the text of the program
+     * @return the scanner
+     */
+    public static LexicalAnalyzer scanner(String source) {
+        LexicalAnalyzer scanner = new LexicalAnalyzer(new StringReader(source));
+        scanner.setDump(null);
+        scanner.setErrors(DISCARD);
+        return scanner;
+    }
+
+    /**
+     * Returns the number of nodes of a parse tree
+     *
+     * @param tree the root of the tree
+     * @return its number of nodes
+     */
+    public static long count(ParseTree tree) {
+        long nodes = 1;
+        for (ParseTree child : tree.getChildren()) {
+            nodes += count(child);
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the number of instructions of a block of an abstract syntax tree
+     *
+     * @param code the instructions of the block
+     * @return their number, the instructions of nested blocks included
+     */
+    public static long count(Ast.Instruction[] code) {
+        long statements = code.length;
+        for (Ast.Instruction instruction : code) {
+            if (instruction instanceof Ast.If) {
+                statements += count(((Ast.If) instruction).then) + count(((Ast.If) instruction).otherwise);
+            } else if (instruction instanceof Ast.While) {
+                statements += count(((Ast.While) instruction).body);
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Generates long straight-line code over a few variables
+     *
+     * @param size the number of assignments
+     * @return the text of the program
+     */
+    private static String straight(int size) {
+        StringBuilder code = new StringBuilder("Prog Straight Is\n  Input(a);\n");
+        for (int i = 0; i < size; i++) {
+            code.append("  b = a + ").append(i).append(" * (b - 3) - a / 2;\n");
+        }
+        return code.append("  Print(b);\nEnd\n").toString();
+    }
+
+    /**
+     * Generates If and While blocks nested NESTING deep, repeated until there are size instructions
+     *
+     * @param size the number of instructions
+     * @return the text of the program
+     */
+    private static String nested(int size) {
+        StringBuilder code = new StringBuilder("Prog Nested Is\n  Input(a);\n");
+        for (int done = 0; done < size; done += 2 * NESTING) {
+            for (int depth = 0; depth < NESTING; depth++) {
+                code.append("  a = a + 1;\n");
+                if (depth % 2 == 0) {
+                    code.append("  If {a < ").append(depth).append("} Then\n");
+                } else {
+                    code.append("  While {a <= ").append(depth).append("} Do\n");
+                }
+            }
+            code.append("  Print(a);\n");
+            for (int depth = NESTING - 1; depth >= 0; depth--) {
+                code.append(depth % 2 == 0 ? "  Else Print(a); End;\n" : "  End;\n");
+            }
+        }
+        return code.append("  Print(a);\nEnd\n").toString();
+    }
+
+    /**
+     * Generates one assignment to each of many distinct variables
+     *
+     * @param size the number of variables
+     * @return the text of the program
+     */
+    private static String variables(int size) {
+        StringBuilder code = new StringBuilder("Prog Variables Is\n  Input(v0);\n");
+        for (int i = 1; i < size; i++) {
+            code.append("  v").append(i).append(" = v").append(i - 1).append(" + ").append(i).append(";\n");
+        }
+        return code.append("  Print(v").append(size - 1).append(");\nEnd\n").toString();
+    }
+}
@@ -0,0 +1,362 @@
+import LexicalAnalyzer.ByteLexer;
+import LexicalAnalyzer.LexicalAnalyzer;
+import LexicalAnalyzer.TokenSequence;
+import Parser.ParseException;
+import Parser.Parser;
+import llvmGenerator.IrWriter;
+import llvmGenerator.LLVMGenerator;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Batch mode of the compiler: compiles many programs in a single JVM, in parallel on a fork-join pool.
+ * The sources are given as directories, searched recursively for .ycc files, as .ycc files, or as list files
+ * holding one source path per line. Each program goes through its own scanner, Parser and LLVMGenerator, and
+ * its LLVM IR code is written to the output directory:
+ * - a source found in a directory keeps its path relative to that directory, with the .ll extension
+ * - a source given on its own is written under its base name
+ * With -check, the syntax of the programs is only checked and nothing is written.
+ * Errors are collected per file and reported once every program has been compiled, so the reports of
+ * different files do not interleave.
+ *
+ * @author Alex Bataille
+ */
+public class Batch {
+    /** Number of files below which a task compiles its files instead of splitting them */
+    private static final int THRESHOLD = 4;
+
+    /** Directory receiving the LLVM IR files */
+    private final Path outputDir;
+    /** Whether the sources are scanned by the ByteLexer instead of the JFlex scanner */
+    private final boolean bytes;
+    /** Whether the programs are parsed by the table-driven engine */
+    private final boolean table;
+    /** Whether the syntax of the programs is only checked, nothing being written */
+    private final boolean check;
+
+    /**
+     * Outcome of the compilation of one source file
+     */
+    public static class Result {
+        /** Path of the source file */
+        public final Path source;
+        /** Path of the LLVM IR file, null if nothing was written */
+        public final Path output;
+        /** Lexical errors, and the compilation error if any, one per line */
+        public final String diagnostics;
+        /** Whether the LLVM IR file was written, or the syntax is correct when it is only checked */
+        public final boolean success;
+
+        /**
+         * Creates the outcome of a compilation
+         *
+         * @param source the path of the source file
+         * @param output the path of the LLVM IR file, null if nothing was written
+         * @param diagnostics the errors reported while compiling, possibly empty
+         * @param success whether the LLVM IR file was written
+         */
+        Result(Path source, Path output, String diagnostics, boolean success) {
+            this.source = source;
+            this.output = output;
+            this.diagnostics = diagnostics;
+            this.success = success;
+        }
+    }
+
+    /**
+     * Compiles a range of the sources, splitting it in two while it is larger than THRESHOLD
+     */
+    private class CompileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** Paths of the source files */
+        private final List<Path> sources;
+        /** Paths of the LLVM IR files, in the same order */
+        private final List<Path> outputs;
+        /** Outcomes, filled in at the position of their source */
+        private final Result[] results;
+        /** Start of the range, included */
+        private final int from;
+        /** End of the range, excluded */
+        private final int to;
+
+        /**
+         * Creates the task compiling sources[from..to[
+         */
+        CompileTask(List<Path> sources, List<Path> outputs, Result[] results, int from, int to) {
+            this.sources = sources;
+            this.outputs = outputs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = compile(sources.get(i), outputs.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CompileTask(sources, outputs, results, from, mid),
+                      new CompileTask(sources, outputs, results, mid, to));
+        }
+    }
+
+    /**
+     * Creates a batch compiler
+     *
+     * @param outputDir the directory receiving the LLVM IR files
+     * @param bytes true to scan the sources with the ByteLexer
+     * @param table true to parse with the table-driven engine
+     * @param check true to check the syntax of the programs only
+     */
+    public Batch(Path outputDir, boolean bytes, boolean table, boolean check) {
+        this.outputDir = outputDir;
+        this.bytes = bytes;
+        this.table = table;
+        this.check = check;
+    }
+
+    /**
+     * Compiles every source on a fork-join pool
+     *
+     * @param sources the paths of the source files
+     * @param outputs the paths of the LLVM IR files, in the same order
+     * @param parallelism the number of worker threads
+     * @return the outcome of each compilation, in the order of the sources
+     */
+    public Result[] compileAll(List<Path> sources, List<Path> outputs, int parallelism) {
+        Result[] results = new Result[sources.size()];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new CompileTask(sources, outputs, results, 0, sources.size()));
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * Compiles one source file. Nothing is shared with the other compilations but the output directory.
+     *
+     * @param source the path of the source file
+     * @param output the path of the LLVM IR file
+     * @return the outcome of the compilation
+     */
+    public Result compile(Path source, Path output) {
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        PrintStream errors = new PrintStream(diagnostics, true, StandardCharsets.UTF_8);
+        boolean success = false;
+        try {
+            TokenSequence tokens;
+            if (bytes) {
+                ByteLexer scanner = ByteLexer.open(source.toString());
+                scanner.setDump(null);
+                scanner.setErrors(errors);
+                tokens = scanner.scan();
+            } else {
+                try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                    LexicalAnalyzer scanner = new LexicalAnalyzer(reader);
+                    scanner.setDump(null);
+                    scanner.setErrors(errors);
+                    tokens = scanner.scan();
+                }
+            }
+            if (check) {
+                new Parser(tokens).validate();
+                return new Result(source, null, diagnostics.toString(StandardCharsets.UTF_8), true);
+            }
+            Path parent = output.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // the code is written as it is generated, and removed if the program turns out to be incorrect
+            try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                Main.generate(tokens, null, Integer.MAX_VALUE, table, 1, new LLVMGenerator(), new IrWriter(channel));
+                success = true;
+            } finally {
+                if (!success) {
+                    Files.deleteIfExists(output);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            errors.println("File not found : \"" + source + "\"");
+        } catch (IOException e) {
+            errors.println("IO error : " + e);
+        } catch (ParseException e) {
+            errors.println("Error during compilation: " + e);
+            errors.print(Main.excerpt(source.toString(), e));
+        } catch (Exception e) {
+            errors.println("Error during compilation: " + e);
+        }
+        return new Result(source, success ? output : null, diagnostics.toString(StandardCharsets.UTF_8), success);
+    }
+
+    /**
+     * Collects the sources named on the command line, with the path of their LLVM IR file.
+     * A source named twice is compiled once, and a source whose LLVM IR file would overwrite the one
+     * of another source is skipped with a warning, as both would be written at the same time.
+     *
+     * @param paths directories, .ycc files or list files
+     * @param sources receives the paths of the source files
+     * @param outputs receives the paths of the LLVM IR files, in the same order
+     * @throws IOException if a directory or list file cannot be read
+     */
+    public void collect(List<String> paths, List<Path> sources, List<Path> outputs) throws IOException {
+        collect(paths, sources, outputs, new HashSet<>());
+    }
+
+    /**
+     * Collects the sources named on the command line or in a list file.
+     * A list file naming itself, directly or through other list files, is skipped with a warning.
+     *
+     * @param paths directories, .ycc files or list files
+     * @param sources receives the paths of the source files
+     * @param outputs receives the paths of the LLVM IR files, in the same order
+     * @param expanding the normalized absolute paths of the list files being expanded
+     * @throws IOException if a directory or list file cannot be read
+     */
+    private void collect(List<String> paths, List<Path> sources, List<Path> outputs, Set<Path> expanding) throws IOException {
+        Map<Path, Path> owners = new HashMap<>();
+        for (int i = 0; i < sources.size(); i++) {
+            owners.put(outputs.get(i).normalize(), sources.get(i).normalize());
+        }
+        for (String name : paths) {
+            Path path = Paths.get(name);
+            if (Files.isDirectory(path)) {
+                List<Path> found;
+                try (Stream<Path> walk = Files.walk(path)) {
+                    found = walk.filter(p -> p.toString().endsWith(".ycc") && Files.isRegularFile(p))
+                                .sorted()
+                                .collect(Collectors.toList());
+                }
+                for (Path p : found) {
+                    add(p, outputDir.resolve(llName(path.relativize(p).toString())), owners, sources, outputs);
+                }
+            } else if (name.endsWith(".ycc")) {
+                add(path, outputDir.resolve(llName(path.getFileName().toString())), owners, sources, outputs);
+            } else {
+                Path list = path.toAbsolutePath().normalize();
+                if (!expanding.add(list)) {
+                    System.err.println("Skipping \"" + path + "\" : the list file names itself");
+                    continue;
+                }
+                List<String> listed = new ArrayList<>();
+                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) listed.add(line.trim());
+                }
+                collect(listed, sources, outputs, expanding);
+                expanding.remove(list);
+            }
+        }
+    }
+
+    /**
+     * Adds a source to compile, unless its LLVM IR file is already claimed
+     *
+     * @param source the path of the source file
+     * @param output the path of its LLVM IR file
+     * @param owners the source of each LLVM IR file claimed so far
+     * @param sources receives the path of the source file
+     * @param outputs receives the path of the LLVM IR file
+     */
+    private static void add(Path source, Path output, Map<Path, Path> owners, List<Path> sources, List<Path> outputs) {
+        Path owner = owners.putIfAbsent(output.normalize(), source.normalize());
+        if (owner == null) {
+            sources.add(source);
+            outputs.add(output);
+        } else if (!owner.equals(source.normalize())) {
+            System.err.println("Skipping \"" + source + "\" : " + output + " is already written for \"" + owner + "\"");
+        }
+    }
+
+    /**
+     * Returns the name of the LLVM IR file of a source
+     *
+     * @param sourceName the path of the source, relative to its directory
+     * @return the same path with the .ll extension
+     */
+    private static String llName(String sourceName) {
+        return sourceName.substring(0, sourceName.length() - ".ycc".length()) + ".ll";
+    }
+
+    /**
+     * Entry point of the batch mode
+     *
+     * @param args command-line arguments: [-out output_dir] [-j threads] [-bytes] [-table | -check] (directory | source_file | list_file)...
+     */
+    public static void main(String[] args) {
+        Path outputDir = Paths.get("test/output");
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean bytes = false;
+        boolean table = false;
+        boolean check = false;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-out") && i + 1 < args.length) {
+                outputDir = Paths.get(args[++i]);
+            } else if (args[i].equals("-j") && i + 1 < args.length) {
+                try {
+                    parallelism = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    parallelism = 0;
+                }
+            } else if (args[i].equals("-bytes")) {
+                bytes = true;
+            } else if (args[i].equals("-table")) {
+                table = true;
+            } else if (args[i].equals("-check")) {
+                check = true;
+            } else if (args[i].startsWith("-")) {
+                System.err.println("Unknown option: " + args[i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty() || parallelism < 1) {
+            System.err.println("Usage: java -jar part3.jar -batch [-out output_dir] [-j threads] [-bytes] [-table | -check] (directory | source_file | list_file)...");
+            return;
+        }
+
+        Batch batch = new Batch(outputDir, bytes, table, check);
+        List<Path> sources = new ArrayList<>();
+        List<Path> outputs = new ArrayList<>();
+        try {
+            batch.collect(paths, sources, outputs);
+        } catch (IOException e) {
+            System.err.println("IO error listing sources");
+            System.err.println(e);
+            return;
+        }
+
+        int failed = 0;
+        for (Result result : batch.compileAll(sources, outputs, parallelism)) {
+            if (!result.success) failed++;
+            if (!result.diagnostics.isEmpty()) {
+                for (String line : result.diagnostics.split("\\R")) {
+                    System.err.println(result.source + ": " + line);
+                }
+            }
+        }
+        System.out.println((check ? "Checked " : "Compiled ") + (sources.size() - failed) + " of " + sources.size() + " files");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thin client of the {@link CompileServer}, taking the same arguments as {@link Main} and producing the same files
+ * and console output, so it can replace {@code java -jar part3.jar} in the Makefile.
+ * <br>
+ * The server is found on the loopback TCP port given by -port, or on the UNIX-domain socket given by -socket,
+ * either of which may precede the arguments of Main. When no server is listening, when it is overloaded, or for
+ * -batch, the program is compiled in this JVM by Main instead.
+ *
+ * @author Alex Bataille
+ */
+public class CompileClient {
+
+    /**
+     * Entry point of the client
+     *
+     * @param args command-line arguments: [-port port | -socket socket_path] followed by the arguments of Main,
+     *             or -shutdown to stop the server
+     * @throws FileNotFoundException if Main is run locally and its lexical analyzer output file cannot be created
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        int port = CompileServer.DEFAULT_PORT;
+        Path socketPath = null;
+        int i = 0;
+        while (i + 1 < args.length && (args[i].equals("-port") || args[i].equals("-socket"))) {
+            if (args[i].equals("-port")) {
+                port = Integer.parseInt(args[i + 1]);
+            } else {
+                socketPath = Paths.get(args[i + 1]);
+            }
+            i += 2;
+        }
+
+        // Options sent to the server, without file names, and files receiving its outputs
+        List<String> options = new ArrayList<>();
+        Map<String, String> files = new HashMap<>();
+        String inputFile = null;
+        for (; i < args.length; i++) {
+            switch (args[i]) {
+                case "-wt":
+                case "-lex":
+                case "-tokens":
+                    if (i + 1 >= args.length - 1) {
+                        runLocally(args);
+                        return;
+                    }
+                    options.add(args[i]);
+                    files.put(args[i].substring(1), args[++i]);
+                    break;
+                case "-stream":
+                case "-bytes":
+                case "-table":
+                case "-shutdown":
+                    options.add(args[i]);
+                    break;
+                default:
+                    if (i != args.length - 1 || args[i].startsWith("-")) {
+                        // -batch, unknown options or a wrong usage: leave them to Main
+                        runLocally(args);
+                        return;
+                    }
+                    inputFile = args[i];
+            }
+        }
+
+        byte[] source = new byte[0];
+        if (inputFile != null) {
+            try {
+                source = Files.readAllBytes(Paths.get(inputFile));
+            } catch (NoSuchFileException e) {
+                System.err.println("File not found : \"" + inputFile + "\"");
+                return;
+            } catch (IOException e) {
+                System.err.println("IO error scanning file \"" + inputFile + "\"");
+                System.err.println(e);
+                return;
+            }
+        } else if (!options.equals(List.of("-shutdown"))) {
+            runLocally(args);
+            return;
+        }
+
+        try (SocketChannel channel = socketPath != null ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open()) {
+            channel.connect(CompileServer.address(port, socketPath));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(CompileServer.MAGIC);
+            out.writeInt(options.size());
+            for (String option : options) {
+                CompileServer.writeString(out, option);
+            }
+            CompileServer.writeBytes(out, source);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int status = in.readInt();
+            if (status == CompileServer.BUSY) {
+                runLocally(args);
+                return;
+            }
+            int count = in.readInt();
+            Map<String, byte[]> outputs = new HashMap<>();
+            for (int k = 0; k < count; k++) {
+                String name = CompileServer.readString(in);
+                outputs.put(name, CompileServer.readBytes(in));
+            }
+            String diagnostics = CompileServer.readString(in);
+            write(inputFile, files, outputs);
+            System.err.print(diagnostics);
+        } catch (IOException e) {
+            // No server listening, or it went away
+            if (inputFile != null) {
+                runLocally(args);
+            } else {
+                System.err.println("No server to stop");
+            }
+        }
+    }
+
+    /**
+     * Writes the outputs of the server where Main would have, deleting the LLVM IR file when there is no code
+     *
+     * @param inputFile the path of the source file, naming the LLVM IR file, null for -shutdown
+     * @param files the files given to -wt, -lex and -tokens, by option name
+     * @param outputs the outputs of the server, by option name
+     * @throws IOException if a file cannot be written
+     */
+    private static void write(String inputFile, Map<String, String> files, Map<String, byte[]> outputs) throws IOException {
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            byte[] data = outputs.get(file.getKey());
+            if (data != null) {
+                Files.write(Paths.get(file.getValue()), data);
+            }
+        }
+        if (inputFile == null) {
+            return;
+        }
+        byte[] llvmCode = outputs.get("ll");
+        Path llFile = Paths.get("test/output/" + new File(inputFile).getName().replace(".ycc", "") + ".ll");
+        if (llvmCode != null) {
+            Files.write(llFile, llvmCode);
+            System.out.write(llvmCode);
+            System.out.println();
+        } else {
+            // the program could not be compiled: as Main does, no code is left behind, not even an earlier one
+            Files.deleteIfExists(llFile);
+        }
+    }
+
+    /**
+     * Compiles in this JVM, with the arguments of Main
+     *
+     * @param args the arguments of the client
+     * @throws FileNotFoundException if the lexical analyzer output file cannot be created
+     */
+    private static void runLocally(String[] args) throws FileNotFoundException {
+        int start = 0;
+        while (start + 1 < args.length && (args[start].equals("-port") || args[start].equals("-socket"))) {
+            start += 2;
+        }
+        Main.main(java.util.Arrays.copyOfRange(args, start, args.length));
+    }
+}
@@ -0,0 +1,445 @@
+import LexicalAnalyzer.ByteLexer;
+import LexicalAnalyzer.LexicalAnalyzer;
+import LexicalAnalyzer.TokenFile;
+import LexicalAnalyzer.TokenSource;
+import LexicalAnalyzer.TokenStream;
+import Parser.ParseException;
+import Parser.Parser;
+import Parser.ParseTree;
+import llvmGenerator.LLVMGenerator;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running compiler server. The JVM and the JIT-compiled pipeline stay up between compilations,
+ * so each request only pays for the compilation itself.
+ * <br>
+ * The server listens on a loopback TCP port, or on a UNIX-domain socket, and serves one request per
+ * connection (all integers big endian, strings as an int length followed by UTF-8 bytes):
+ * <pre>
+ * request  : int MAGIC | int argument count | arguments | int source length | source bytes
+ * response : int status | int output count | outputs { string name | int length | bytes } | string diagnostics
+ * </pre>
+ * The arguments are those of {@link Main} without the source file. The outputs are named after the option
+ * producing them: "ll" for the LLVM IR code, "wt", "lex" and "tokens" for the optional files, which the
+ * {@link CompileClient} writes where the options say.
+ * <br>
+ * Requests are compiled by a fixed number of worker threads. When they are all busy and the queue of
+ * waiting connections is full, new connections are answered with BUSY at once instead of piling up.
+ * A client has {@link #READ_TIMEOUT} seconds to send its request, after which its connection is closed,
+ * so stalled clients cannot hold the workers.
+ *
+ * @author Alex Bataille
+ */
+public class CompileServer {
+    /** Magic number starting every request ("YCCS") */
+    static final int MAGIC = 0x59434353;
+    /** Default TCP port of the server */
+    static final int DEFAULT_PORT = 7403;
+    /** Largest source or string accepted, in bytes */
+    static final int MAX_LENGTH = 64 << 20;
+    /** Time given to a client to send its whole request, in seconds */
+    static final int READ_TIMEOUT = 10;
+
+    /** Status of a compiled program */
+    static final int OK = 0;
+    /** Status of a program which could not be compiled, see the diagnostics */
+    static final int FAILED = 1;
+    /** Status of a request rejected because the server is overloaded */
+    static final int BUSY = 2;
+
+    /** Channel accepting the connections */
+    private final ServerSocketChannel server;
+    /** Path of the UNIX-domain socket, null for TCP */
+    private final Path socketPath;
+    /** Workers compiling the requests */
+    private final ThreadPoolExecutor workers;
+    /** Closes the connections whose request is not read in time */
+    private final ScheduledThreadPoolExecutor deadlines;
+
+    /**
+     * Opens a server on a loopback TCP port or a UNIX-domain socket
+     *
+     * @param port the TCP port, used when socketPath is null
+     * @param socketPath the path of the UNIX-domain socket, or null
+     * @param threads the number of worker threads
+     * @param queue the number of connections waiting for a worker before requests are rejected
+     * @throws IOException if the socket cannot be bound
+     * @throws IllegalArgumentException if threads or queue is less than 1, checked before the socket is bound
+     */
+    public CompileServer(int port, Path socketPath, int threads, int queue) throws IOException {
+        if (threads < 1 || queue < 1) {
+            throw new IllegalArgumentException("The server needs at least one thread and one queue slot");
+        }
+        this.socketPath = socketPath;
+        // the executors are built first, so that nothing is left bound when they cannot be
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), new ThreadPoolExecutor.AbortPolicy());
+        this.deadlines = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "CompileServer deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadlines.setRemoveOnCancelPolicy(true);
+        ServerSocketChannel channel = null;
+        try {
+            if (socketPath != null) {
+                Files.deleteIfExists(socketPath);
+                channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                channel.bind(UnixDomainSocketAddress.of(socketPath));
+            } else {
+                channel = ServerSocketChannel.open();
+                channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            }
+        } catch (IOException | RuntimeException e) {
+            workers.shutdown();
+            deadlines.shutdown();
+            if (channel != null) {
+                channel.close();
+            }
+            throw e;
+        }
+        this.server = channel;
+    }
+
+    /**
+     * Accepts connections until the server is stopped
+     *
+     * @throws IOException if a connection cannot be accepted
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                try {
+                    workers.execute(() -> handle(client));
+                } catch (RejectedExecutionException e) {
+                    reject(client);
+                }
+            }
+        } catch (AsynchronousCloseException e) {
+            // stopped
+        } finally {
+            workers.shutdown();
+            deadlines.shutdown();
+            if (socketPath != null) {
+                Files.deleteIfExists(socketPath);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections. The requests already accepted are still compiled.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Answers BUSY to a connection no worker can take
+     *
+     * @param client the connection
+     */
+    private void reject(SocketChannel client) {
+        try (SocketChannel channel = client) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(BUSY);
+            out.writeInt(0);
+            writeString(out, "Server busy");
+            out.flush();
+        } catch (IOException e) {
+            // the client went away
+        }
+    }
+
+    /**
+     * Reads a request, compiles it and sends the response
+     *
+     * @param client the connection
+     */
+    private void handle(SocketChannel client) {
+        // a blocked read is interrupted by closing the channel, which works for TCP and UNIX-domain sockets alike
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }, READ_TIMEOUT, TimeUnit.SECONDS);
+        try (SocketChannel channel = client) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            int argc = in.readInt();
+            if (argc < 0 || argc > 64) {
+                return;
+            }
+            String[] args = new String[argc];
+            for (int i = 0; i < argc; i++) {
+                args[i] = readString(in);
+            }
+            byte[] source = readBytes(in);
+            deadline.cancel(false);
+
+            if (argc == 1 && args[0].equals("-shutdown")) {
+                out.writeInt(OK);
+                out.writeInt(0);
+                writeString(out, "");
+                out.flush();
+                stop();
+                return;
+            }
+            compile(args, source, out);
+            out.flush();
+        } catch (IOException e) {
+            // the client went away, sent a malformed request or was too slow to send it
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * Compiles a program and writes the response
+     *
+     * @param args the options of the request, as given to Main
+     * @param source the text of the program
+     * @param out the stream receiving the response
+     * @throws IOException if the response cannot be written
+     */
+    private static void compile(String[] args, byte[] source, DataOutputStream out) throws IOException {
+        boolean latex = false, lex = false, tokenFile = false, stream = false, bytes = false, table = false;
+        for (String arg : args) {
+            switch (arg) {
+                case "-wt": latex = true; break;
+                case "-lex": lex = true; break;
+                case "-tokens": tokenFile = true; break;
+                case "-stream": stream = true; break;
+                case "-bytes": bytes = true; break;
+                case "-table": table = true; break;
+                default: break;
+            }
+        }
+
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        PrintStream errors = new PrintStream(diagnostics, true, StandardCharsets.UTF_8);
+        ByteArrayOutputStream lexOut = lex ? new ByteArrayOutputStream() : null;
+        PrintStream dump = lex ? new PrintStream(lexOut, true) : null;
+        List<String> names = new ArrayList<>();
+        List<byte[]> outputs = new ArrayList<>();
+        int status = FAILED;
+
+        TokenSource recorded = null;
+        try {
+            // Run the scanner, keeping the tokens in memory or pulling them while parsing
+            TokenSource tokens;
+            if (bytes) {
+                ByteLexer scanner = new ByteLexer(ByteBuffer.wrap(source));
+                scanner.setDump(dump);
+                scanner.setErrors(errors);
+                tokens = scanner.scan();
+                recorded = tokens;
+            } else {
+                LexicalAnalyzer scanner = new LexicalAnalyzer(
+                        new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8));
+                scanner.setDump(dump);
+                scanner.setErrors(errors);
+                if (stream) {
+                    tokens = new TokenStream(scanner);
+                    scanner.setKeepTokens(lex || tokenFile);
+                } else {
+                    tokens = scanner.scan();
+                }
+                recorded = scanner.getTokenSequence();
+            }
+
+            Parser parser = new Parser(tokens);
+            String llvmCode;
+            if (!latex && !table) {
+                parser.startParsingAst();
+                llvmCode = new LLVMGenerator().generate(parser.getAst());
+            } else {
+                parser.setExactTree(latex);
+                parser.setTableDriven(table);
+                parser.startParsing();
+                ParseTree parseTree = parser.getParseTree();
+                if (latex) {
+                    names.add("wt");
+                    outputs.add((parseTree.toLaTeX() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                }
+                llvmCode = new LLVMGenerator().generate(parseTree);
+            }
+            names.add("ll");
+            outputs.add(llvmCode.getBytes(StandardCharsets.UTF_8));
+            status = OK;
+        } catch (Exception e) {
+            errors.println("Error during compilation:");
+            errors.println(e.toString());
+            if (e instanceof ParseException) {
+                errors.print(Main.excerpt(new InputStreamReader(new ByteArrayInputStream(source), StandardCharsets.UTF_8),
+                                          (ParseException) e));
+            }
+        }
+
+        if (lex) {
+            names.add("lex");
+            outputs.add(lexOut.toByteArray());
+        }
+        if (tokenFile && recorded != null) {
+            ByteArrayOutputStream tokensOut = new ByteArrayOutputStream();
+            TokenFile.write(recorded, Channels.newChannel(tokensOut));
+            names.add("tokens");
+            outputs.add(tokensOut.toByteArray());
+        }
+
+        out.writeInt(status);
+        out.writeInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            writeString(out, names.get(i));
+            writeBytes(out, outputs.get(i));
+        }
+        writeBytes(out, diagnostics.toByteArray());
+    }
+
+    /**
+     * Writes a length-prefixed array of bytes
+     *
+     * @param out the stream to write to
+     * @param data the bytes
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string
+     *
+     * @param out the stream to write to
+     * @param text the string
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeString(DataOutputStream out, String text) throws IOException {
+        writeBytes(out, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a length-prefixed array of bytes
+     *
+     * @param in the stream to read from
+     * @return the bytes
+     * @throws IOException if the stream cannot be read or the length is invalid
+     */
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Invalid length " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string
+     *
+     * @param in the stream to read from
+     * @return the string
+     * @throws IOException if the stream cannot be read or the length is invalid
+     */
+    static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the address of the server
+     *
+     * @param port the TCP port, used when socketPath is null
+     * @param socketPath the path of the UNIX-domain socket, or null
+     * @return the address to connect to
+     */
+    static SocketAddress address(int port, Path socketPath) {
+        if (socketPath != null) {
+            return UnixDomainSocketAddress.of(socketPath);
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Parses a number of the command line
+     *
+     * @param text the argument
+     * @return the number, or -1 if the argument is not a number
+     */
+    private static int number(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Entry point of the server
+     *
+     * @param args command-line arguments: [-port port | -socket socket_path] [-threads threads] [-queue queue_size]
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        Path socketPath = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 4 * threads;
+        boolean usage = false;
+        for (int i = 0; i < args.length && !usage; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length) {
+                port = number(args[++i]);
+                usage = port < 1 || port > 65535;
+            } else if (args[i].equals("-socket") && i + 1 < args.length) {
+                socketPath = Paths.get(args[++i]);
+            } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = number(args[++i]);
+            } else if (args[i].equals("-queue") && i + 1 < args.length) {
+                queue = number(args[++i]);
+            } else {
+                usage = true;
+            }
+        }
+        if (usage || threads < 1 || queue < 1) {
+            System.err.println("Usage: java -cp part3.jar CompileServer [-port port | -socket socket_path] [-threads threads] [-queue queue_size]");
+            return;
+        }
+        try {
+            CompileServer server = new CompileServer(port, socketPath, threads, queue);
+            System.out.println("Listening on " + (socketPath != null ? socketPath.toString() : "port " + port));
+            server.serve();
+        } catch (IOException e) {
+            System.err.println("IO error running the server");
+            System.err.println(e);
+        }
+    }
+}
@@ -0,0 +1,712 @@
+package LexicalAnalyzer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Hand-written scanner working directly on the bytes of a memory-mapped source file, an alternative
+ * to the JFlex LexicalAnalyzer for large inputs. The yalcc alphabet is ASCII, so tokens are recognized
+ * byte by byte without decoding the file; keywords are recognized with a perfect hash.
+ * <br>
+ * It produces the same TokenSequence, SymbolTable, dump and error messages as LexicalAnalyzer, including
+ * its longest-match rules (a long comment extends to the last "!!" of the file) and its line and column
+ * numbering. Bytes outside ASCII, which only appear in comments and errors, are decoded as UTF-8.
+ * <br>
+ * Large sources can be scanned on several threads by {@link #scan(int)}: the source is split into parts right after
+ * a line feed, or a blank when a line is very long, and each part is scanned on its own assuming it starts between
+ * tokens. Only a comment can cross a split, so the guess is checked while appending the parts in order, and a part
+ * which actually starts inside a comment is scanned again from the end of the comment.
+ *
+ * @author Alex Bataille
+ */
+public class ByteLexer {
+    /** Keywords indexed by their perfect hash, see {@link #keywordHash} */
+    private static final byte[][] KEYWORDS = new byte[32][];
+    /** Lexical units of the keywords, indexed by their perfect hash */
+    private static final LexicalUnit[] KEYWORD_UNITS = new LexicalUnit[32];
+
+    static {
+        addKeyword("Prog", LexicalUnit.PROG);
+        addKeyword("Is", LexicalUnit.IS);
+        addKeyword("End", LexicalUnit.END);
+        addKeyword("Assign", LexicalUnit.ASSIGN);
+        addKeyword("If", LexicalUnit.IF);
+        addKeyword("Then", LexicalUnit.THEN);
+        addKeyword("Else", LexicalUnit.ELSE);
+        addKeyword("While", LexicalUnit.WHILE);
+        addKeyword("Do", LexicalUnit.DO);
+        addKeyword("Print", LexicalUnit.PRINT);
+        addKeyword("Input", LexicalUnit.INPUT);
+    }
+
+    /** Scanner state between two tokens */
+    private static final int NORMAL = 0;
+    /** Scanner state inside a "$" comment */
+    private static final int SHORT_COMMENT = 1;
+    /** Scanner state inside the long comment */
+    private static final int LONG_COMMENT = 2;
+    /** Prefix of the lexical errors, telling them from the echoed characters in the messages of a part */
+    private static final String ERROR = "LEX ERROR : ";
+    /** Smallest part of the source scanned by one task */
+    private static final int MIN_PART = 1 << 18;
+    /** Number of bytes searched for a line feed or a blank after the position where a part should end */
+    private static final int SPLIT_WINDOW = 1 << 16;
+
+    /** Source bytes */
+    private final ByteBuffer input;
+    /** Number of source bytes */
+    private final int length;
+    /** Start of the last "!!" of the source, -1 if there is none */
+    private final int lastBangs;
+    /** Scratch buffer used to intern values */
+    private char[] chars = new char[64];
+
+    /** Symbol Table attribute */
+    private SymbolTable symbol_table = new SymbolTable();
+    /** Tokens met by the scanner */
+    private TokenSequence token_sequence = new TokenSequence();
+    /** Pool of the values of the tokens, shared with the token sequence */
+    private ValuePool pool = token_sequence.getPool();
+    /** Stream receiving the textual token dump at EOF, null when the dump is disabled */
+    private PrintStream dump = System.out;
+    /** Stream receiving the lexical errors when the dump is disabled */
+    private PrintStream errors = System.err;
+
+    /** Line of the current position, counted from 0 like yyline */
+    private int line;
+    /** Column of the current position, counted in chars like yycolumn */
+    private int column;
+    /** Whether the last line terminator met was a \r, so that a following \n is not counted again */
+    private boolean afterCR;
+
+    /** Errors and echoed characters of a part, printed once the parts before it are, null when printed at once */
+    private List<String> messages;
+    /** State of the scanner at the end of a part */
+    private int endMode;
+    /** Distinct variable names in order of first occurrence, the only thing kept by {@link #scanVariables()} */
+    private List<String> variables;
+
+    /**
+     * Scans the parts of the source from..to[ of a parallel scan
+     */
+    private class PartTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** Bounds of the parts */
+        private final int[] bounds;
+        /** Scanners of the parts, filled in at the position of their part */
+        private final ByteLexer[] parts;
+        /** Start of the range, included */
+        private final int from;
+        /** End of the range, excluded */
+        private final int to;
+
+        PartTask(int[] bounds, ByteLexer[] parts, int from, int to) {
+            this.bounds = bounds;
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                parts[from] = scanPart(bounds[from], bounds[from + 1], NORMAL);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PartTask(bounds, parts, from, mid), new PartTask(bounds, parts, mid, to));
+        }
+    }
+
+    /**
+     * Creates a scanner over the given bytes
+     *
+     * @param input the source bytes, from its position to its limit
+     */
+    public ByteLexer(ByteBuffer input) {
+        this.input = input.slice();
+        this.length = this.input.limit();
+        int bangs = length - 2;
+        while (bangs >= 0 && !(this.input.get(bangs) == '!' && this.input.get(bangs + 1) == '!')) bangs--;
+        this.lastBangs = bangs;
+    }
+
+    /**
+     * Creates the scanner of a part of the source of another scanner, keeping its messages
+     *
+     * @param source the scanner of the whole source
+     */
+    private ByteLexer(ByteLexer source) {
+        this.input = source.input.duplicate();
+        this.length = source.length;
+        this.lastBangs = source.lastBangs;
+        this.dump = null;
+        this.messages = new ArrayList<>();
+    }
+
+    /**
+     * Maps a source file and creates a scanner over it
+     *
+     * @param filename the path of the source file
+     * @return the scanner
+     * @throws IOException if the file cannot be read or is larger than 2 GB
+     */
+    public static ByteLexer open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large: " + filename);
+            }
+            return new ByteLexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Sets the stream receiving the token sequence and symbol table once the end of file is reached
+     *
+     * @param dump the stream to print to, or null to keep the tokens in memory only
+     */
+    public void setDump(PrintStream dump) {
+        this.dump = dump;
+    }
+
+    /**
+     * Sets the stream receiving the lexical errors when there is no dump, System.err by default
+     *
+     * @param errors the stream to print the errors to
+     */
+    public void setErrors(PrintStream errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Returns the sequence of tokens met by the scanner so far
+     *
+     * @return the token sequence
+     */
+    public TokenSequence getTokenSequence() {
+        return token_sequence;
+    }
+
+    /**
+     * Returns the table of the variables met by the scanner so far
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        return symbol_table;
+    }
+
+    /**
+     * Scans the whole source
+     *
+     * @return the sequence of tokens met by the scanner
+     */
+    public TokenSequence scan() {
+        scan(0, length, NORMAL);
+        if (dump != null) {
+            token_sequence.printSequence(dump);
+            symbol_table.printTable(dump);
+        }
+        return token_sequence;
+    }
+
+    /**
+     * Scans the whole source for its variables only, keeping no token and reporting no error, so that the variables
+     * of a program are known before its tokens are pulled from another scanner
+     *
+     * @return the distinct variable names, in the order of their first occurrence
+     */
+    public List<String> scanVariables() {
+        variables = new ArrayList<>();
+        scan(0, length, NORMAL);
+        return variables;
+    }
+
+    /**
+     * Scans the whole source on several threads. The tokens, symbol table, dump and messages are the same as
+     * those of {@link #scan()}, which is used when the source is too small to be split.
+     *
+     * @param parallelism the number of worker threads
+     * @return the sequence of tokens met by the scanner
+     */
+    public TokenSequence scan(int parallelism) {
+        int[] bounds = split(Math.min(parallelism * 4, length / MIN_PART));
+        if (parallelism < 2 || bounds.length < 3) {
+            return scan();
+        }
+        ByteLexer[] parts = new ByteLexer[bounds.length - 1];
+        ForkJoinPool workers = new ForkJoinPool(parallelism);
+        try {
+            workers.invoke(new PartTask(bounds, parts, 0, parts.length));
+        } finally {
+            workers.shutdown();
+        }
+
+        // The parts are appended in order, their lines and columns being moved to where they start
+        int mode = NORMAL;
+        for (int k = 0; k < parts.length; k++) {
+            ByteLexer part = parts[k];
+            int partLine = part.line;
+            int partColumn = part.column;
+            if (mode == LONG_COMMENT && lastBangs + 2 >= bounds[k + 1]) {
+                // the whole part is in the long comment
+                mode = lastBangs + 2 > bounds[k + 1] ? LONG_COMMENT : NORMAL;
+            } else {
+                if (mode != NORMAL) {
+                    // the part does not start between two tokens as guessed
+                    part = scanPart(bounds[k], bounds[k + 1], mode);
+                }
+                append(part);
+                mode = part.endMode;
+            }
+            if (partLine > 0) {
+                line += partLine;
+                column = partColumn;
+            } else {
+                column += partColumn;
+            }
+        }
+        if (dump != null) {
+            token_sequence.printSequence(dump);
+            symbol_table.printTable(dump);
+        }
+        return token_sequence;
+    }
+
+    /**
+     * Splits the source right after line feeds, or after blanks in a long line
+     *
+     * @param count the number of parts wanted
+     * @return the starts of the parts followed by the length of the source
+     */
+    private int[] split(int count) {
+        int[] bounds = new int[Math.max(count, 1) + 1];
+        int n = 1;
+        for (int k = 1; k < count; k++) {
+            int target = (int) ((long) length * k / count);
+            int split = splitPoint(Math.max(target, bounds[n - 1]));
+            if (split > bounds[n - 1] && split < length) {
+                bounds[n++] = split;
+            }
+        }
+        bounds[n++] = length;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    /**
+     * Returns a position where a part may start, close after the given one. A part never starts inside a token or
+     * between the \r and \n of a line terminator, so only a comment may be pending there.
+     *
+     * @param pos the position where the part should start
+     * @return the position following a line feed or a blank, -1 if there is none close enough
+     */
+    private int splitPoint(int pos) {
+        int stop = Math.min(length, pos + SPLIT_WINDOW);
+        for (int i = pos; i < stop; i++) {
+            if (input.get(i) == '\n') return i + 1;
+        }
+        for (int i = pos; i < stop; i++) {
+            byte b = input.get(i);
+            if (b == ' ' || b == '\t') return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Scans a part of the source with a new scanner, whose lines are counted from the start of the part
+     *
+     * @param from the start of the part
+     * @param limit the end of the part
+     * @param mode the state of the scanner at the start of the part
+     * @return the scanner of the part
+     */
+    private ByteLexer scanPart(int from, int limit, int mode) {
+        ByteLexer part = new ByteLexer(this);
+        part.endMode = part.scan(from, limit, mode);
+        return part;
+    }
+
+    /**
+     * Appends the tokens, variables and messages of a part starting at the current line and column
+     *
+     * @param part the scanner of the part
+     */
+    private void append(ByteLexer part) {
+        int[] ids = new int[part.pool.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pool.intern(part.pool.get(i));
+        }
+        TokenSequence tokens = part.token_sequence;
+        for (int i = 0; i < tokens.size(); i++) {
+            int value = tokens.getValueId(i);
+            // lines of the part are counted from 0 and shifted twice, by token() and by the sequence
+            int tokenLine = tokens.getLine(i) - 2;
+            int tokenColumn = tokenLine == 0 ? column + tokens.getColumn(i) : tokens.getColumn(i);
+            token_sequence.addSymbol(tokens.getType(i), value == ValuePool.NO_VALUE ? value : ids[value],
+                line + tokenLine + 1, tokenColumn);
+        }
+        symbol_table.addAll(part.symbol_table, line, column);
+        for (String message : part.messages) {
+            if (message.startsWith(ERROR)) {
+                report(message);
+            } else {
+                echo(message);
+            }
+        }
+    }
+
+    /**
+     * Scans a part of the source
+     *
+     * @param from the start of the part
+     * @param limit the end of the part
+     * @param mode the state of the scanner at the start of the part: NORMAL, or inside a comment
+     * @return the state of the scanner at the end of the part
+     */
+    private int scan(int from, int limit, int mode) {
+        int pos = from;
+        if (mode == SHORT_COMMENT) {
+            pos = lineEnd(pos, limit);
+        } else if (mode == LONG_COMMENT) {
+            pos = Math.min(lastBangs + 2, limit);
+        }
+        advance(from, pos);
+        if (pos == limit && mode != NORMAL && isOpen(mode, limit)) {
+            return mode;
+        }
+        while (pos < limit) {
+            int c = input.get(pos) & 0xFF;
+            int end;
+            switch (c) {
+                case ' ': case '\t': case '\f':
+                    end = pos + 1;
+                    while (end < limit && isBlank(input.get(end))) end++;
+                    break;
+                case '\n':
+                    end = pos + 1;
+                    break;
+                case '\r':
+                    end = pos + 1;
+                    if (end < length && input.get(end) == '\n') end++;
+                    break;
+                case '$':
+                    end = lineEnd(pos + 1, limit);
+                    if (end == limit && isOpen(SHORT_COMMENT, limit)) {
+                        advance(pos, limit);
+                        return SHORT_COMMENT;
+                    }
+                    break;
+                case '!':
+                    if (pos + 4 <= lastBangs + 2 && input.get(pos + 1) == '!') {
+                        end = lastBangs + 2;
+                        if (end > limit) {
+                            advance(pos, limit);
+                            return LONG_COMMENT;
+                        }
+                    } else {
+                        end = error(pos);
+                    }
+                    break;
+                case '-':
+                    end = operator(pos, '>', LexicalUnit.IMPLIES, LexicalUnit.MINUS);
+                    break;
+                case '=':
+                    end = operator(pos, '=', LexicalUnit.EQUAL, LexicalUnit.ASSIGN);
+                    break;
+                case '<':
+                    end = operator(pos, '=', LexicalUnit.SMALEQ, LexicalUnit.SMALLER);
+                    break;
+                case '+': end = token(pos, pos + 1, LexicalUnit.PLUS); break;
+                case '*': end = token(pos, pos + 1, LexicalUnit.TIMES); break;
+                case '/': end = token(pos, pos + 1, LexicalUnit.DIVIDE); break;
+                case '|': end = token(pos, pos + 1, LexicalUnit.PIPE); break;
+                case '(': end = token(pos, pos + 1, LexicalUnit.LPAREN); break;
+                case ')': end = token(pos, pos + 1, LexicalUnit.RPAREN); break;
+                case '{': end = token(pos, pos + 1, LexicalUnit.LBRACK); break;
+                case '}': end = token(pos, pos + 1, LexicalUnit.RBRACK); break;
+                case ';': end = token(pos, pos + 1, LexicalUnit.SEMI); break;
+                case 0x0B:
+                    // not matched by any rule: echoed like the standalone JFlex scanner does
+                    echo(String.valueOf((char) c));
+                    end = pos + 1;
+                    break;
+                default:
+                    if (c >= '0' && c <= '9') {
+                        end = pos + 1;
+                        while (end < length && isDigit(input.get(end))) end++;
+                        end = token(pos, end, LexicalUnit.NUMBER);
+                    } else if (c >= 'a' && c <= 'z') {
+                        end = pos + 1;
+                        while (end < length && (isLower(input.get(end)) || isDigit(input.get(end)))) end++;
+                        end = token(pos, end, LexicalUnit.VARNAME);
+                    } else if (c >= 'A' && c <= 'Z') {
+                        end = pos + 1;
+                        while (end < length && (isLetter(input.get(end)) || input.get(end) == '_')) end++;
+                        end = token(pos, end, keyword(pos, end - pos));
+                    } else {
+                        end = error(pos);
+                    }
+            }
+            advance(pos, end);
+            pos = end;
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Returns the end of a "$" comment
+     *
+     * @param pos a position inside the comment
+     * @param limit the end of the part
+     * @return the position of the first line terminator from pos, or limit if there is none before
+     */
+    private int lineEnd(int pos, int limit) {
+        while (pos < limit && !isTerminator(pos)) pos++;
+        return pos;
+    }
+
+    /**
+     * Returns whether a comment reaching the end of a part goes on in the next part
+     *
+     * @param mode SHORT_COMMENT or LONG_COMMENT
+     * @param limit the end of the part
+     * @return true iff the comment does not end at limit
+     */
+    private boolean isOpen(int mode, int limit) {
+        if (limit >= length) return false;
+        return mode == SHORT_COMMENT ? !isTerminator(limit) : lastBangs + 2 > limit;
+    }
+
+    /**
+     * Adds a token to the symbol table and token sequence
+     *
+     * @param start the start of the token
+     * @param end the end of the token
+     * @param kind the lexical unit of the token
+     * @return the end of the token
+     */
+    private int token(int start, int end, LexicalUnit kind) {
+        if (variables != null) {
+            if (kind == LexicalUnit.VARNAME) {
+                int n = end - start;
+                if (chars.length < n) chars = new char[Math.max(n, chars.length * 2)];
+                for (int i = 0; i < n; i++) chars[i] = (char) input.get(start + i);
+                int known = pool.size();
+                int value = pool.intern(chars, 0, n);
+                if (value >= known) variables.add(pool.get(value));
+            }
+            return end;
+        }
+        int value = ValuePool.NO_VALUE;
+        if (ValuePool.lexeme(kind) == null) {
+            int n = end - start;
+            if (chars.length < n) chars = new char[Math.max(n, chars.length * 2)];
+            for (int i = 0; i < n; i++) chars[i] = (char) input.get(start + i);
+            value = pool.intern(chars, 0, n);
+        }
+        if (kind == LexicalUnit.VARNAME) symbol_table.addSymbol(kind, line, column, pool.get(value));
+        token_sequence.addSymbol(kind, value, line+1, column);
+        return end;
+    }
+
+    /**
+     * Recognizes an operator of one or two characters, the longest being preferred
+     *
+     * @param pos the start of the operator
+     * @param second the second character of the long operator
+     * @param longUnit the lexical unit of the long operator
+     * @param shortUnit the lexical unit of the one character operator
+     * @return the end of the operator
+     */
+    private int operator(int pos, char second, LexicalUnit longUnit, LexicalUnit shortUnit) {
+        if (pos + 1 < length && input.get(pos + 1) == second) {
+            return token(pos, pos + 2, longUnit);
+        }
+        return token(pos, pos + 1, shortUnit);
+    }
+
+    /**
+     * Reports a character matched by no token, or echoes it if it is a line terminator
+     *
+     * @param pos the start of the character
+     * @return the end of the character
+     */
+    private int error(int pos) {
+        int end = pos + 1;
+        while (end < length && (input.get(end) & 0xC0) == 0x80) end++;
+        String text = decode(pos, end);
+        if (isTerminator(pos)) {
+            echo(text);
+        } else {
+            report(ERROR + text);
+        }
+        return end;
+    }
+
+    /**
+     * Prints a lexical error to the dump, or to the error stream without dump, or keeps it for later in a part
+     *
+     * @param message the error message
+     */
+    private void report(String message) {
+        if (variables != null) {
+            return;
+        }
+        if (messages != null) {
+            messages.add(message);
+        } else {
+            (dump != null ? dump : errors).println(message);
+        }
+    }
+
+    /**
+     * Echoes characters matched by no rule to the standard output, or keeps them for later in a part
+     *
+     * @param text the characters
+     */
+    private void echo(String text) {
+        if (variables != null) {
+            return;
+        }
+        if (messages != null) {
+            messages.add(text);
+        } else {
+            System.out.print(text);
+        }
+    }
+
+    /**
+     * Returns the lexical unit of a capitalized word
+     *
+     * @param start the start of the word
+     * @param n the length of the word
+     * @return the keyword it is, or PROGNAME
+     */
+    private LexicalUnit keyword(int start, int n) {
+        if (n < 2 || n > 6) return LexicalUnit.PROGNAME;
+        int h = keywordHash(input.get(start), input.get(start + 1), n);
+        byte[] keyword = KEYWORDS[h];
+        if (keyword == null || keyword.length != n) return LexicalUnit.PROGNAME;
+        for (int i = 2; i < n; i++) {
+            if (keyword[i] != input.get(start + i)) return LexicalUnit.PROGNAME;
+        }
+        return KEYWORD_UNITS[h];
+    }
+
+    /**
+     * Perfect hash of the keywords, from their first two characters and their length
+     *
+     * @param c0 the first character
+     * @param c1 the second character
+     * @param n the length of the word
+     * @return a slot of KEYWORDS, distinct for each keyword
+     */
+    private static int keywordHash(int c0, int c1, int n) {
+        return (c0 + (c1 << 4) + n) & 31;
+    }
+
+    /**
+     * Registers a keyword in the perfect hash table
+     *
+     * @param keyword the keyword
+     * @param unit its lexical unit
+     */
+    private static void addKeyword(String keyword, LexicalUnit unit) {
+        byte[] bytes = keyword.getBytes(StandardCharsets.US_ASCII);
+        int h = keywordHash(bytes[0], bytes[1], bytes.length);
+        if (KEYWORDS[h] != null) throw new IllegalStateException("Keyword hash is not perfect");
+        KEYWORDS[h] = bytes;
+        KEYWORD_UNITS[h] = unit;
+    }
+
+    /**
+     * Updates the line and column over the bytes of a match, like the JFlex scanner does
+     *
+     * @param from the start of the match
+     * @param to the end of the match
+     */
+    private void advance(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int b = input.get(i) & 0xFF;
+            if (b >= 0x20 && b < 0x80) {
+                column++;
+                afterCR = false;
+            } else if (b == '\n') {
+                if (afterCR) {
+                    afterCR = false;
+                } else {
+                    line++;
+                    column = 0;
+                }
+            } else if (b == '\r') {
+                line++;
+                column = 0;
+                afterCR = true;
+            } else if (b == 0x0B || b == 0x0C || (b >= 0x80 && isTerminator(i))) {
+                line++;
+                column = 0;
+                afterCR = false;
+            } else if (b < 0x80 || b >= 0xC0) {
+                column += b >= 0xF0 ? 2 : 1;
+                afterCR = false;
+            }
+        }
+    }
+
+    /**
+     * Returns whether a line terminator starts at the given position
+     *
+     * @param pos the position in the source
+     * @return true iff one of \n, \r, VT, FF, NEL, LS or PS starts there
+     */
+    private boolean isTerminator(int pos) {
+        int b = input.get(pos) & 0xFF;
+        if (b == '\n' || b == '\r' || b == 0x0B || b == 0x0C) return true;
+        if (b == 0xC2) return pos + 1 < length && (input.get(pos + 1) & 0xFF) == 0x85;
+        if (b == 0xE2) {
+            return pos + 2 < length && (input.get(pos + 1) & 0xFF) == 0x80
+                && ((input.get(pos + 2) & 0xFF) == 0xA8 || (input.get(pos + 2) & 0xFF) == 0xA9);
+        }
+        return false;
+    }
+
+    /**
+     * Decodes a range of bytes as UTF-8
+     *
+     * @param from the start of the range
+     * @param to the end of the range
+     * @return the decoded text
+     */
+    private String decode(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        input.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\f';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isLower(byte b) {
+        return b >= 'a' && b <= 'z';
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+}
@@ -322,21 +322,124 @@ public class LexicalAnalyzer {
 */
 private SymbolTable symbol_table = new SymbolTable();
 private TokenSequence token_sequence = new TokenSequence();
+/**
+* Stream receiving the textual token dump at EOF, null when the dump is disabled
+*/
+private java.io.PrintStream dump = System.out;
+/**
+* Stream receiving the lexical errors when the dump is disabled
+*/
+private java.io.PrintStream errors = System.err;
+/**
+* Whether the tokens are kept in the token sequence, false when they are pulled one by one
+*/
+private boolean keepTokens = true;
+
+/**
+* Pool of the values of the tokens, shared with the token sequence
+*/
+private ValuePool pool = token_sequence.getPool();
+/**
+* Lexical unit and value id of the last token returned by yylex
+*/
+private LexicalUnit token_kind;
+private int token_value;
 
 /** 
 * Adds a new token to the symbol Table
+* Values of variables, program names and numbers are interned straight from the scanner buffer,
+* keywords and punctuation carry no value
 * @param kind the LexicalUnit detected by scanner
+* @return the ordinal of the LexicalUnit, returned by yylex
 */
-private void tok(LexicalUnit kind) {
-    symbol_table.addSymbol(kind, yyline, yycolumn, yytext());
-    token_sequence.addSymbol(kind, yytext(), yyline+1);
+private int tok(LexicalUnit kind) {
+    token_kind = kind;
+    token_value = ValuePool.lexeme(kind) != null ? ValuePool.NO_VALUE : pool.intern(zzBuffer, zzStartRead, zzMarkedPos-zzStartRead);
+    if (kind == LexicalUnit.VARNAME) symbol_table.addSymbol(kind, yyline, yycolumn, pool.get(token_value));
+    if (keepTokens) token_sequence.addSymbol(kind, token_value, yyline+1, yycolumn);
+    return kind.ordinal();
 }
 /**
 * Prints error to output
 * @param message message to be printed
 */
 private void err() {
-    System.out.println("LEX ERROR : " + yytext());
+    (dump != null ? dump : errors).println("LEX ERROR : " + yytext());
+}
+
+/**
+* Sets the stream receiving the token sequence and symbol table once the end of file is reached
+* @param dump the stream to print to, or null to keep the tokens in memory only
+*/
+public void setDump(java.io.PrintStream dump) {
+    this.dump = dump;
+}
+
+/**
+* Sets the stream receiving the lexical errors when there is no dump, System.err by default
+* @param errors the stream to print the errors to
+*/
+public void setErrors(java.io.PrintStream errors) {
+    this.errors = errors;
+}
+
+/**
+* Sets whether the tokens are kept in the token sequence. When they are not, they have to be
+* read one by one from yylex, getTokenValue, getTokenLine and getTokenColumn.
+* @param keepTokens false to stop recording the tokens in the token sequence
+*/
+public void setKeepTokens(boolean keepTokens) {
+    this.keepTokens = keepTokens;
+}
+
+/**
+* Returns the value of the last token returned by yylex, without allocating
+* @return the canonical value of the last token
+*/
+public String getTokenValue() {
+    return token_value == ValuePool.NO_VALUE ? ValuePool.lexeme(token_kind) : pool.get(token_value);
+}
+
+/**
+* Returns the line of the last token returned by yylex, numbered as in the token sequence
+* @return the line of the last token
+*/
+public int getTokenLine() {
+    return yyline+2;
+}
+
+/**
+* Returns the column of the last token returned by yylex
+* @return the column of the last token
+*/
+public int getTokenColumn() {
+    return yycolumn;
+}
+
+/**
+* Runs the scanner until the end of file is reached
+* @return the sequence of tokens met by the scanner
+* @throws java.io.IOException if the input cannot be read
+*/
+public TokenSequence scan() throws java.io.IOException {
+    while (!zzAtEOF) yylex();
+    return token_sequence;
+}
+
+/**
+* Returns the sequence of tokens met by the scanner so far
+* @return the token sequence
+*/
+public TokenSequence getTokenSequence() {
+    return token_sequence;
+}
+
+/**
+* Returns the table of the variables met by the scanner so far
+* @return the symbol table
+*/
+public SymbolTable getSymbolTable() {
+    return symbol_table;
 }
 
 
@@ -608,8 +711,10 @@ private void err() {
     if (!zzEOFDone) {
       zzEOFDone = true;
     
-    token_sequence.printSequence();
-    symbol_table.printTable();
+    if (dump != null) {
+        token_sequence.printSequence(dump);
+        symbol_table.printTable(dump);
+    }
     }
   }
 
@@ -786,142 +891,142 @@ private void err() {
           // fall through
           case 36: break;
           case 5:
-            { tok(LexicalUnit.LPAREN);
+            { return tok(LexicalUnit.LPAREN);
             }
           // fall through
           case 37: break;
           case 6:
-            { tok(LexicalUnit.RPAREN);
+            { return tok(LexicalUnit.RPAREN);
             }
           // fall through
           case 38: break;
           case 7:
-            { tok(LexicalUnit.TIMES);
+            { return tok(LexicalUnit.TIMES);
             }
           // fall through
           case 39: break;
           case 8:
-            { tok(LexicalUnit.PLUS);
+            { return tok(LexicalUnit.PLUS);
             }
           // fall through
           case 40: break;
           case 9:
-            { tok(LexicalUnit.MINUS);
+            { return tok(LexicalUnit.MINUS);
             }
           // fall through
           case 41: break;
           case 10:
-            { tok(LexicalUnit.DIVIDE);
+            { return tok(LexicalUnit.DIVIDE);
             }
           // fall through
           case 42: break;
           case 11:
-            { tok(LexicalUnit.NUMBER);
+            { return tok(LexicalUnit.NUMBER);
             }
           // fall through
           case 43: break;
           case 12:
-            { tok(LexicalUnit.SEMI);
+            { return tok(LexicalUnit.SEMI);
             }
           // fall through
           case 44: break;
           case 13:
-            { tok(LexicalUnit.SMALLER);
+            { return tok(LexicalUnit.SMALLER);
             }
           // fall through
           case 45: break;
           case 14:
-            { tok(LexicalUnit.ASSIGN);
+            { return tok(LexicalUnit.ASSIGN);
             }
           // fall through
           case 46: break;
           case 15:
-            { tok(LexicalUnit.PROGNAME);
+            { return tok(LexicalUnit.PROGNAME);
             }
           // fall through
           case 47: break;
           case 16:
-            { tok(LexicalUnit.VARNAME);
+            { return tok(LexicalUnit.VARNAME);
             }
           // fall through
           case 48: break;
           case 17:
-            { tok(LexicalUnit.LBRACK);
+            { return tok(LexicalUnit.LBRACK);
             }
           // fall through
           case 49: break;
           case 18:
-            { tok(LexicalUnit.PIPE);
+            { return tok(LexicalUnit.PIPE);
             }
           // fall through
           case 50: break;
           case 19:
-            { tok(LexicalUnit.RBRACK);
+            { return tok(LexicalUnit.RBRACK);
             }
           // fall through
           case 51: break;
           case 20:
-            { tok(LexicalUnit.IMPLIES);
+            { return tok(LexicalUnit.IMPLIES);
             }
           // fall through
           case 52: break;
           case 21:
-            { tok(LexicalUnit.SMALEQ);
+            { return tok(LexicalUnit.SMALEQ);
             }
           // fall through
           case 53: break;
           case 22:
-            { tok(LexicalUnit.EQUAL);
+            { return tok(LexicalUnit.EQUAL);
             }
           // fall through
           case 54: break;
           case 23:
-            { tok(LexicalUnit.DO);
+            { return tok(LexicalUnit.DO);
             }
           // fall through
           case 55: break;
           case 24:
-            { tok(LexicalUnit.IF);
+            { return tok(LexicalUnit.IF);
             }
           // fall through
           case 56: break;
           case 25:
-            { tok(LexicalUnit.IS);
+            { return tok(LexicalUnit.IS);
             }
           // fall through
           case 57: break;
           case 26:
-            { tok(LexicalUnit.END);
+            { return tok(LexicalUnit.END);
             }
           // fall through
           case 58: break;
           case 27:
-            { tok(LexicalUnit.ELSE);
+            { return tok(LexicalUnit.ELSE);
             }
           // fall through
           case 59: break;
           case 28:
-            { tok(LexicalUnit.PROG);
+            { return tok(LexicalUnit.PROG);
             }
           // fall through
           case 60: break;
           case 29:
-            { tok(LexicalUnit.THEN);
+            { return tok(LexicalUnit.THEN);
             }
           // fall through
           case 61: break;
           case 30:
-            { tok(LexicalUnit.INPUT);
+            { return tok(LexicalUnit.INPUT);
             }
           // fall through
           case 62: break;
           case 31:
-            { tok(LexicalUnit.PRINT);
+            { return tok(LexicalUnit.PRINT);
             }
           // fall through
           case 63: break;
           case 32:
-            { tok(LexicalUnit.WHILE);
+            { return tok(LexicalUnit.WHILE);
             }
           // fall through
           case 64: break;
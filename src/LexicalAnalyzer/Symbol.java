@@ -1,5 +1,9 @@
 package LexicalAnalyzer;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
 /**
  * Symbol objects represent a terminal or non-terminal symbol in the grammar.
  * 
@@ -49,6 +53,17 @@ package LexicalAnalyzer;
      */
 	private final int line,column;
 
+    /**
+     * Shared symbols of the non-terminals, indexed by NonTermUnit ordinal, see {@link #of(NonTermUnit)}.
+     */
+    private static final Symbol[] NON_TERMINALS = new Symbol[NonTermUnit.values().length];
+
+    static {
+        for (NonTermUnit unit : NonTermUnit.values()) {
+            NON_TERMINALS[unit.ordinal()] = new Symbol(unit, NO_VALUE);
+        }
+    }
+
     /**
      * Creates a Symbol using the provided attributes.
      * 
@@ -113,6 +128,17 @@ package LexicalAnalyzer;
         this(NO_TERM_TYPE, UNDEFINED_POSITION, UNDEFINED_POSITION, value, unit);
     }
 	
+    /**
+     * Returns the symbol of a non-terminal, shared by all the nodes labeled with it.
+     * Its value is empty, its LaTeX label being rendered by {@link #toTexString()} only when needed.
+     *
+     * @param unit the Non-terminal unit
+     * @return the immutable symbol of the non-terminal
+     */
+    public static Symbol of(NonTermUnit unit) {
+        return NON_TERMINALS[unit.ordinal()];
+    }
+	
     /**
      * Creates a Symbol using the provided attributes, without position or value.
      * 
@@ -164,6 +190,17 @@ package LexicalAnalyzer;
 	public LexicalUnit getType(){
 		return this.type;
 	}
+
+    /**
+     * Returns the non-terminal of the symbol.
+     * 
+     * The non-terminal of a terminal is null.
+     * 
+     * @return the value of attribute {@link nonTermType nonTermType}.
+     */
+    public NonTermUnit getNonTermType(){
+        return this.nonTermType;
+    }
 	
     /**
      * Returns the value of the symbol.
@@ -199,9 +236,7 @@ package LexicalAnalyzer;
      */
 	@Override
 	public int hashCode(){
-		final String value	= this.value != null? this.value.toString() : "null";
-		final String type		= this.type  != null? this.type.toString()  : "null";
-		return new String(value+"_"+type).hashCode();
+		return 31 * java.util.Objects.hashCode(this.value) + java.util.Objects.hashCode(this.type);
 	}
 	
     /**
@@ -217,6 +252,9 @@ package LexicalAnalyzer;
 			final String type		= this.type  != null? this.type.toString()  : "null";
 			return "token: "+padTo(value,12)+"\tlexical unit: "+type; // The longest keyword has length 7
 		}
+		if (this.nonTermType != null && this.value.isEmpty()) {
+			return "Non-terminal symbol: <"+this.nonTermType+">";
+		}
 		return "Non-terminal symbol: "+value;
 	}
     /**
@@ -228,11 +266,12 @@ package LexicalAnalyzer;
      */
     private String padTo(String s, int l){
         int n=s.length();
-        String res=s;
+        if (n >= l-1) return s;
+        StringBuilder res=new StringBuilder(l-1).append(s);
         for (int i=1; i<l-n; i++) {
-            res+=" ";
+            res.append(' ');
         }
-        return res;
+        return res.toString();
     }
 
     /**
@@ -241,18 +280,75 @@ package LexicalAnalyzer;
      * @return String containing type and value
      */
     public String toTexString() {
+        StringWriter tex = new StringWriter();
+        try {
+            writeTex(tex);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // a StringWriter does not fail
+        }
+        return tex.toString();
+    }
+
+    /**
+     * Writes a symbol as LaTeX, escaping its value in a single pass
+     *
+     * @param out the writer receiving the LaTeX code
+     * @throws IOException if the writer fails
+     */
+    public void writeTex(Writer out) throws IOException {
         if (type != null) {
-            return type.toString() + " " + value
-                .replace("_", "\\_")
-                .replace("{", "\\{")
-                .replace("}", "\\}")
-                .replace("<", "\\textless")
-                .replace(">", "\\textgreater");
+            out.write(type.toString());
+            out.write(' ');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '_':
+                        out.write("\\_");
+                        break;
+                    case '{':
+                        out.write("\\{");
+                        break;
+                    case '}':
+                        out.write("\\}");
+                        break;
+                    case '<':
+                        out.write("\\textless");
+                        break;
+                    case '>':
+                        out.write("\\textgreater");
+                        break;
+                    default:
+                        out.write(c);
+                }
+            }
         } else if (nonTermType != null) {
-            return nonTermType.toString() + value;
-        } else {
-            return "";
+            out.write(nonTermType.toString());
+            out.write(value.isEmpty() ? texLabel(nonTermType) : value);
+        }
+    }
+
+    /**
+     * Renders the LaTeX label of a non-terminal, as written in the grammar
+     *
+     * @param unit the non-terminal
+     * @return its name between angle brackets, in LaTeX
+     */
+    private static String texLabel(NonTermUnit unit) {
+        String name;
+        switch (unit) {
+            case Program:
+                name = "Prog";
+                break;
+            case ExprArithp:
+                name = "ExprArith\\textquotesingle";
+                break;
+            case Prodp:
+                name = "Prod\\textquotesingle";
+                break;
+            default:
+                name = unit.toString();
         }
+        return "\\textless " + name + "\\textgreater";
     }
 
  }
@@ -1,20 +1,25 @@
 package LexicalAnalyzer;
 
-import java.util.Vector;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Symbol table, storing variables seen by the scanner and the first line where they appeared. 
  *
  */
 public class SymbolTable {
-    /** vector containing the symbols*/
-    private Vector<Symbol> table;
+    /** map from the name of each variable to the symbol of its first occurrence*/
+    private Map<String, Symbol> table;
 
     /**
-     * SymboLTable constructor, initializing the vector
+     * SymboLTable constructor, initializing the map
      */
     public SymbolTable() {
-        this.table = new Vector<Symbol>();
+        this.table = new HashMap<String, Symbol>();
     }
 
     /**
@@ -27,38 +32,43 @@ public class SymbolTable {
      */
     public void addSymbol(LexicalUnit lex_unit, int line, int column, String value) {
         if (lex_unit != LexicalUnit.VARNAME) return;
-        for (Symbol symbol : this.table) {
-            if (symbol.getValue().equals(value)) return;
+        if (this.table.containsKey(value)) return;
+        this.table.put(value, new Symbol(lex_unit, line, column, value));
+    }
+
+    /**
+     * method to add the variables of a table filled while scanning a later part of the same source, keeping the
+     * first occurrence of each variable met in both
+     * @param other the table of the later part, whose lines and columns are counted from the start of the part
+     * @param lines the number of lines before the part
+     * @param column the column at which the part starts, added to the columns of its first line
+     */
+    public void addAll(SymbolTable other, int lines, int column) {
+        for (Symbol symbol : other.table.values()) {
+            String value = symbol.getValue();
+            if (this.table.containsKey(value)) continue;
+            int line = symbol.getLine() - 1;
+            this.table.put(value, new Symbol(symbol.getType(), line + lines, line == 0 ? symbol.getColumn() + column : symbol.getColumn(), value));
         }
-        Symbol new_symbol = new Symbol(lex_unit, line, column, value);
-        this.table.add(new_symbol);
-        reorderTable();
     }
 
     /**
      * prints the table to standard output
      */
     public void printTable() {
-        System.out.println("Variables");
-        for (Symbol symbol : this.table) {
-            System.out.println(symbol.getValue() + " " + String.valueOf(symbol.getLine()));
-        }
+        printTable(System.out);
     }
-    
+
     /**
-     * reorder the table in alphabetical order of the variables names
+     * prints the table to the given stream, in alphabetical order of the variables names
+     * @param out the stream to print to
      */
-    private void reorderTable() {
-        int n = table.size();
-        for (int i = 0; i < n; i++) {
-            int min = i;
-            for (int j = i+1; j < n; j++) {
-                String j_value = (String) table.get(j).getValue();
-                if (j_value.compareTo((String) (table.get(min).getValue())) < 0) min = j;
-            }
-            Symbol temp = table.get(i);
-            table.set(i, table.get(min));
-            table.set(min, temp);
+    public void printTable(PrintStream out) {
+        out.println("Variables");
+        List<String> names = new ArrayList<String>(this.table.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            out.println(name + " " + String.valueOf(this.table.get(name).getLine()));
         }
     }
 
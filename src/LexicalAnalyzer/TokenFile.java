@@ -0,0 +1,322 @@
+package LexicalAnalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary token file, a compact alternative to the textual dump of {@link TokenSequence#printSequence()}.
+ * <br>
+ * Layout (big endian):
+ * <pre>
+ * header  : magic "YTOK" | int version | int token count | int pool size (bytes)
+ * records : token count times { int LexicalUnit ordinal | int line | int column | int pool offset }
+ * pool    : distinct values, each stored as { int length | UTF-8 bytes }
+ * </pre>
+ * A TokenFile is read through memory mappings of the file: the records are decoded on demand and
+ * the values are decoded once per distinct entry of the pool, so reading tokens allocates nothing.
+ * <br>
+ * The token count and the pool size are ints, so a file holds at most {@link Integer#MAX_VALUE} tokens and a pool
+ * under 2 GB. The records may then take more than the 2 GB a single mapping can hold, so they are mapped in windows
+ * of 1 GB, and written through a buffer of bounded size.
+ *
+ * @author Alex Bataille
+ */
+public class TokenFile implements TokenSource {
+    /** Magic number at the start of every token file ("YTOK") */
+    private static final int MAGIC = 0x59544F4B;
+    /** Version of the format written by this class */
+    public static final int VERSION = 1;
+    /** Size of the header in bytes */
+    private static final int HEADER_SIZE = 16;
+    /** Size of a token record in bytes */
+    private static final int RECORD_SIZE = 16;
+    /** Number of records in a window of the mapping, a window holding 1 GB of records */
+    private static final int WINDOW_RECORDS = 1 << 26;
+    /** Number of records written at once */
+    private static final int WRITE_RECORDS = 4096;
+    /** Lexical units indexed by ordinal */
+    private static final LexicalUnit[] UNITS = LexicalUnit.values();
+
+    /** Mappings of the records, windows[i] holding the records from i * WINDOW_RECORDS */
+    private final MappedByteBuffer[] windows;
+    /** Number of tokens in the file */
+    private final int count;
+    /** Offsets of the pool entries, relative to the start of the pool, in increasing order */
+    private final int[] poolOffsets;
+    /** Decoded pool entries, poolValues[i] being stored at poolOffsets[i] */
+    private final String[] poolValues;
+
+    /**
+     * Maps a token file and decodes its string pool
+     *
+     * @param channel the channel of the file, which may be closed once the file is mapped
+     * @throws IOException if the file is not a token file of a supported version, or if a record
+     *         holds an unknown lexical unit or does not point at the start of a pool entry
+     */
+    private TokenFile(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            throw new IOException("Not a token file");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a token file");
+        }
+        int version = header.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported token file version " + version);
+        }
+        this.count = header.getInt(8);
+        int poolSize = header.getInt(12);
+        long poolStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+        if (count < 0 || poolSize < 0 || poolStart + poolSize > size) {
+            throw new IOException("Truncated token file");
+        }
+
+        this.windows = new MappedByteBuffer[(int) ((count + (long) WINDOW_RECORDS - 1) / WINDOW_RECORDS)];
+        for (int w = 0; w < windows.length; w++) {
+            long first = (long) w * WINDOW_RECORDS;
+            long records = Math.min(WINDOW_RECORDS, count - first);
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+        }
+
+        ByteBuffer pool = channel.map(FileChannel.MapMode.READ_ONLY, poolStart, poolSize);
+        int entries = 0;
+        for (int offset = 0; offset < poolSize; offset += 4 + entryLength(pool, offset)) {
+            entries++;
+        }
+        this.poolOffsets = new int[entries];
+        this.poolValues = new String[entries];
+        int offset = 0;
+        for (int i = 0; i < entries; i++) {
+            int length = pool.getInt(offset);
+            byte[] bytes = new byte[length];
+            pool.get(offset + 4, bytes);
+            poolOffsets[i] = offset;
+            poolValues[i] = new String(bytes, StandardCharsets.UTF_8);
+            offset += 4 + length;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int ordinal = window(i).getInt(position(i));
+            if (ordinal < 0 || ordinal >= UNITS.length
+                    || Arrays.binarySearch(poolOffsets, window(i).getInt(position(i) + 12)) < 0) {
+                throw new IOException("Corrupt token file");
+            }
+        }
+    }
+
+    /**
+     * Reads the length of a pool entry, checking that the entry lies within the pool
+     *
+     * @param pool the mapping of the pool
+     * @param offset the offset of the entry, relative to the start of the pool
+     * @return the length of the entry in bytes, not counting its own length
+     * @throws IOException if the entry does not fit in the pool
+     */
+    private static int entryLength(ByteBuffer pool, int offset) throws IOException {
+        int poolSize = pool.limit();
+        if (poolSize - offset < 4) {
+            throw new IOException("Corrupt token file");
+        }
+        int length = pool.getInt(offset);
+        if (length < 0 || length > poolSize - offset - 4) {
+            throw new IOException("Corrupt token file");
+        }
+        return length;
+    }
+
+    /**
+     * Opens a token file for reading
+     *
+     * @param filename the path of the token file
+     * @return the token file, backed by memory mappings
+     * @throws IOException if the file cannot be read or is not a valid token file
+     */
+    public static TokenFile open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            return new TokenFile(channel);
+        }
+    }
+
+    /**
+     * Writes tokens to a binary token file
+     *
+     * @param tokens the tokens to write
+     * @param filename the path of the token file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(TokenSource tokens, String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(tokens, channel);
+        }
+    }
+
+    /**
+     * Writes tokens in the token file format to a channel, which is left open
+     *
+     * @param tokens the tokens to write
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public static void write(TokenSource tokens, WritableByteChannel channel) throws IOException {
+        int n = tokens.size();
+        // the pool goes after the records but its size is in the header, so it is built first
+        Map<String, Integer> offsets = new HashMap<>();
+        ByteBuffer pool = ByteBuffer.allocate(256);
+        for (int i = 0; i < n; i++) {
+            String value = tokens.getValue(i);
+            Integer offset = offsets.get(value);
+            if (offset == null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                if (pool.remaining() < 4 + bytes.length) {
+                    long needed = (long) pool.position() + 4 + bytes.length;
+                    if (needed > Integer.MAX_VALUE - 8) {
+                        throw new IOException("Token values too large for a token file: more than 2 GB of distinct values");
+                    }
+                    ByteBuffer grown = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(pool.capacity() * 2L, needed)));
+                    pool.flip();
+                    grown.put(pool);
+                    pool = grown;
+                }
+                offset = pool.position();
+                pool.putInt(bytes.length).put(bytes);
+                offsets.put(value, offset);
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(pool.position());
+        header.flip();
+        writeFully(channel, header);
+
+        ByteBuffer records = ByteBuffer.allocate(WRITE_RECORDS * RECORD_SIZE);
+        for (int i = 0; i < n; i++) {
+            if (!records.hasRemaining()) {
+                records.flip();
+                writeFully(channel, records);
+                records.clear();
+            }
+            records.putInt(tokens.getType(i).ordinal())
+                   .putInt(tokens.getLine(i))
+                   .putInt(tokens.getColumn(i))
+                   .putInt(offsets.get(tokens.getValue(i)));
+        }
+        records.flip();
+        writeFully(channel, records);
+        pool.flip();
+        writeFully(channel, pool);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to a channel
+     *
+     * @param channel the channel to write to
+     * @param buffer the bytes to write
+     * @throws IOException if the channel cannot be written
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Converts a textual token dump, as printed by the scanner, to a binary token file
+     *
+     * @param textFile the path of the textual dump
+     * @param binaryFile the path of the token file to write
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void convert(String textFile, String binaryFile) throws IOException {
+        write(TokenSequence.read(textFile), binaryFile);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public LexicalUnit getType(int index) {
+        return UNITS[window(index).getInt(record(index))];
+    }
+
+    @Override
+    public String getValue(int index) {
+        int entry = Arrays.binarySearch(poolOffsets, window(index).getInt(record(index) + 12));
+        assert entry >= 0 : "Token " + index + " does not point at a pool entry";
+        return poolValues[entry];
+    }
+
+    @Override
+    public int getLine(int index) {
+        return window(index).getInt(record(index) + 4);
+    }
+
+    @Override
+    public int getColumn(int index) {
+        return window(index).getInt(record(index) + 8);
+    }
+
+    /**
+     * Returns the position of a token record in its window, checking the index
+     *
+     * @param index the position of the token
+     * @return the byte offset of its record in {@link #window(int)}
+     */
+    private int record(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Token " + index + " out of " + count);
+        }
+        return position(index);
+    }
+
+    /**
+     * Returns the position of a token record in its window
+     *
+     * @param index the position of the token
+     * @return the byte offset of its record in {@link #window(int)}
+     */
+    private static int position(int index) {
+        return (index % WINDOW_RECORDS) * RECORD_SIZE;
+    }
+
+    /**
+     * Returns the mapping holding a token record
+     *
+     * @param index the position of the token
+     * @return the window of the record
+     */
+    private MappedByteBuffer window(int index) {
+        return windows[index / WINDOW_RECORDS];
+    }
+
+    /**
+     * Converts a textual token dump to a binary token file
+     *
+     * @param args the textual dump and the token file to write
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage : java LexicalAnalyzer.TokenFile <text dump> <token file>");
+            return;
+        }
+        try {
+            convert(args[0], args[1]);
+        } catch (IOException e) {
+            System.out.println("IO error converting \"" + args[0] + "\"");
+            System.out.println(e);
+        }
+    }
+}
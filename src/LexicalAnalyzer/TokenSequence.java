@@ -1,34 +1,62 @@
 package LexicalAnalyzer;
 
-import java.util.ArrayList;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
 
 /**
- * Sequence of tokens containing a list of symbols
+ * Sequence of tokens met by the scanner.
+ * The tokens are stored column-wise in primitive arrays (lexical unit, column and value), the values
+ * themselves being kept once each in a shared ValuePool, so appending a token allocates no object.
+ * Lines are kept once per line holding tokens, in an index of the first token of each line: the line of a token
+ * is only looked up when it is printed or reported in an error. Columns are still stored per token, the tokens
+ * keeping no offset in the source from which their columns could be derived.
  * @author Alex Bataille
 */
-public class TokenSequence {
-    /**
-     * ArrayList containing the symbol met by the scanner at a given time
-    */
-    private ArrayList<Symbol> sequence;
+public class TokenSequence implements TokenSource {
+    /** Initial number of tokens the arrays can hold */
+    private static final int INITIAL_CAPACITY = 256;
+    /** Lexical units indexed by ordinal */
+    private static final LexicalUnit[] UNITS = LexicalUnit.values();
+
+    /** Number of tokens in the sequence */
+    private int size;
+    /** Ordinal of the LexicalUnit of each token */
+    private int[] kinds;
+    /** Column of each token */
+    private int[] columns;
+    /** Id in the value pool of the value of each token, ValuePool.NO_VALUE for keywords and punctuation */
+    private int[] values;
+    /** Distinct values of the tokens */
+    private ValuePool pool;
+    /** Number of lines in the line index */
+    private int lineCount;
+    /** Index of the first token of each line of the index */
+    private int[] lineFirsts;
+    /** Number of each line of the index, as returned by Symbol.getLine() */
+    private int[] lineNumbers;
     
     /**
-     * Constructor of TokenSequence, initalizing the List
+     * Constructor of TokenSequence, initalizing the arrays
     */
     public TokenSequence() {
-        this.sequence = new ArrayList<Symbol>();
+        this.kinds = new int[INITIAL_CAPACITY];
+        this.columns = new int[INITIAL_CAPACITY];
+        this.values = new int[INITIAL_CAPACITY];
+        this.pool = new ValuePool();
+        this.lineFirsts = new int[INITIAL_CAPACITY];
+        this.lineNumbers = new int[INITIAL_CAPACITY];
     }
 
     /**
-     * Add a symbol to the sequence if not already containing
+     * Add a symbol to the sequence
      * @param lexical_unit the corresponding lexical unit (from LexicalUnit enum)
      * @param value the value of the token
      */
     public void addSymbol(LexicalUnit lexical_unit, String value) {
-        Symbol token = new Symbol(lexical_unit, value);
-        if (!this.sequence.contains(token)) {
-            this.sequence.add(token);
-        }
+        addSymbol(lexical_unit, value, -1, -1);
     }
 
     /**
@@ -39,9 +67,143 @@ public class TokenSequence {
      * @param line the line of the lexical unit
      */
     public void addSymbol(LexicalUnit lexical_unit, String value, int line) {
-        Symbol token = new Symbol(lexical_unit, line, -1, value);
-        if (!this.sequence.contains(token)) {
-            this.sequence.add(token);
+        addSymbol(lexical_unit, value, line, -1);
+    }
+
+    /**
+     * Overloaded: add a symbol with a source line and column number
+     *
+     * @param lexical_unit the lexical unit
+     * @param value the value of lexical unit
+     * @param line the line of the lexical unit
+     * @param column the column of the lexical unit
+     */
+    public void addSymbol(LexicalUnit lexical_unit, String value, int line, int column) {
+        int id = ValuePool.lexeme(lexical_unit) != null ? ValuePool.NO_VALUE : pool.intern(value);
+        addSymbol(lexical_unit, id, line, column);
+    }
+
+    /**
+     * Overloaded: add a symbol whose value is already in the pool of this sequence
+     *
+     * @param lexical_unit the lexical unit
+     * @param value the id of the value in {@link #getPool()}, or ValuePool.NO_VALUE for keywords and punctuation
+     * @param line the line of the lexical unit
+     * @param column the column of the lexical unit
+     */
+    public void addSymbol(LexicalUnit lexical_unit, int value, int line, int column) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (lineCount == 0 || lineNumbers[lineCount - 1] != line+1) {
+            if (lineCount == lineFirsts.length) {
+                lineFirsts = Arrays.copyOf(lineFirsts, lineCount * 2);
+                lineNumbers = Arrays.copyOf(lineNumbers, lineCount * 2);
+            }
+            lineFirsts[lineCount] = size;
+            lineNumbers[lineCount] = line+1; // same numbering as Symbol
+            lineCount++;
+        }
+        kinds[size] = lexical_unit.ordinal();
+        columns[size] = column;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Returns the pool holding the values of the tokens
+     *
+     * @return the value pool
+     */
+    public ValuePool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the number of symbols in the sequence
+     *
+     * @return the number of symbols
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the symbol at the given position in the sequence.
+     * The symbol is created on each call, prefer the index based accessors.
+     *
+     * @param index the position of the symbol
+     * @return the symbol at that position
+     */
+    public Symbol get(int index) {
+        checkIndex(index);
+        return new Symbol(UNITS[kinds[index]], getLine(index)-1, columns[index], getValue(index));
+    }
+
+    @Override
+    public LexicalUnit getType(int index) {
+        checkIndex(index);
+        return UNITS[kinds[index]];
+    }
+
+    @Override
+    public String getValue(int index) {
+        checkIndex(index);
+        int value = values[index];
+        return value == ValuePool.NO_VALUE ? ValuePool.lexeme(UNITS[kinds[index]]) : pool.get(value);
+    }
+
+    /**
+     * Returns the id of the value of a token in the pool of this sequence
+     *
+     * @param index the position of the token
+     * @return the id in {@link #getPool()}, or ValuePool.NO_VALUE for keywords and punctuation
+     */
+    public int getValueId(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    @Override
+    public int getLine(int index) {
+        checkIndex(index);
+        return lineNumbers[lineOf(index)];
+    }
+
+    @Override
+    public int getColumn(int index) {
+        checkIndex(index);
+        return columns[index];
+    }
+
+    /**
+     * Finds the line of a token in the line index
+     *
+     * @param index the position of the token
+     * @return the position in the line index of the last line starting at or before the token
+     */
+    private int lineOf(int index) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (lineFirsts[middle] <= index) low = middle; else high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Checks that a token exists at the given position
+     *
+     * @param index the position of the token
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " out of " + size);
         }
     }
 
@@ -49,10 +211,64 @@ public class TokenSequence {
      * Prints the symbol sequence to the output
      */
     public void printSequence() {
-        for (Symbol symbol : sequence) {
-            int line = symbol.getLine();
+        printSequence(System.out);
+    }
+
+    /**
+     * Prints the symbol sequence to the given stream
+     *
+     * @param out the stream to print to
+     */
+    public void printSequence(PrintStream out) {
+        int next = 0;
+        int line = 0;
+        for (int i = 0; i < size; i++) {
+            if (next < lineCount && lineFirsts[next] == i) {
+                line = lineNumbers[next++];
+            }
             String prefix = (line > 0) ? ("line: " + line + " ") : "";
-            System.out.println(prefix + symbol.toString());
+            out.println(prefix + new Symbol(UNITS[kinds[i]], getValue(i)).toString());
+        }
+    }
+
+    /**
+     * Reads back a sequence printed by {@link #printSequence(PrintStream)}.
+     * Lines which are not tokens (symbol table, scanner errors) are skipped.
+     *
+     * @param filename the path of the text file to read
+     * @return the sequence of tokens found in the file
+     * @throws IOException if the file cannot be read
+     */
+    public static TokenSequence read(String filename) throws IOException {
+        TokenSequence result = new TokenSequence();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                // Format: "line: N token: XXX \t lexical unit: YYYY"
+                String[] parts = line.split("lexical unit:");
+                if (parts.length < 2) continue;
+                String lexicalUnitStr = parts[1].trim();
+                String value = parts[0].trim().split("token:")[1].trim();
+                LexicalUnit lexunit;
+                try {
+                    lexunit = LexicalUnit.valueOf(lexicalUnitStr.toUpperCase());
+                } catch (IllegalArgumentException iae) {
+                    System.err.println("ERROR: Unknown lexical unit: " + lexicalUnitStr);
+                    continue;
+                }
+
+                int srcLine = -1;
+                if (line.toLowerCase().startsWith("line:")) {
+                    String rest = line.substring(line.indexOf(":")+1).trim();
+                    try { srcLine = Integer.parseInt(rest.split("\\s+", 2)[0]); } catch (NumberFormatException e) { srcLine = -1; }
+                }
+                // the printed line is already shifted by Symbol, undo it so that it prints back identically
+                result.addSymbol(lexunit, value, srcLine - 1);
+            }
         }
+        return result;
     }
 }
@@ -0,0 +1,71 @@
+package LexicalAnalyzer;
+
+/**
+ * Read-only, index-based view over the tokens produced by the scanner.
+ * The parser only goes through this interface, so the tokens can be held in memory
+ * or read back from a token file without being copied.
+ *
+ * @author Alex Bataille
+ */
+public interface TokenSource {
+    /**
+     * Returns the number of tokens
+     *
+     * @return the number of tokens
+     */
+    int size();
+
+    /**
+     * Returns whether there is a token at the given position.
+     * Sources reading their tokens lazily read up to that position.
+     *
+     * @param index the position of the token
+     * @return true iff the token exists
+     */
+    default boolean hasToken(int index) {
+        return index >= 0 && index < size();
+    }
+
+    /**
+     * Returns whether every token can still be read once the following ones were, so that the tokens can be gone
+     * through before they are parsed. Sources keeping only the last tokens read cannot.
+     *
+     * @return true iff any token can be read at any time
+     */
+    default boolean isRandomAccess() {
+        return true;
+    }
+
+    /**
+     * Returns the lexical unit of a token
+     *
+     * @param index the position of the token
+     * @return the lexical unit of the token
+     */
+    LexicalUnit getType(int index);
+
+    /**
+     * Returns the value of a token, as it appears in the source
+     *
+     * @param index the position of the token
+     * @return the value of the token
+     */
+    String getValue(int index);
+
+    /**
+     * Returns the line of a token, as printed in the token dump
+     *
+     * @param index the position of the token
+     * @return the line of the token, or a negative value if unknown
+     */
+    int getLine(int index);
+
+    /**
+     * Returns the column of a token. Unlike lines, which may be looked up in an index of the lines, columns are
+     * stored per token.
+     *
+     * @param index the position of the token
+     * @return the column of the token, or a negative value if unknown
+     */
+    int getColumn(int index);
+}
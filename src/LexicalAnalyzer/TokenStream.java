@@ -0,0 +1,149 @@
+package LexicalAnalyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Tokens pulled one at a time from a running LexicalAnalyzer, as the parser asks for them.
+ * Only the last few tokens are kept, in a ring buffer, so the memory used does not depend on
+ * the size of the program and parsing starts before the whole file has been read.
+ * <br>
+ * Tokens which have fallen out of the buffer can no longer be read: this source is meant for
+ * parsers with a bounded lookahead, such as the LL(1) Parser.
+ *
+ * @author Alex Bataille
+ */
+public class TokenStream implements TokenSource {
+    /** Default number of tokens kept in the buffer */
+    public static final int DEFAULT_WINDOW = 4;
+    /** Lexical units indexed by ordinal */
+    private static final LexicalUnit[] UNITS = LexicalUnit.values();
+
+    /** Scanner the tokens are pulled from */
+    private final LexicalAnalyzer scanner;
+    /** Lexical units of the buffered tokens */
+    private final LexicalUnit[] types;
+    /** Values of the buffered tokens */
+    private final String[] values;
+    /** Lines of the buffered tokens */
+    private final int[] lines;
+    /** Columns of the buffered tokens */
+    private final int[] columns;
+    /** Number of tokens pulled from the scanner so far */
+    private int count;
+    /** Whether the scanner has reached the end of file */
+    private boolean atEOF;
+
+    /**
+     * Creates a stream of tokens with the default window
+     *
+     * @param scanner the scanner to pull tokens from
+     */
+    public TokenStream(LexicalAnalyzer scanner) {
+        this(scanner, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a stream of tokens. The scanner stops recording its tokens in its token sequence.
+     *
+     * @param scanner the scanner to pull tokens from
+     * @param window the number of tokens kept in the buffer, at least 2
+     */
+    public TokenStream(LexicalAnalyzer scanner, int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must hold at least 2 tokens");
+        }
+        this.scanner = scanner;
+        this.types = new LexicalUnit[window];
+        this.values = new String[window];
+        this.lines = new int[window];
+        this.columns = new int[window];
+        scanner.setKeepTokens(false);
+    }
+
+    /**
+     * Returns the number of tokens pulled from the scanner so far
+     *
+     * @return the number of tokens read
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean hasToken(int index) {
+        while (index >= count && !atEOF) {
+            pull();
+        }
+        return index >= 0 && index < count;
+    }
+
+    /**
+     * Returns false, the tokens falling out of the buffer being lost
+     *
+     * @return false
+     */
+    @Override
+    public boolean isRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public LexicalUnit getType(int index) {
+        return types[slot(index)];
+    }
+
+    @Override
+    public String getValue(int index) {
+        return values[slot(index)];
+    }
+
+    @Override
+    public int getLine(int index) {
+        return lines[slot(index)];
+    }
+
+    @Override
+    public int getColumn(int index) {
+        return columns[slot(index)];
+    }
+
+    /**
+     * Reads the next token from the scanner into the buffer, overwriting the oldest one
+     */
+    private void pull() {
+        int kind;
+        try {
+            kind = scanner.yylex();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (kind == LexicalAnalyzer.YYEOF) {
+            atEOF = true;
+            return;
+        }
+        int slot = count % types.length;
+        types[slot] = UNITS[kind];
+        values[slot] = scanner.getTokenValue();
+        lines[slot] = scanner.getTokenLine();
+        columns[slot] = scanner.getTokenColumn();
+        count++;
+    }
+
+    /**
+     * Returns the position in the buffer of a token
+     *
+     * @param index the position of the token in the stream
+     * @return the slot holding it
+     */
+    private int slot(int index) {
+        if (!hasToken(index)) {
+            throw new IndexOutOfBoundsException("Token " + index + " is past the end of the stream");
+        }
+        if (index < count - types.length) {
+            throw new IllegalStateException("Token " + index + " is no longer buffered");
+        }
+        return index % types.length;
+    }
+}
@@ -0,0 +1,204 @@
+package LexicalAnalyzer;
+
+import java.util.Arrays;
+
+/**
+ * Pool of the distinct token values (variable names, program names, numbers) met by the scanner.
+ * Values are looked up directly from a range of characters, such as the scanner buffer, so a value
+ * which is already in the pool is resolved to its id and canonical String without allocating.
+ * <br>
+ * Keywords and punctuation are not stored: their value is given by their lexical unit, see {@link #lexeme}.
+ *
+ * @author Alex Bataille
+ */
+public class ValuePool {
+    /** Id of the value of tokens whose value is given by their lexical unit */
+    public static final int NO_VALUE = -1;
+    /** Fixed text of each lexical unit, indexed by ordinal, null when the text varies */
+    private static final String[] LEXEMES = new String[LexicalUnit.values().length];
+
+    static {
+        LEXEMES[LexicalUnit.PROG.ordinal()] = "Prog";
+        LEXEMES[LexicalUnit.IS.ordinal()] = "Is";
+        LEXEMES[LexicalUnit.END.ordinal()] = "End";
+        LEXEMES[LexicalUnit.SEMI.ordinal()] = ";";
+        LEXEMES[LexicalUnit.LPAREN.ordinal()] = "(";
+        LEXEMES[LexicalUnit.RPAREN.ordinal()] = ")";
+        LEXEMES[LexicalUnit.MINUS.ordinal()] = "-";
+        LEXEMES[LexicalUnit.PLUS.ordinal()] = "+";
+        LEXEMES[LexicalUnit.TIMES.ordinal()] = "*";
+        LEXEMES[LexicalUnit.DIVIDE.ordinal()] = "/";
+        LEXEMES[LexicalUnit.IF.ordinal()] = "If";
+        LEXEMES[LexicalUnit.THEN.ordinal()] = "Then";
+        LEXEMES[LexicalUnit.ELSE.ordinal()] = "Else";
+        LEXEMES[LexicalUnit.LBRACK.ordinal()] = "{";
+        LEXEMES[LexicalUnit.RBRACK.ordinal()] = "}";
+        LEXEMES[LexicalUnit.IMPLIES.ordinal()] = "->";
+        LEXEMES[LexicalUnit.PIPE.ordinal()] = "|";
+        LEXEMES[LexicalUnit.EQUAL.ordinal()] = "==";
+        LEXEMES[LexicalUnit.SMALEQ.ordinal()] = "<=";
+        LEXEMES[LexicalUnit.SMALLER.ordinal()] = "<";
+        LEXEMES[LexicalUnit.WHILE.ordinal()] = "While";
+        LEXEMES[LexicalUnit.DO.ordinal()] = "Do";
+        LEXEMES[LexicalUnit.PRINT.ordinal()] = "Print";
+        LEXEMES[LexicalUnit.INPUT.ordinal()] = "Input";
+        // ASSIGN is written either "=" or "Assign", so its value is pooled
+    }
+
+    /** Characters of the values, stored one after the other */
+    private char[] chars;
+    /** Number of characters used */
+    private int charCount;
+    /** Start of each value in chars */
+    private int[] starts;
+    /** Length of each value */
+    private int[] lengths;
+    /** Hash of each value */
+    private int[] hashes;
+    /** Canonical String of each value */
+    private String[] strings;
+    /** Number of values */
+    private int count;
+    /** Open addressing hash table of value ids plus one, 0 marking a free slot */
+    private int[] table;
+
+    /**
+     * Creates an empty pool
+     */
+    public ValuePool() {
+        this.chars = new char[256];
+        this.starts = new int[64];
+        this.lengths = new int[64];
+        this.hashes = new int[64];
+        this.strings = new String[64];
+        this.table = new int[128];
+    }
+
+    /**
+     * Returns the fixed text of a lexical unit
+     *
+     * @param unit the lexical unit
+     * @return its text, or null if tokens of this unit carry their own value
+     */
+    public static String lexeme(LexicalUnit unit) {
+        return LEXEMES[unit.ordinal()];
+    }
+
+    /**
+     * Returns the id of a range of characters, adding it to the pool if it is not there yet
+     *
+     * @param buffer the characters
+     * @param start the start of the range
+     * @param length the length of the range
+     * @return the id of the value
+     */
+    public int intern(char[] buffer, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer[start + i];
+        }
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                return add(buffer, start, length, hash, slot);
+            }
+            if (hashes[id] == hash && lengths[id] == length && sameChars(id, buffer, start)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a value, adding it to the pool if it is not there yet
+     *
+     * @param value the value
+     * @return the id of the value
+     */
+    public int intern(String value) {
+        return intern(value.toCharArray(), 0, value.length());
+    }
+
+    /**
+     * Returns the canonical String of a value
+     *
+     * @param id the id of the value
+     * @return the value
+     */
+    public String get(int id) {
+        return strings[id];
+    }
+
+    /**
+     * Returns the number of distinct values in the pool
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns whether a value has the same characters as a range
+     *
+     * @param id the id of the value
+     * @param buffer the characters
+     * @param start the start of the range, of the same length as the value
+     * @return true iff the characters are equal
+     */
+    private boolean sameChars(int id, char[] buffer, int start) {
+        int from = starts[id];
+        for (int i = 0; i < lengths[id]; i++) {
+            if (chars[from + i] != buffer[start + i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a new value to the pool
+     *
+     * @param buffer the characters
+     * @param start the start of the range
+     * @param length the length of the range
+     * @param hash the hash of the range
+     * @param slot the free slot of the hash table to use
+     * @return the id of the new value
+     */
+    private int add(char[] buffer, int start, int length, int hash, int slot) {
+        if (charCount + length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + length));
+        }
+        System.arraycopy(buffer, start, chars, charCount, length);
+        if (count == starts.length) {
+            int capacity = count * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+        int id = count++;
+        starts[id] = charCount;
+        lengths[id] = length;
+        hashes[id] = hash;
+        strings[id] = new String(chars, charCount, length);
+        charCount += length;
+        table[slot] = id + 1;
+        if (count * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Doubles the size of the hash table
+     */
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+}
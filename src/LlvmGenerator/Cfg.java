@@ -0,0 +1,307 @@
+package llvmGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Control flow graph of the main function, the intermediate representation between the trees of a program and the
+ * LLVM code printed by the {@link IrPrinter}. The graph is made of basic blocks holding typed three-address
+ * instructions over virtual registers, numbered from 1, the entry block being the unlabeled block 0 as in LLVM.
+ * The variables live in stack slots, allocated at the start of the entry block.
+ * <br>
+ * A value, operand of an instruction, is a long: either a constant, in the range of an int, or a register, see
+ * {@link #register(int)}, so that instructions hold no object per operand. The registers are numbered in the order
+ * of their definitions in the blocks, as LLVM requires of the printed code; a pass removing or moving instructions
+ * calls {@link #renumber()} to number them again.
+ *
+ * @author Alex Bataille
+ */
+public class Cfg {
+    /** Label of the entry block */
+    public static final int ENTRY = -1;
+    /** Register of the instructions defining none */
+    public static final int NO_RESULT = 0;
+    /** Offset of the registers among the values: register n is the value REGISTER + n */
+    private static final long REGISTER = 1L << 32;
+
+    /**
+     * Types of the values
+     */
+    public enum Type {
+        /** No value, the type of the instructions defining none */
+        VOID,
+        /** Boolean, the result of a comparison */
+        I1,
+        /** Integer, the type of every variable */
+        I32,
+        /** Address of a format string */
+        PTR
+    }
+
+    /**
+     * Operations of the instructions, each with the type of its result
+     */
+    public enum Opcode {
+        /** Sum of two i32, without signed wrap */
+        ADD(Type.I32),
+        /** Difference of two i32, without signed wrap */
+        SUB(Type.I32),
+        /** Product of two i32, without signed wrap */
+        MUL(Type.I32),
+        /** Signed quotient of two i32 */
+        SDIV(Type.I32),
+        /** Equality of two i32 */
+        EQ(Type.I1),
+        /** Signed less or equal comparison of two i32 */
+        SLE(Type.I1),
+        /** Signed less than comparison of two i32 */
+        SLT(Type.I1),
+        /** Negation of an i1 */
+        NOT(Type.I1),
+        /** Reading of a stack slot */
+        LOAD(Type.I32),
+        /** Writing of a value into a stack slot */
+        STORE(Type.VOID),
+        /** Address of the format printing a number */
+        PRINT_FORMAT(Type.PTR),
+        /** Address of the format reading a number */
+        READ_FORMAT(Type.PTR),
+        /** Call of printf on a format and a value */
+        PRINT(Type.I32),
+        /** Call of scanf on a format, reading into a stack slot */
+        READ(Type.I32),
+        /** Value coming from the predecessor the block was entered from */
+        PHI(Type.I32),
+        /** Jump to a block */
+        BR(Type.VOID),
+        /** Jump to the first block if the i1 holds, to the second one otherwise */
+        COND_BR(Type.VOID),
+        /** Return of main */
+        RET(Type.VOID);
+
+        /** Type of the result */
+        public final Type type;
+
+        /**
+         * @param type the type of the result
+         */
+        Opcode(Type type) {
+            this.type = type;
+        }
+
+        /**
+         * Returns whether the instruction ends its block
+         *
+         * @return true for the branches and the return
+         */
+        public boolean isTerminator() {
+            return this == BR || this == COND_BR || this == RET;
+        }
+
+        /**
+         * Returns whether the instruction does nothing but define its result, so that it can be removed when the
+         * result is not used
+         *
+         * @return true unless the instruction writes memory, does I/O or ends its block
+         */
+        public boolean isPure() {
+            return this != STORE && this != PRINT && this != READ && !isTerminator();
+        }
+    }
+
+    /**
+     * A three-address instruction
+     */
+    public static final class Instruction {
+        /** Operation */
+        public final Opcode opcode;
+        /** Register defined, NO_RESULT if the type of the operation is VOID */
+        public int result;
+        /** Values used, for a phi the one coming from each of the blocks */
+        public final long[] operands;
+        /** Labels of the blocks jumped to by a branch, of the predecessors of a phi, empty otherwise */
+        public final int[] blocks;
+        /** Stack slot read or written, -1 if none */
+        public final int slot;
+
+        /**
+         * @param opcode the operation
+         * @param result the register defined, NO_RESULT if the type of the operation is VOID
+         * @param operands the values used
+         * @param blocks the labels of the blocks jumped to, or of the predecessors of a phi
+         * @param slot the stack slot read or written, -1 if none
+         */
+        public Instruction(Opcode opcode, int result, long[] operands, int[] blocks, int slot) {
+            this.opcode = opcode;
+            this.result = result;
+            this.operands = operands;
+            this.blocks = blocks;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * A basic block, entered at its first instruction and left at its last one, a terminator
+     */
+    public static final class Block {
+        /** Label of the block, ENTRY for the entry block */
+        public final int label;
+        /** Instructions of the block, its phi nodes first */
+        public final List<Instruction> instructions = new ArrayList<>();
+
+        /**
+         * @param label the label of the block, ENTRY for the entry block
+         */
+        public Block(int label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the last instruction of the block
+         *
+         * @return the terminator of the block, or null if the block is empty
+         */
+        public Instruction terminator() {
+            return instructions.isEmpty() ? null : instructions.get(instructions.size() - 1);
+        }
+    }
+
+    /** Names of the stack slots, as LLVM registers */
+    private final List<String> slots = new ArrayList<>();
+    /** Blocks of the graph, the entry block first, in the order of the printed code */
+    private final List<Block> blocks = new ArrayList<>();
+    /** Number of registers defined */
+    private int registers;
+
+    /**
+     * Returns the value of a register
+     *
+     * @param number the number of the register
+     * @return the value standing for the register
+     */
+    public static long register(int number) {
+        return REGISTER + number;
+    }
+
+    /**
+     * Returns whether a value is a register
+     *
+     * @param value the value
+     * @return true for a register, false for a constant
+     */
+    public static boolean isRegister(long value) {
+        return value >= REGISTER;
+    }
+
+    /**
+     * Returns the number of the register of a value
+     *
+     * @param value a register
+     * @return the number of the register
+     */
+    public static int registerOf(long value) {
+        return (int) (value - REGISTER);
+    }
+
+    /**
+     * Defines a new register, numbered after the ones defined so far
+     *
+     * @return the number of the register
+     */
+    public int newRegister() {
+        return ++registers;
+    }
+
+    /**
+     * Returns the number of registers defined, which are numbered from 1 to that number
+     *
+     * @return the number of registers
+     */
+    public int getRegisterCount() {
+        return registers;
+    }
+
+    /**
+     * Adds a stack slot
+     *
+     * @param name the name of the slot, as an LLVM register
+     * @return the index of the slot
+     */
+    public int addSlot(String name) {
+        slots.add(name);
+        return slots.size() - 1;
+    }
+
+    /**
+     * Returns the stack slots
+     *
+     * @return the names of the slots, as LLVM registers, by index
+     */
+    public List<String> getSlots() {
+        return slots;
+    }
+
+    /**
+     * Adds a block after the others
+     *
+     * @param label the label of the block, ENTRY for the entry block
+     * @return the block
+     */
+    public Block addBlock(int label) {
+        Block block = new Block(label);
+        blocks.add(block);
+        return block;
+    }
+
+    /**
+     * Returns the blocks, in the order of the printed code
+     *
+     * @return the blocks, which can be modified
+     */
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Numbers the registers again in the order of their definitions in the blocks, from 1, after instructions were
+     * removed or moved, the uses following the definitions
+     */
+    public void renumber() {
+        int[] numbers = new int[registers + 1];
+        int count = 0;
+        for (Block block : blocks) {
+            for (Instruction instruction : block.instructions) {
+                if (instruction.result != NO_RESULT) {
+                    numbers[instruction.result] = ++count;
+                }
+            }
+        }
+        for (Block block : blocks) {
+            for (Instruction instruction : block.instructions) {
+                if (instruction.result != NO_RESULT) {
+                    instruction.result = numbers[instruction.result];
+                }
+                long[] operands = instruction.operands;
+                for (int i = 0; i < operands.length; i++) {
+                    if (isRegister(operands[i])) {
+                        operands[i] = register(numbers[registerOf(operands[i])]);
+                    }
+                }
+            }
+        }
+        registers = count;
+    }
+
+    /**
+     * Returns the number of instructions of the graph, the allocas of the slots excluded
+     *
+     * @return the number of instructions
+     */
+    public int size() {
+        int size = 0;
+        for (Block block : blocks) {
+            size += block.instructions.size();
+        }
+        return size;
+    }
+}
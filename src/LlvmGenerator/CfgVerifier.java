@@ -0,0 +1,421 @@
+package llvmGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that a control flow graph is well formed, as LLVM would when reading the printed code: the blocks end with
+ * a single terminator and branch to blocks of the graph, the phi nodes open their blocks and have one value per
+ * predecessor, the registers are defined once, numbered in order, before their uses and with the types their uses
+ * expect. The dominators needed for the last check are computed with the algorithm of Cooper, Harvey and Kennedy.
+ *
+ * @author Alex Bataille
+ */
+public final class CfgVerifier {
+    /** Graph being verified */
+    private final Cfg cfg;
+    /** Blocks of the graph, by index */
+    private final List<Cfg.Block> blocks;
+    /** Index of each block, by label */
+    private final Map<Integer, Integer> indexes = new HashMap<>();
+    /** Indexes of the predecessors of each block, one per branch reaching it */
+    private final List<List<Integer>> predecessors = new ArrayList<>();
+    /** Index of the block defining each register */
+    private int[] definingBlock;
+    /** Position in its block of the instruction defining each register */
+    private int[] definingPosition;
+    /** Order of each block in a reverse postorder of the graph, -1 if it is unreachable */
+    private int[] order;
+    /** Immediate dominator of each block, by index, -1 if it is unreachable */
+    private int[] dominator;
+    /** Number of each block when a walk of the dominator tree enters it */
+    private int[] enter;
+    /** Number of each block when a walk of the dominator tree leaves it */
+    private int[] leave;
+
+    /**
+     * @param cfg the graph to verify
+     */
+    private CfgVerifier(Cfg cfg) {
+        this.cfg = cfg;
+        this.blocks = cfg.getBlocks();
+    }
+
+    /**
+     * Verifies a graph
+     *
+     * @param cfg the graph
+     * @throws IllegalStateException describing the first problem found
+     */
+    public static void verify(Cfg cfg) {
+        CfgVerifier verifier = new CfgVerifier(cfg);
+        verifier.checkBlocks();
+        verifier.checkDefinitions();
+        verifier.computeDominators();
+        verifier.checkUses();
+    }
+
+    /**
+     * Checks the labels, the terminators and the branches of the blocks, and collects their predecessors
+     */
+    private void checkBlocks() {
+        if (blocks.isEmpty() || blocks.get(0).label != Cfg.ENTRY) {
+            fail("the entry block does not come first");
+        }
+        for (int b = 0; b < blocks.size(); b++) {
+            Cfg.Block block = blocks.get(b);
+            if (indexes.put(block.label, b) != null) {
+                fail("block " + name(block.label) + " is defined twice");
+            }
+            predecessors.add(new ArrayList<>());
+            List<Cfg.Instruction> instructions = block.instructions;
+            if (instructions.isEmpty() || !block.terminator().opcode.isTerminator()) {
+                fail("block " + name(block.label) + " does not end with a terminator");
+            }
+            boolean phis = true;
+            for (int i = 0; i < instructions.size(); i++) {
+                Cfg.Opcode opcode = instructions.get(i).opcode;
+                if (opcode.isTerminator() && i < instructions.size() - 1) {
+                    fail("block " + name(block.label) + " goes on after its terminator");
+                }
+                if (opcode == Cfg.Opcode.PHI && !phis) {
+                    fail("a phi node of block " + name(block.label) + " follows other instructions");
+                }
+                phis = opcode == Cfg.Opcode.PHI;
+            }
+        }
+        for (int b = 0; b < blocks.size(); b++) {
+            for (int target : blocks.get(b).terminator().blocks) {
+                Integer index = indexes.get(target);
+                if (index == null) {
+                    fail("block " + name(blocks.get(b).label) + " branches to the unknown block " + name(target));
+                }
+                predecessors.get(index).add(b);
+            }
+        }
+        if (!predecessors.get(0).isEmpty()) {
+            fail("the entry block has predecessors");
+        }
+    }
+
+    /**
+     * Checks that the registers are defined once, numbered from 1 in the order of the blocks, by instructions whose
+     * operations have a result, and that the stack slots and the phi nodes refer to existing slots and predecessors
+     */
+    private void checkDefinitions() {
+        int count = cfg.getRegisterCount();
+        definingBlock = new int[count + 1];
+        definingPosition = new int[count + 1];
+        int expected = 1;
+        for (int b = 0; b < blocks.size(); b++) {
+            List<Cfg.Instruction> instructions = blocks.get(b).instructions;
+            for (int i = 0; i < instructions.size(); i++) {
+                Cfg.Instruction instruction = instructions.get(i);
+                if ((instruction.result == Cfg.NO_RESULT) != (instruction.opcode.type == Cfg.Type.VOID)) {
+                    fail(describe(instruction) + " has a result only if its operation has one");
+                }
+                if (instruction.result != Cfg.NO_RESULT) {
+                    if (instruction.result != expected) {
+                        fail("register %" + instruction.result + " is defined where %" + expected + " is expected");
+                    }
+                    if (expected > count) {
+                        fail("register %" + expected + " is beyond the " + count + " registers of the graph");
+                    }
+                    definingBlock[expected] = b;
+                    definingPosition[expected++] = i;
+                }
+                boolean usesSlot = instruction.opcode == Cfg.Opcode.LOAD || instruction.opcode == Cfg.Opcode.STORE
+                        || instruction.opcode == Cfg.Opcode.READ;
+                if (usesSlot ? instruction.slot < 0 || instruction.slot >= cfg.getSlots().size() : instruction.slot != -1) {
+                    fail(describe(instruction) + " has an invalid stack slot " + instruction.slot);
+                }
+                if (instruction.opcode == Cfg.Opcode.PHI) {
+                    checkPhi(b, instruction);
+                }
+            }
+        }
+        if (expected != count + 1) {
+            fail((expected - 1) + " registers are defined out of " + count);
+        }
+    }
+
+    /**
+     * Checks that a phi node has one value for each predecessor of its block
+     *
+     * @param b the index of the block of the phi node
+     * @param phi the phi node
+     */
+    private void checkPhi(int b, Cfg.Instruction phi) {
+        if (phi.operands.length != phi.blocks.length) {
+            fail(describe(phi) + " has " + phi.operands.length + " values for " + phi.blocks.length + " blocks");
+        }
+        List<Integer> incoming = new ArrayList<>();
+        for (int label : phi.blocks) {
+            Integer index = indexes.get(label);
+            if (index == null) {
+                fail(describe(phi) + " comes from the unknown block " + name(label));
+            }
+            incoming.add(index);
+        }
+        List<Integer> expected = new ArrayList<>(predecessors.get(b));
+        incoming.sort(null);
+        expected.sort(null);
+        if (!incoming.equals(expected)) {
+            fail(describe(phi) + " does not come from the predecessors of block " + name(blocks.get(b).label));
+        }
+    }
+
+    /**
+     * Computes the immediate dominators of the reachable blocks, then numbers the blocks in a walk of the dominator
+     * tree so that dominance is tested in constant time
+     */
+    private void computeDominators() {
+        int size = blocks.size();
+        // reverse postorder, from an iterative depth-first search
+        order = new int[size];
+        Arrays.fill(order, -1);
+        int[] postorder = new int[size];
+        int visited = 0;
+        int[] stack = new int[size];
+        int[] next = new int[size];
+        boolean[] seen = new boolean[size];
+        int top = 0;
+        stack[top++] = 0;
+        seen[0] = true;
+        while (top > 0) {
+            int b = stack[top - 1];
+            int[] successors = blocks.get(b).terminator().blocks;
+            if (next[b] < successors.length) {
+                int successor = indexes.get(successors[next[b]++]);
+                if (!seen[successor]) {
+                    seen[successor] = true;
+                    stack[top++] = successor;
+                }
+            } else {
+                postorder[visited++] = b;
+                top--;
+            }
+        }
+        int[] reverse = new int[visited];
+        for (int i = 0; i < visited; i++) {
+            reverse[i] = postorder[visited - 1 - i];
+            order[reverse[i]] = i;
+        }
+
+        dominator = new int[size];
+        Arrays.fill(dominator, -1);
+        dominator[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < visited; i++) {
+                int b = reverse[i];
+                int idom = -1;
+                for (int predecessor : predecessors.get(b)) {
+                    if (dominator[predecessor] >= 0) {
+                        idom = idom < 0 ? predecessor : intersect(predecessor, idom);
+                    }
+                }
+                if (dominator[b] != idom) {
+                    dominator[b] = idom;
+                    changed = true;
+                }
+            }
+        }
+
+        // children in the dominator tree, walked depth first
+        int[] firstChild = new int[size];
+        int[] sibling = new int[size];
+        Arrays.fill(firstChild, -1);
+        for (int i = visited - 1; i >= 1; i--) {
+            int b = reverse[i];
+            sibling[b] = firstChild[dominator[b]];
+            firstChild[dominator[b]] = b;
+        }
+        enter = new int[size];
+        leave = new int[size];
+        int clock = 0;
+        int[] child = new int[size];
+        top = 0;
+        stack[top++] = 0;
+        enter[0] = clock++;
+        child[0] = firstChild[0];
+        while (top > 0) {
+            int b = stack[top - 1];
+            int c = child[b];
+            if (c >= 0) {
+                child[b] = sibling[c];
+                enter[c] = clock++;
+                child[c] = firstChild[c];
+                stack[top++] = c;
+            } else {
+                leave[b] = clock++;
+                top--;
+            }
+        }
+    }
+
+    /**
+     * Returns the nearest common dominator of two blocks
+     *
+     * @param a the index of a block whose dominators are known
+     * @param b the index of another one
+     * @return the index of their nearest common dominator
+     */
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (order[a] > order[b]) {
+                a = dominator[a];
+            }
+            while (order[b] > order[a]) {
+                b = dominator[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Returns whether a block dominates another one
+     *
+     * @param a the index of the first block
+     * @param b the index of the second block
+     * @return true if every path from the entry block to b goes through a
+     */
+    private boolean dominates(int a, int b) {
+        return enter[a] <= enter[b] && leave[b] <= leave[a];
+    }
+
+    /**
+     * Checks that the operands of the reachable instructions have the types their operations expect and are defined
+     * before they are used: earlier in the same block, in a dominating block, or for a phi node in a block
+     * dominating the predecessor the value comes from
+     */
+    private void checkUses() {
+        for (int b = 0; b < blocks.size(); b++) {
+            if (order[b] < 0) {
+                continue;
+            }
+            List<Cfg.Instruction> instructions = blocks.get(b).instructions;
+            for (int i = 0; i < instructions.size(); i++) {
+                Cfg.Instruction instruction = instructions.get(i);
+                long[] operands = instruction.operands;
+                Cfg.Type[] types = operandTypes(instruction);
+                if (types.length != operands.length) {
+                    fail(describe(instruction) + " has " + operands.length + " operands instead of " + types.length);
+                }
+                for (int o = 0; o < operands.length; o++) {
+                    Cfg.Type type = typeOf(operands[o]);
+                    if (type != types[o]) {
+                        fail(describe(instruction) + " uses a value of type " + type + " where " + types[o] + " is expected");
+                    }
+                    if (!Cfg.isRegister(operands[o])) {
+                        continue;
+                    }
+                    int register = Cfg.registerOf(operands[o]);
+                    int defined = definingBlock[register];
+                    boolean available;
+                    if (instruction.opcode == Cfg.Opcode.PHI) {
+                        int from = indexes.get(instruction.blocks[o]);
+                        available = order[from] < 0 || dominates(defined, from);
+                    } else if (defined == b) {
+                        available = definingPosition[register] < i;
+                    } else {
+                        available = dominates(defined, b);
+                    }
+                    if (!available) {
+                        fail(describe(instruction) + " uses %" + register + " where it is not defined");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the type of a value
+     *
+     * @param value a constant or a register
+     * @return I32 for a constant, the type of the operation defining a register
+     */
+    private Cfg.Type typeOf(long value) {
+        if (!Cfg.isRegister(value)) {
+            return Cfg.Type.I32;
+        }
+        int register = Cfg.registerOf(value);
+        if (register < 1 || register > cfg.getRegisterCount()) {
+            fail("register %" + register + " is not defined");
+        }
+        Cfg.Block block = blocks.get(definingBlock[register]);
+        return block.instructions.get(definingPosition[register]).opcode.type;
+    }
+
+    /**
+     * Returns the types an instruction expects of its operands
+     *
+     * @param instruction the instruction
+     * @return the type of each operand
+     */
+    private static Cfg.Type[] operandTypes(Cfg.Instruction instruction) {
+        switch (instruction.opcode) {
+            case ADD:
+            case SUB:
+            case MUL:
+            case SDIV:
+            case EQ:
+            case SLE:
+            case SLT:
+                return new Cfg.Type[] {Cfg.Type.I32, Cfg.Type.I32};
+            case NOT:
+            case COND_BR:
+                return new Cfg.Type[] {Cfg.Type.I1};
+            case STORE:
+            case RET:
+                return new Cfg.Type[] {Cfg.Type.I32};
+            case PRINT:
+                return new Cfg.Type[] {Cfg.Type.PTR, Cfg.Type.I32};
+            case READ:
+                return new Cfg.Type[] {Cfg.Type.PTR};
+            case PHI:
+                Cfg.Type[] types = new Cfg.Type[instruction.operands.length];
+                Arrays.fill(types, Cfg.Type.I32);
+                return types;
+            default:
+                return new Cfg.Type[0];
+        }
+    }
+
+    /**
+     * Names an instruction in a message
+     *
+     * @param instruction the instruction
+     * @return its operation, with its result if any
+     */
+    private static String describe(Cfg.Instruction instruction) {
+        if (instruction.result == Cfg.NO_RESULT) {
+            return instruction.opcode.toString();
+        }
+        return instruction.opcode + " %" + instruction.result;
+    }
+
+    /**
+     * Names a block in a message
+     *
+     * @param label the label of the block
+     * @return its name in the printed code
+     */
+    private static String name(int label) {
+        return label == Cfg.ENTRY ? "%0" : "%label" + label;
+    }
+
+    /**
+     * Reports a problem of the graph
+     *
+     * @param message the problem
+     * @throws IllegalStateException always
+     */
+    private static void fail(String message) {
+        throw new IllegalStateException(message);
+    }
+}
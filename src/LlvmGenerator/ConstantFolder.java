@@ -0,0 +1,254 @@
+package llvmGenerator;
+
+import LexicalAnalyzer.LexicalUnit;
+import Parser.Ast;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Constant folding and propagation over the abstract syntax tree, run before the LLVMGenerator emits the code.
+ * The operations whose operands are known are replaced by their result, and the reads of a variable whose value is
+ * known are replaced by that value. A value is known along straight-line code from the assignment of a constant to
+ * the variable. After an If it stays known only if both branches leave the same value, and it is forgotten for the
+ * whole of a While as soon as the loop assigns the variable.
+ * <br>
+ * An operation is only folded when LLVM defines its result: a sum, difference or product overflowing an i32, which
+ * is poison with nsw, a division by zero and the division of the smallest i32 by -1 are all left to run, as well as
+ * the numbers which do not fit in an i32.
+ *
+ * @author Alex Bataille
+ */
+public class ConstantFolder {
+    /** Known value of the variables at the current point of the program */
+    private Map<String, Integer> constants = new HashMap<>();
+    /** Number of operations replaced by their result */
+    private int foldedOperations;
+    /** Number of reads of a variable replaced by its value */
+    private int propagatedReads;
+
+    /**
+     * Folds the constants of a program
+     *
+     * @param program the abstract syntax tree of the program
+     * @return the abstract syntax tree of the folded program, sharing the nodes left unchanged
+     */
+    public Ast.Program fold(Ast.Program program) {
+        constants = new HashMap<>();
+        Ast.Instruction[] code = foldCode(program.code);
+        return code == program.code ? program : new Ast.Program(program.name, code);
+    }
+
+    /**
+     * Returns the number of operations replaced by their result, each of them one instruction less
+     *
+     * @return the number of folded operations
+     */
+    public int getFoldedOperations() {
+        return foldedOperations;
+    }
+
+    /**
+     * Returns the number of reads of a variable replaced by its value, each of them one load less when the variables
+     * are kept in memory
+     *
+     * @return the number of propagated reads
+     */
+    public int getPropagatedReads() {
+        return propagatedReads;
+    }
+
+    /**
+     * Folds the instructions of a block, in order
+     *
+     * @param code the instructions of the block
+     * @return the folded instructions, the same array if none changed
+     */
+    private Ast.Instruction[] foldCode(Ast.Instruction[] code) {
+        Ast.Instruction[] folded = code;
+        for (int i = 0; i < code.length; i++) {
+            Ast.Instruction instruction = foldInstruction(code[i]);
+            if (instruction != code[i]) {
+                if (folded == code) {
+                    folded = code.clone();
+                }
+                folded[i] = instruction;
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Folds an instruction, updating the known values of the variables
+     *
+     * @param instruction the instruction
+     * @return the folded instruction, the same one if unchanged
+     */
+    private Ast.Instruction foldInstruction(Ast.Instruction instruction) {
+        if (instruction instanceof Ast.Assign) {
+            Ast.Assign assign = (Ast.Assign) instruction;
+            Ast.Expression value = foldExpression(assign.value);
+            Integer constant = valueOf(value);
+            if (constant != null) {
+                constants.put(assign.variable, constant);
+            } else {
+                constants.remove(assign.variable);
+            }
+            return value == assign.value ? assign : new Ast.Assign(assign.variable, value);
+        } else if (instruction instanceof Ast.Input) {
+            constants.remove(((Ast.Input) instruction).variable);
+            return instruction;
+        } else if (instruction instanceof Ast.If) {
+            Ast.If statement = (Ast.If) instruction;
+            Ast.Condition condition = foldCondition(statement.condition);
+            Map<String, Integer> before = constants;
+            constants = new HashMap<>(before);
+            Ast.Instruction[] then = foldCode(statement.then);
+            Map<String, Integer> thenConstants = constants;
+            constants = new HashMap<>(before);
+            Ast.Instruction[] otherwise = foldCode(statement.otherwise);
+            // a value is known after the If only if both branches leave it
+            constants.entrySet().removeIf(entry -> !entry.getValue().equals(thenConstants.get(entry.getKey())));
+            if (condition == statement.condition && then == statement.then && otherwise == statement.otherwise) {
+                return statement;
+            }
+            return new Ast.If(condition, then, otherwise);
+        } else if (instruction instanceof Ast.While) {
+            Ast.While loop = (Ast.While) instruction;
+            // the condition and the body also run after the body, where the variables it assigns may differ
+            Set<String> assigned = new LinkedHashSet<>();
+            LLVMGenerator.collectAssigned(loop.body, assigned);
+            constants.keySet().removeAll(assigned);
+            Ast.Condition condition = foldCondition(loop.condition);
+            Map<String, Integer> before = constants;
+            constants = new HashMap<>(before);
+            Ast.Instruction[] body = foldCode(loop.body);
+            // the loop is left from its condition
+            constants = before;
+            if (condition == loop.condition && body == loop.body) {
+                return loop;
+            }
+            return new Ast.While(condition, body);
+        }
+        return instruction;
+    }
+
+    /**
+     * Folds the expressions of a condition
+     *
+     * @param condition the condition
+     * @return the folded condition, the same one if unchanged
+     */
+    private Ast.Condition foldCondition(Ast.Condition condition) {
+        if (condition instanceof Ast.Not) {
+            Ast.Condition inner = foldCondition(((Ast.Not) condition).condition);
+            return inner == ((Ast.Not) condition).condition ? condition : new Ast.Not(inner);
+        }
+        Ast.Compare comparison = (Ast.Compare) condition;
+        Ast.Expression left = foldExpression(comparison.left);
+        Ast.Expression right = foldExpression(comparison.right);
+        if (left == comparison.left && right == comparison.right) {
+            return comparison;
+        }
+        return new Ast.Compare(comparison.operator, left, right);
+    }
+
+    /**
+     * Folds an expression. The left operands of a chain of operations are nested, so they are followed in a loop,
+     * as the LLVMGenerator does.
+     *
+     * @param expression the expression
+     * @return the folded expression, the same one if unchanged
+     */
+    private Ast.Expression foldExpression(Ast.Expression expression) {
+        ArrayDeque<Ast.BinOp> chain = null;
+        while (expression instanceof Ast.BinOp) {
+            if (chain == null) {
+                chain = new ArrayDeque<>();
+            }
+            chain.push((Ast.BinOp) expression);
+            expression = ((Ast.BinOp) expression).left;
+        }
+
+        Ast.Expression left = expression;
+        if (expression instanceof Ast.VarRef) {
+            Integer constant = constants.get(((Ast.VarRef) expression).variable);
+            if (constant != null) {
+                propagatedReads++;
+                left = new Ast.Const(Integer.toString(constant));
+            }
+        }
+
+        while (chain != null && !chain.isEmpty()) {
+            Ast.BinOp operation = chain.pop();
+            Ast.Expression right = foldExpression(operation.right);
+            Integer leftValue = valueOf(left);
+            Integer rightValue = valueOf(right);
+            Integer result = leftValue == null || rightValue == null ? null : evaluate(operation.operator, leftValue, rightValue);
+            if (result != null) {
+                foldedOperations++;
+                left = new Ast.Const(Integer.toString(result));
+            } else if (left != operation.left || right != operation.right) {
+                left = new Ast.BinOp(operation.operator, left, right);
+            } else {
+                left = operation;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Returns the value of a constant expression
+     *
+     * @param expression the expression
+     * @return the value of the number, null if the expression is not a number or the number does not fit in an i32
+     */
+    private static Integer valueOf(Ast.Expression expression) {
+        if (!(expression instanceof Ast.Const)) {
+            return null;
+        }
+        String text = ((Ast.Const) expression).text;
+        // 11 characters hold any i32 with its sign, longer numbers only by their leading zeros
+        String digits = text.length() > 11 ? text.replaceFirst("^(-?)0+(?=\\d)", "$1") : text;
+        if (digits.length() > 11) {
+            return null;
+        }
+        long value = Long.parseLong(digits);
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? null : (int) value;
+    }
+
+    /**
+     * Evaluates an operation as LLVM does
+     *
+     * @param operator PLUS, MINUS, TIMES or DIVIDE
+     * @param left the left operand
+     * @param right the right operand
+     * @return the result, null if LLVM does not define it: on overflow, which makes add, sub and mul nsw poison,
+     *         and when sdiv divides by zero or overflows
+     */
+    private static Integer evaluate(LexicalUnit operator, int left, int right) {
+        long result;
+        switch (operator) {
+            case PLUS:
+                result = (long) left + right;
+                break;
+            case MINUS:
+                result = (long) left - right;
+                break;
+            case TIMES:
+                result = (long) left * right;
+                break;
+            case DIVIDE:
+                if (right == 0 || left == Integer.MIN_VALUE && right == -1) {
+                    return null;
+                }
+                result = left / right;
+                break;
+            default:
+                return null;
+        }
+        return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? null : (int) result;
+    }
+}
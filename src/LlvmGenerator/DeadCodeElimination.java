@@ -0,0 +1,98 @@
+package llvmGenerator;
+
+import java.util.List;
+
+/**
+ * Removes the instructions whose result is never used and which do nothing else, such as the loads of a variable
+ * assigned but never printed, or the phi nodes merging the values of a variable not read after an If or a While.
+ * The instructions writing memory, doing I/O or ending a block are live, as well as every instruction defining an
+ * operand of a live one; the others are removed, chains of dead instructions and dead phi nodes feeding each other
+ * in a loop included.
+ *
+ * @author Alex Bataille
+ */
+public class DeadCodeElimination implements PassManager.Pass {
+    /** Number of instructions removed so far */
+    private int removed;
+
+    @Override
+    public String getName() {
+        return "dead code elimination";
+    }
+
+    @Override
+    public boolean run(Cfg cfg) {
+        int count = cfg.getRegisterCount();
+        Cfg.Instruction[] definitions = new Cfg.Instruction[count + 1];
+        for (Cfg.Block block : cfg.getBlocks()) {
+            for (Cfg.Instruction instruction : block.instructions) {
+                if (instruction.result != Cfg.NO_RESULT) {
+                    definitions[instruction.result] = instruction;
+                }
+            }
+        }
+
+        // mark the registers used by the live instructions, following the operands from the impure ones
+        boolean[] live = new boolean[count + 1];
+        int[] worklist = new int[count];
+        int top = 0;
+        for (Cfg.Block block : cfg.getBlocks()) {
+            for (Cfg.Instruction instruction : block.instructions) {
+                if (!instruction.opcode.isPure()) {
+                    if (instruction.result != Cfg.NO_RESULT) {
+                        live[instruction.result] = true;
+                    }
+                    top = markOperands(instruction, live, worklist, top);
+                }
+            }
+        }
+        while (top > 0) {
+            top = markOperands(definitions[worklist[--top]], live, worklist, top);
+        }
+
+        int before = removed;
+        for (Cfg.Block block : cfg.getBlocks()) {
+            List<Cfg.Instruction> instructions = block.instructions;
+            int kept = 0;
+            for (Cfg.Instruction instruction : instructions) {
+                if (instruction.result == Cfg.NO_RESULT || live[instruction.result]) {
+                    instructions.set(kept++, instruction);
+                }
+            }
+            removed += instructions.size() - kept;
+            instructions.subList(kept, instructions.size()).clear();
+        }
+        return removed > before;
+    }
+
+    /**
+     * Returns the number of instructions removed by the runs of the pass
+     *
+     * @return the number of removed instructions
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Marks the registers used by a live instruction, pushing the ones not marked yet on the worklist
+     *
+     * @param instruction the live instruction
+     * @param live whether each register is live
+     * @param worklist the registers whose definitions are still to be marked
+     * @param top the number of registers on the worklist
+     * @return the new number of registers on the worklist
+     */
+    private static int markOperands(Cfg.Instruction instruction, boolean[] live, int[] worklist, int top) {
+        for (long operand : instruction.operands) {
+            if (Cfg.isRegister(operand)) {
+                int register = Cfg.registerOf(operand);
+                if (!live[register]) {
+                    live[register] = true;
+                    worklist[top++] = register;
+                }
+            }
+        }
+        return top;
+    }
+}
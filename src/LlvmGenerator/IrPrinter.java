@@ -0,0 +1,255 @@
+package llvmGenerator;
+
+/**
+ * Prints a control flow graph as LLVM textual IR, in the main function of a module declaring printf and scanf.
+ * The graph can be printed at once, or a part at a time while it is built: the header, then the allocas of the
+ * slots, then each block once it is complete, a long block being printed in parts while it is built, and finally
+ * the end of the function.
+ *
+ * @author Alex Bataille
+ */
+public class IrPrinter {
+    /** Declarations (global variables, function declarations) preceding the main function */
+    private static final String DECLARATIONS =
+            // Declare external functions for I/O
+            "; Declare external functions for I/O\n"
+            + "declare i32 @printf(i8*, ...)\n"
+            + "declare i32 @scanf(i8*, ...)\n"
+            + "\n"
+            // Format strings for printf and scanf
+            + "; Format strings\n"
+            + "@.str_int = private unnamed_addr constant [4 x i8] c\"%d\\0A\\00\", align 1\n"
+            + "@.str_read = private unnamed_addr constant [3 x i8] c\"%d\\00\", align 1\n"
+            + "\n";
+
+    /** Writer receiving the code */
+    private final IrWriter out;
+
+    /**
+     * Creates a printer writing to the given writer
+     *
+     * @param out the writer receiving the code
+     */
+    public IrPrinter(IrWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Prints a whole graph
+     *
+     * @param cfg the graph
+     */
+    public void print(Cfg cfg) {
+        printHeader();
+        printSlots(cfg);
+        for (Cfg.Block block : cfg.getBlocks()) {
+            printBlock(cfg, block);
+        }
+        printFooter();
+    }
+
+    /**
+     * Prints the declarations and opens the main function
+     */
+    public void printHeader() {
+        out.append(DECLARATIONS);
+        // Start main function, its entry block allocating every variable
+        out.append("define i32 @main() {\n");
+    }
+
+    /**
+     * Prints the allocas of the slots, which open the entry block
+     *
+     * @param cfg the graph
+     */
+    public void printSlots(Cfg cfg) {
+        for (String slot : cfg.getSlots()) {
+            out.append("  ").append(slot).append(" = alloca i32, align 4\n");
+        }
+    }
+
+    /**
+     * Prints a block, labeled unless it is the entry block
+     *
+     * @param cfg the graph holding the block
+     * @param block the block
+     */
+    public void printBlock(Cfg cfg, Cfg.Block block) {
+        printBlockLabel(block);
+        printInstructions(cfg, block);
+    }
+
+    /**
+     * Prints the label opening a block, nothing for the entry block
+     *
+     * @param block the block
+     */
+    public void printBlockLabel(Cfg.Block block) {
+        if (block.label != Cfg.ENTRY) {
+            printLabel(block.label).append(":\n");
+        }
+    }
+
+    /**
+     * Prints the instructions of a block, which may be printed a part at a time while the block is built
+     *
+     * @param cfg the graph holding the block
+     * @param block the block
+     */
+    public void printInstructions(Cfg cfg, Cfg.Block block) {
+        for (Cfg.Instruction instruction : block.instructions) {
+            printInstruction(cfg, instruction);
+        }
+    }
+
+    /**
+     * Closes the main function
+     */
+    public void printFooter() {
+        out.append("}\n");
+    }
+
+    /**
+     * Prints an instruction
+     *
+     * @param cfg the graph holding the instruction, naming its slot
+     * @param instruction the instruction
+     */
+    public void printInstruction(Cfg cfg, Cfg.Instruction instruction) {
+        long[] operands = instruction.operands;
+        out.append("  ");
+        if (instruction.result != Cfg.NO_RESULT) {
+            out.append('%').append(instruction.result).append(" = ");
+        }
+        switch (instruction.opcode) {
+            case ADD:
+            case SUB:
+            case MUL:
+            case SDIV:
+                out.append(arithmetic(instruction.opcode));
+                printValue(operands[0]).append(", ");
+                printValue(operands[1]).append('\n');
+                break;
+            case EQ:
+            case SLE:
+            case SLT:
+                out.append("icmp ").append(comparison(instruction.opcode)).append(" i32 ");
+                printValue(operands[0]).append(", ");
+                printValue(operands[1]).append('\n');
+                break;
+            case NOT:
+                out.append("xor i1 ");
+                printValue(operands[0]).append(", true\n");
+                break;
+            case LOAD:
+                out.append("load i32, i32* ").append(cfg.getSlots().get(instruction.slot)).append(", align 4\n");
+                break;
+            case STORE:
+                out.append("store i32 ");
+                printValue(operands[0]).append(", i32* ").append(cfg.getSlots().get(instruction.slot)).append(", align 4\n");
+                break;
+            case PRINT_FORMAT:
+                out.append("getelementptr inbounds [4 x i8], [4 x i8]* @.str_int, i32 0, i32 0\n");
+                break;
+            case READ_FORMAT:
+                out.append("getelementptr inbounds [3 x i8], [3 x i8]* @.str_read, i32 0, i32 0\n");
+                break;
+            case PRINT:
+                out.append("call i32 (i8*, ...) @printf(i8* ");
+                printValue(operands[0]).append(", i32 ");
+                printValue(operands[1]).append(")\n");
+                break;
+            case READ:
+                out.append("call i32 (i8*, ...) @scanf(i8* ");
+                printValue(operands[0]).append(", i32* ").append(cfg.getSlots().get(instruction.slot)).append(")\n");
+                break;
+            case PHI:
+                out.append("phi i32 ");
+                for (int i = 0; i < operands.length; i++) {
+                    out.append(i == 0 ? "[ " : ", [ ");
+                    printValue(operands[i]).append(", %");
+                    printLabel(instruction.blocks[i]).append(" ]");
+                }
+                out.append('\n');
+                break;
+            case BR:
+                out.append("br label %");
+                printLabel(instruction.blocks[0]).append('\n');
+                break;
+            case COND_BR:
+                out.append("br i1 ");
+                printValue(operands[0]).append(", label %");
+                printLabel(instruction.blocks[0]).append(", label %");
+                printLabel(instruction.blocks[1]).append('\n');
+                break;
+            case RET:
+                out.append("ret i32 ");
+                printValue(operands[0]).append('\n');
+                break;
+            default:
+                throw new IllegalStateException("Unknown instruction: " + instruction.opcode);
+        }
+    }
+
+    /**
+     * Prints a value, a register or a constant
+     *
+     * @param value the value
+     * @return the writer of the code
+     */
+    private IrWriter printValue(long value) {
+        if (Cfg.isRegister(value)) {
+            return out.append('%').append(Cfg.registerOf(value));
+        }
+        return out.append((int) value);
+    }
+
+    /**
+     * Prints the label of a block, as branches and phi nodes name it
+     *
+     * @param label the label, ENTRY for the entry block, which is numbered 0
+     * @return the writer of the code
+     */
+    private IrWriter printLabel(int label) {
+        if (label == Cfg.ENTRY) {
+            return out.append('0');
+        }
+        return out.append("label").append(label);
+    }
+
+    /**
+     * Returns the start of an arithmetic instruction, up to its operands
+     *
+     * @param opcode ADD, SUB, MUL or SDIV
+     * @return the name and the type of the instruction
+     */
+    private static String arithmetic(Cfg.Opcode opcode) {
+        switch (opcode) {
+            case ADD:
+                return "add nsw i32 ";
+            case SUB:
+                return "sub nsw i32 ";
+            case MUL:
+                return "mul nsw i32 ";
+            default:
+                return "sdiv i32 ";
+        }
+    }
+
+    /**
+     * Returns the condition of a comparison
+     *
+     * @param opcode EQ, SLE or SLT
+     * @return the condition of icmp
+     */
+    private static String comparison(Cfg.Opcode opcode) {
+        switch (opcode) {
+            case EQ:
+                return "eq";
+            case SLE:
+                return "sle";
+            default:
+                return "slt";
+        }
+    }
+}
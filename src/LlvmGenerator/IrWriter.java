@@ -0,0 +1,223 @@
+package llvmGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes LLVM IR code, which is plain ASCII, as bytes into a reusable buffer written to a channel whenever it is full,
+ * so that the code of a module is never held as a whole. Numbers are formatted straight into the buffer, without
+ * creating any String. The code can also be echoed to a second channel, such as the standard output.
+ * <br>
+ * A writer without channel keeps its code in a buffer growing as needed, to be copied into another writer or read
+ * as a String. The appends report the failures of the channel as UncheckedIOException, so that the generator does not
+ * declare them at every step, while {@link #flush()} reports them as IOException.
+ *
+ * @author Alex Bataille
+ */
+public class IrWriter {
+    /** Default size of the buffer of a writer to a channel, in bytes */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /** Smallest buffer, holding any number formatted at once */
+    private static final int MIN_CAPACITY = 32;
+    /** Initial size of the buffer of a writer without channel */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** Channel receiving the code, null if the code is kept in the buffer */
+    private final WritableByteChannel channel;
+    /** Channel receiving a copy of the code, or null */
+    private final WritableByteChannel echo;
+    /** Bytes of the code not written yet */
+    private byte[] bytes;
+    /** View of the bytes handed to the channels */
+    private ByteBuffer view;
+    /** Number of bytes of the buffer holding code */
+    private int position;
+    /** Number of bytes written to the channel so far */
+    private long written;
+
+    /**
+     * Creates a writer keeping its code in memory
+     */
+    public IrWriter() {
+        this(null, null, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a writer to a channel, with a buffer of the default size
+     *
+     * @param channel the channel receiving the code
+     */
+    public IrWriter(WritableByteChannel channel) {
+        this(channel, null, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a writer to a channel, echoing the code to another one
+     *
+     * @param channel the channel receiving the code, or null to keep the code in memory
+     * @param echo the channel receiving a copy of the code, or null
+     * @param capacity the size of the buffer in bytes, the initial one when the code is kept in memory
+     */
+    public IrWriter(WritableByteChannel channel, WritableByteChannel echo, int capacity) {
+        this.channel = channel;
+        this.echo = echo;
+        this.bytes = new byte[Math.max(capacity, MIN_CAPACITY)];
+        this.view = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Appends ASCII text
+     *
+     * @param text the text, whose characters are all ASCII
+     * @return this writer
+     */
+    public IrWriter append(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            reserve(1);
+            int end = Math.min(length, i + bytes.length - position);
+            while (i < end) {
+                bytes[position++] = (byte) text.charAt(i++);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends an ASCII character
+     *
+     * @param c the character
+     * @return this writer
+     */
+    public IrWriter append(char c) {
+        reserve(1);
+        bytes[position++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends an integer in decimal
+     *
+     * @param value the integer
+     * @return this writer
+     */
+    public IrWriter append(int value) {
+        // widened, so that the smallest int can be negated
+        long rest = value;
+        reserve(11);
+        if (rest < 0) {
+            bytes[position++] = '-';
+            rest = -rest;
+        }
+        int digits = 1;
+        for (long power = 10; power <= rest; power *= 10) {
+            digits++;
+        }
+        position += digits;
+        for (int i = position - 1; i >= position - digits; i--) {
+            bytes[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return this;
+    }
+
+    /**
+     * Appends the code kept by a writer without channel
+     *
+     * @param code the writer keeping the code
+     * @return this writer
+     */
+    public IrWriter append(IrWriter code) {
+        int i = 0;
+        while (i < code.position) {
+            reserve(1);
+            int length = Math.min(code.position - i, bytes.length - position);
+            System.arraycopy(code.bytes, i, bytes, position, length);
+            position += length;
+            i += length;
+        }
+        return this;
+    }
+
+    /**
+     * Forgets the code kept by the writer, to reuse its buffer
+     */
+    public void clear() {
+        position = 0;
+    }
+
+    /**
+     * Writes the code in the buffer to the channels, if any
+     *
+     * @throws IOException if a channel fails
+     */
+    public void flush() throws IOException {
+        if (channel != null && position > 0) {
+            drain(channel);
+            if (echo != null) {
+                drain(echo);
+            }
+            written += position;
+            position = 0;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of code appended, written to the channel or still in the buffer
+     *
+     * @return the size of the code in bytes
+     */
+    public long size() {
+        return written + position;
+    }
+
+    /**
+     * Returns the code still in the buffer, the whole code for a writer without channel
+     *
+     * @return the code
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, 0, position, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Makes room in the buffer, writing it to the channel or growing it when the code is kept in memory
+     *
+     * @param length the number of bytes needed, at most {@link #MIN_CAPACITY}
+     */
+    private void reserve(int length) {
+        if (position + length <= bytes.length) {
+            return;
+        }
+        if (channel == null) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + length));
+            view = ByteBuffer.wrap(bytes);
+            return;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the code in the buffer to a channel
+     *
+     * @param target the channel
+     * @throws IOException if the channel fails
+     */
+    private void drain(WritableByteChannel target) throws IOException {
+        view.clear();
+        view.limit(position);
+        while (view.hasRemaining()) {
+            target.write(view);
+        }
+    }
+}
@@ -1,98 +1,328 @@
 package llvmGenerator;
 
+import Parser.Ast;
+import Parser.Emitter;
+import Parser.ParseException;
+import Parser.Parser;
 import Parser.ParseTree;
 import LexicalAnalyzer.LexicalUnit;
+import LexicalAnalyzer.NonTermUnit;
 import LexicalAnalyzer.Symbol;
+import LexicalAnalyzer.TokenSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * LLVM IR code generator for yaLcc language
- * Traverses the parse tree and generates LLVM intermediate representation code
+ * Traverses the parse tree, or the abstract syntax tree, and generates LLVM intermediate representation code.
+ * It can also generate the code while the parser recognizes the program, without any tree
+ * <br>
+ * The program is lowered into a control flow graph, the {@link Cfg}, which the {@link IrPrinter} prints as LLVM code.
+ * Unless passes are run on the whole graph, each block is printed through an {@link IrWriter} as soon as it is
+ * complete and then dropped, and a long block is printed in parts while it is built. The variables are declared
+ * before the code is generated, from the tree or from the tokens of the program, so that their allocas open the
+ * entry block without the code being held back; only when the tokens are pulled from the scanner as they are parsed,
+ * and the variables are not known beforehand, is the graph kept until the last variable is met.
  * 
  * @author Mohamed Tajani and Alex Bataille
  */
 
 public class LLVMGenerator {
-    /** Symbol table mapping variable names to LLVM register numbers */
-    private Map<String, String> symbolTable;
-    
-    /** Counter for generating unique LLVM temporary registers */
-    //On tient le compte pour avoir un registre unique à chaque nouvelle declaration
-    private int registerCounter;
+    /** Symbol table mapping variable names to the indexes of their stack slots */
+    private Map<String, Integer> symbolTable;
     
     /** Counter for generating unique labels */
     // idem mais pour les labels
     private int labelCounter;
     
-    /** StringBuilder for accumulating the LLVM code */
-    private StringBuilder llvmCode;
+    /** Control flow graph receiving the code */
+    private Cfg cfg;
+    
+    /** Block of the graph receiving the code */
+    private Cfg.Block block;
+    
+    /** Printer of the blocks as soon as they are complete, null if the graph is kept whole */
+    private IrPrinter printer;
+    
+    /** Passes run on the whole graph before it is printed, or null */
+    private PassManager passes;
+    
+    /** Whether the variables are kept in registers, in SSA form, rather than in stack slots */
+    private boolean ssa;
+    
+    /** Index of each variable among the values, in SSA form */
+    private Map<String, Integer> variables;
+    
+    /** Register or constant holding the current value of each variable, in SSA form */
+    private long[] values;
+    
+    /** Stack slot receiving the numbers read in SSA form, -1 until it is allocated */
+    private int readSlot;
+    
+    /** Label of the block receiving the code, Cfg.ENTRY for the entry block, which is numbered but not labeled */
+    private int currentBlock;
+    
+    /** Folder run on the abstract syntax tree before generating its code, null if the constants are not folded */
+    private ConstantFolder folder;
+    
+    /** Number of While loops being generated in SSA form, whose blocks are printed once the phi nodes are added */
+    private int loopDepth;
+    
+    /** Block receiving the code whose label and first instructions are already printed, null if none */
+    private Cfg.Block drained;
+    
+    /** Number of instructions of the block receiving the code above which they are printed before it is complete */
+    private static final int DRAIN_THRESHOLD = 1024;
+    
+    /** Stack slot receiving the numbers read by scanf in SSA form, shared by all the variables */
+    private static final String READ_SLOT = "%.read";
     
-    /** StringBuilder for accumulating declarations (global variables, function declarations) */
-    private StringBuilder declarations;
+    /** Value of a variable read before it is assigned, in SSA form */
+    private static final long UNASSIGNED = 0;
+    
+    /** Operands of the instructions using none */
+    private static final long[] NO_OPERANDS = {};
+    
+    /** Blocks of the instructions jumping to none */
+    private static final int[] NO_BLOCKS = {};
     
     /**
      * Creates a new LLVM code generator
      */
     public LLVMGenerator() {
         this.symbolTable = new HashMap<>();
-        this.registerCounter = 1;
         this.labelCounter = 0;
-        this.llvmCode = new StringBuilder();
-        this.declarations = new StringBuilder();
-        initializeDeclarations();
+        this.variables = new HashMap<>();
+        this.readSlot = -1;
+        this.currentBlock = Cfg.ENTRY;
+    }
+
+    /**
+     * Sets whether the variables are kept in registers instead of stack slots, which is only supported when the
+     * code is generated from the abstract syntax tree. The value of a variable is then the register, or the
+     * constant, last assigned to it, and the values reaching the end of an If or the condition of a While by
+     * different paths are merged by phi nodes. Only a stack slot receiving the numbers read by Input remains.
+     * 
+     * @param ssa true to generate code in SSA form
+     */
+    public void setSsa(boolean ssa) {
+        this.ssa = ssa;
+    }
+
+    /**
+     * Sets whether the constants of the abstract syntax tree are folded and propagated before its code is generated,
+     * see {@link ConstantFolder}
+     * 
+     * @param folding true to fold the constants
+     */
+    public void setFolding(boolean folding) {
+        this.folder = folding ? new ConstantFolder() : null;
+    }
+
+    /**
+     * Sets the passes run on the control flow graph of the program before it is printed, the graph being then kept
+     * whole instead of being printed block by block
+     * 
+     * @param passes the passes, or null to run none
+     */
+    public void setPasses(PassManager passes) {
+        this.passes = passes;
+    }
+
+    /**
+     * Returns whether the code can only be generated from the abstract syntax tree, because the variables are kept
+     * in registers or the constants folded
+     * 
+     * @return true if only {@link #generate(Ast.Program)} is supported
+     */
+    public boolean needsAst() {
+        return ssa || folder != null;
+    }
+
+    /**
+     * Returns the number of instructions the folding of the constants saved, each folded operation being one
+     * instruction less, and each propagated read one load less unless the variables are kept in registers
+     * 
+     * @return the number of instructions removed, 0 if the constants are not folded
+     */
+    public int getRemovedInstructions() {
+        if (folder == null) {
+            return 0;
+        }
+        return folder.getFoldedOperations() + (ssa ? 0 : folder.getPropagatedReads());
+    }
+
+    /**
+     * Returns the number of operations the folding of the constants replaced by their result
+     * 
+     * @return the number of folded operations, 0 if the constants are not folded
+     */
+    public int getFoldedOperations() {
+        return folder == null ? 0 : folder.getFoldedOperations();
+    }
+
+    /**
+     * Returns the number of reads of a variable the folding of the constants replaced by its value, which remove a
+     * load only when the variables are kept in memory
+     * 
+     * @return the number of propagated reads, 0 if the constants are not folded
+     */
+    public int getPropagatedReads() {
+        return folder == null ? 0 : folder.getPropagatedReads();
     }
     
     /**
-     * Initializes the necessary LLVM declarations for I/O operations
+     * Generates a new unique temporary register
+     * 
+     * @return The value of a new register (e.g., %1, %2, etc.)
      */
-    private void initializeDeclarations() {
-        // Declare external functions for I/O
-        declarations.append("; Declare external functions for I/O\n");
-        declarations.append("declare i32 @printf(i8*, ...)\n");
-        declarations.append("declare i32 @scanf(i8*, ...)\n");
-        declarations.append("\n");
-        
-        // Format strings for printf and scanf
-        declarations.append("; Format strings\n");
-        declarations.append("@.str_int = private unnamed_addr constant [4 x i8] c\"%d\\0A\\00\", align 1\n");
-        declarations.append("@.str_read = private unnamed_addr constant [3 x i8] c\"%d\\00\", align 1\n");
-        declarations.append("\n");
+    private long newRegister() {
+        return Cfg.register(cfg.newRegister());
+    }
+    
+    /**
+     * Generates a new unique label
+     * 
+     * @return The number of a new label (e.g., label1, label2, etc.)
+     */
+    private int newLabel() {
+        return labelCounter++;
+    }
+    
+    /**
+     * Returns the value of a number. A number too large for an i32 is truncated to its lowest 32 bits, as LLVM does
+     * for the constants of an i32.
+     * 
+     * @param text The digits of the number, with a minus sign for the negative results of the constant folding
+     * @return The value of the constant
+     */
+    private static long constant(String text) {
+        boolean negative = text.charAt(0) == '-';
+        int value = 0;
+        for (int i = negative ? 1 : 0; i < text.length(); i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+    
+    /**
+     * Adds an instruction to the current block
+     * 
+     * @param opcode The operation
+     * @param result The register defined, Cfg.NO_RESULT if none
+     * @param operands The values used
+     * @param blocks The labels of the blocks jumped to, or of the predecessors of a phi
+     * @param slot The stack slot read or written, -1 if none
+     */
+    private void emit(Cfg.Opcode opcode, int result, long[] operands, int[] blocks, int slot) {
+        block.instructions.add(new Cfg.Instruction(opcode, result, operands, blocks, slot));
+        if (block.instructions.size() >= DRAIN_THRESHOLD && printer != null && loopDepth == 0) {
+            // a long run of code without branches is printed as it goes, so that it is not kept whole
+            if (drained != block) {
+                List<Cfg.Block> graph = cfg.getBlocks();
+                for (Cfg.Block complete : graph.subList(0, graph.size() - 1)) {
+                    printer.printBlock(cfg, complete);
+                }
+                graph.subList(0, graph.size() - 1).clear();
+                printer.printBlockLabel(block);
+                drained = block;
+            }
+            printer.printInstructions(cfg, block);
+            block.instructions.clear();
+        }
+    }
+    
+    /**
+     * Adds an instruction defining a new register to the current block
+     * 
+     * @param opcode The operation
+     * @param operands The values used
+     * @param slot The stack slot read, -1 if none
+     * @return The register containing the result
+     */
+    private long emitValue(Cfg.Opcode opcode, long[] operands, int slot) {
+        int resultReg = cfg.newRegister();
+        emit(opcode, resultReg, operands, NO_BLOCKS, slot);
+        return Cfg.register(resultReg);
+    }
+    
+    /**
+     * Starts a new block, which receives the code from then on. The blocks before it are complete, so they are
+     * printed unless the graph is kept whole or the phi nodes of a While are still missing.
+     * 
+     * @param label The label of the block
+     * @return The block
+     */
+    private Cfg.Block startBlock(int label) {
+        flush();
+        block = cfg.addBlock(label);
+        currentBlock = label;
+        return block;
     }
     
     /**
-     * Generates a new unique temporary register name
+     * Prints the blocks of the graph and drops them, if the graph is printed block by block
+     */
+    private void flush() {
+        if (printer == null || loopDepth > 0) {
+            return;
+        }
+        for (Cfg.Block complete : cfg.getBlocks()) {
+            if (complete == drained) {
+                printer.printInstructions(cfg, complete);
+            } else {
+                printer.printBlock(cfg, complete);
+            }
+        }
+        cfg.getBlocks().clear();
+        drained = null;
+    }
+    
+    /**
+     * Generates an unconditional branch
      * 
-     * @return A new register name (e.g., "%1", "%2", etc.)
+     * @param label The label to jump to
      */
-    private String newRegister() {
-        return "%" + (registerCounter++);
+    private void generateBranch(int label) {
+        emit(Cfg.Opcode.BR, Cfg.NO_RESULT, NO_OPERANDS, new int[] {label}, -1);
     }
     
     /**
-     * Generates a new unique label name
+     * Generates a conditional branch
      * 
-     * @return A new label name (e.g., "label1", "label2", etc.)
+     * @param condReg The register containing the condition
+     * @param trueLabel The label to jump to if condition is true
+     * @param falseLabel The label to jump to if condition is false
      */
-    private String newLabel() {
-        return "label" + (labelCounter++);
+    private void generateBranch(long condReg, int trueLabel, int falseLabel) {
+        emit(Cfg.Opcode.COND_BR, Cfg.NO_RESULT, new long[] {condReg}, new int[] {trueLabel, falseLabel}, -1);
     }
     
     /**
      * Gets or creates an LLVM register for a variable
+     * The space of the variable is allocated in the entry block, whatever the block where the variable is first met,
+     * so that a loop does not allocate it again at each iteration. As the allocas are moved before the code met
+     * earlier, their registers are named after the variables rather than numbered in order.
      * 
      * @param varName The variable name
-     * @return The LLVM register associated with this variable
+     * @return The stack slot associated with this variable
      */
-    private String getOrCreateVariable(String varName) {
-        if (!symbolTable.containsKey(varName)) {
-            String reg = newRegister();
-            symbolTable.put(varName, reg);
-            // Allocate space for the variable
-            llvmCode.append("  ").append(reg).append(" = alloca i32, align 4\n");
+    private int getOrCreateVariable(String varName) {
+        Integer slot = symbolTable.get(varName);
+        if (slot == null) {
+            // Allocate space for the variable, the dot keeping its register apart from the labels,
+            // which are valid variable names
+            slot = cfg.addSlot("%" + varName + ".addr");
+            symbolTable.put(varName, slot);
         }
-        return symbolTable.get(varName);
+        return slot;
     }
     
     /**
@@ -102,21 +332,351 @@ public class LLVMGenerator {
      * @return The complete LLVM IR code as a string
      */
     public String generate(ParseTree tree) {
-        StringBuilder result = new StringBuilder();
-        result.append(declarations);
-        
-        // Start main function
-        result.append("define i32 @main() {\n");
-        
+        IrWriter out = new IrWriter();
+        write(tree, out);
+        return out.toString();
+    }
+
+    /**
+     * Generates LLVM IR code from a parse tree, writing it as it is generated
+     * 
+     * @param tree The parse tree to generate code from
+     * @param out The writer receiving the code, flushed at the end
+     * @throws IOException if the code cannot be written
+     */
+    public void generate(ParseTree tree, IrWriter out) throws IOException {
+        try {
+            write(tree, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Generates LLVM IR code from an abstract syntax tree, the same as from the parse tree of the program unless the
+     * variables are kept in registers or the constants folded
+     * 
+     * @param program The abstract syntax tree to generate code from
+     * @return The complete LLVM IR code as a string
+     */
+    public String generate(Ast.Program program) {
+        IrWriter out = new IrWriter();
+        write(program, out);
+        return out.toString();
+    }
+
+    /**
+     * Generates LLVM IR code from an abstract syntax tree, writing it as it is generated
+     * 
+     * @param program The abstract syntax tree to generate code from
+     * @param out The writer receiving the code, flushed at the end
+     * @throws IOException if the code cannot be written
+     */
+    public void generate(Ast.Program program, IrWriter out) throws IOException {
+        try {
+            write(program, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Generates LLVM IR code while the parser recognizes the program, without building any tree.
+     * The code is the same as from the abstract syntax tree of the program.
+     * 
+     * @param parser The parser of the program, which has not parsed it yet
+     * @return The complete LLVM IR code as a string
+     * @throws ParseException if the program is not syntactically correct
+     */
+    public String generate(Parser parser) throws ParseException {
+        IrWriter out = new IrWriter();
+        write(parser, null, out);
+        return out.toString();
+    }
+
+    /**
+     * Generates LLVM IR code while the parser recognizes the program, without building any tree, writing it as it is
+     * generated. The variables are declared from the tokens first, so that their allocas open the entry block; if the
+     * tokens are pulled from the scanner as they are parsed, the control flow graph of the main function is kept in
+     * memory instead, until the last variable is met.
+     * 
+     * @param parser The parser of the program, which has not parsed it yet
+     * @param out The writer receiving the code, flushed at the end
+     * @throws ParseException if the program is not syntactically correct
+     * @throws IOException if the code cannot be written
+     */
+    public void generate(Parser parser, IrWriter out) throws ParseException, IOException {
+        generate(parser, null, out);
+    }
+
+    /**
+     * Generates LLVM IR code while the parser recognizes the program, without building any tree, writing it as it is
+     * generated. The variables are declared first from the given names, which lets the code be streamed even when
+     * the tokens are pulled from the scanner as they are parsed.
+     * 
+     * @param parser The parser of the program, which has not parsed it yet
+     * @param variables The variables of the program in the order of their first occurrence, as found by
+     *                  ByteLexer.scanVariables(), or null to declare them from the tokens
+     * @param out The writer receiving the code, flushed at the end
+     * @throws ParseException if the program is not syntactically correct
+     * @throws IOException if the code cannot be written
+     */
+    public void generate(Parser parser, List<String> variables, IrWriter out) throws ParseException, IOException {
+        try {
+            write(parser, variables, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Lowers an abstract syntax tree into a control flow graph, without printing it
+     * 
+     * @param program The abstract syntax tree
+     * @return The control flow graph of the program, on which no pass was run
+     */
+    public Cfg lower(Ast.Program program) {
+        if (folder != null) {
+            program = folder.fold(program);
+        }
+        begin(null);
+        declareVariables(program.code);
+        if (ssa) {
+            values = new long[variables.size()];
+        }
+        open();
+        generateCode(program.code);
+        emit(Cfg.Opcode.RET, Cfg.NO_RESULT, new long[] {0}, NO_BLOCKS, -1);
+        return cfg;
+    }
+
+    /**
+     * Writes the code of a parse tree, its variables being declared first
+     * 
+     * @param tree The parse tree
+     * @param out The writer receiving the code
+     */
+    private void write(ParseTree tree, IrWriter out) {
+        if (needsAst()) {
+            throw new IllegalStateException("SSA form and folding are only supported from the abstract syntax tree");
+        }
+        begin(out);
+        declareVariables(tree);
+        open();
         // Generate code for the program
         generateProgram(tree);
-        
+        end(out);
+    }
+
+    /**
+     * Writes the code of an abstract syntax tree, its variables being declared first
+     * 
+     * @param program The abstract syntax tree
+     * @param out The writer receiving the code
+     */
+    private void write(Ast.Program program, IrWriter out) {
+        if (folder != null) {
+            program = folder.fold(program);
+        }
+        begin(out);
+        declareVariables(program.code);
+        if (ssa) {
+            values = new long[variables.size()];
+        }
+        open();
+        generateCode(program.code);
+        end(out);
+    }
+
+    /**
+     * Writes the code of a program while the parser recognizes it, its variables being declared first from the
+     * given names or from its tokens. Without names, tokens which cannot be gone through beforehand leave the
+     * variables to be allocated as they are met, so the graph is then printed once the program is parsed.
+     * 
+     * @param parser The parser of the program
+     * @param variables The variables of the program, or null
+     * @param out The writer receiving the code
+     * @throws ParseException if the program is not syntactically correct
+     */
+    private void write(Parser parser, List<String> variables, IrWriter out) throws ParseException {
+        if (needsAst()) {
+            throw new IllegalStateException("SSA form and folding are only supported from the abstract syntax tree");
+        }
+        TokenSource tokens = parser.getTokens();
+        if (variables != null) {
+            begin(out);
+            for (String name : variables) {
+                declareVariable(name);
+            }
+        } else if (tokens.isRandomAccess()) {
+            begin(out);
+            declareVariables(tokens);
+        } else {
+            begin(null);
+        }
+        open();
+        parser.startParsing(new Emission());
+        end(out);
+    }
+
+    /**
+     * Starts a new graph, printed block by block to the given writer unless passes are run on it
+     * 
+     * @param out The writer receiving the code, or null to keep the graph whole
+     */
+    private void begin(IrWriter out) {
+        cfg = new Cfg();
+        drained = null;
+        printer = out != null && passes == null ? new IrPrinter(out) : null;
+        readSlot = -1;
+    }
+
+    /**
+     * Opens the main function once the variables are declared, its entry block allocating every variable and then
+     * receiving the code
+     */
+    private void open() {
+        if (printer != null) {
+            printer.printHeader();
+            printer.printSlots(cfg);
+        }
+        block = cfg.addBlock(Cfg.ENTRY);
+        currentBlock = Cfg.ENTRY;
+    }
+
+    /**
+     * Returns from the main function and prints what is left of the graph, the whole graph once the passes are run
+     * if it was kept
+     * 
+     * @param out The writer receiving the code
+     */
+    private void end(IrWriter out) {
         // Add return statement
-        llvmCode.append("  ret i32 0\n");
-        result.append(llvmCode);
-        result.append("}\n");
-        
-        return result.toString();
+        emit(Cfg.Opcode.RET, Cfg.NO_RESULT, new long[] {0}, NO_BLOCKS, -1);
+        if (printer != null) {
+            flush();
+            printer.printFooter();
+            return;
+        }
+        if (passes != null) {
+            passes.run(cfg);
+        }
+        new IrPrinter(out).print(cfg);
+    }
+
+    /**
+     * Declares a variable before the code is generated, in the order the code first meets the variables
+     * 
+     * @param varName The variable name
+     */
+    private void declareVariable(String varName) {
+        if (!ssa) {
+            getOrCreateVariable(varName);
+        } else if (!variables.containsKey(varName)) {
+            variables.put(varName, variables.size());
+        }
+    }
+
+    /**
+     * Declares the variables of a program from its tokens, in the order the parser meets them
+     * 
+     * @param tokens The tokens of the program
+     */
+    private void declareVariables(TokenSource tokens) {
+        for (int i = 0; tokens.hasToken(i); i++) {
+            if (tokens.getType(i) == LexicalUnit.VARNAME) {
+                declareVariable(tokens.getValue(i));
+            }
+        }
+    }
+
+    /**
+     * Declares the variables of a parse tree, which are its VarName leaves
+     * 
+     * @param tree The parse tree
+     */
+    private void declareVariables(ParseTree tree) {
+        ArrayDeque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(tree);
+        while (!stack.isEmpty()) {
+            ParseTree node = stack.pop();
+            List<ParseTree> children = node.getChildren();
+            if (children != null && !children.isEmpty()) {
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            } else if (node.getLabel().getType() == LexicalUnit.VARNAME) {
+                declareVariable(node.getLabel().getValue());
+            }
+        }
+    }
+
+    /**
+     * Declares the variables of a block of the abstract syntax tree, allocating the slot of the numbers read in SSA
+     * form if the block reads any
+     * 
+     * @param code The instructions of the block
+     */
+    private void declareVariables(Ast.Instruction[] code) {
+        for (Ast.Instruction instruction : code) {
+            if (instruction instanceof Ast.Assign) {
+                declareVariable(((Ast.Assign) instruction).variable);
+                declareVariables(((Ast.Assign) instruction).value);
+            } else if (instruction instanceof Ast.If) {
+                declareVariables(((Ast.If) instruction).condition);
+                declareVariables(((Ast.If) instruction).then);
+                declareVariables(((Ast.If) instruction).otherwise);
+            } else if (instruction instanceof Ast.While) {
+                declareVariables(((Ast.While) instruction).condition);
+                declareVariables(((Ast.While) instruction).body);
+            } else if (instruction instanceof Ast.Print) {
+                declareVariable(((Ast.Print) instruction).variable);
+            } else if (instruction instanceof Ast.Input) {
+                declareVariable(((Ast.Input) instruction).variable);
+                if (ssa && readSlot < 0) {
+                    // the slot is the only alloca in SSA form
+                    readSlot = cfg.addSlot(READ_SLOT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Declares the variables of a condition of the abstract syntax tree
+     * 
+     * @param condition The condition
+     */
+    private void declareVariables(Ast.Condition condition) {
+        while (condition instanceof Ast.Not) {
+            condition = ((Ast.Not) condition).condition;
+        }
+        declareVariables(((Ast.Compare) condition).left);
+        declareVariables(((Ast.Compare) condition).right);
+    }
+
+    /**
+     * Declares the variables of an expression of the abstract syntax tree, in the order of generateExpression
+     * 
+     * @param expression The expression
+     */
+    private void declareVariables(Ast.Expression expression) {
+        ArrayDeque<Ast.BinOp> chain = null;
+        while (expression instanceof Ast.BinOp) {
+            if (chain == null) {
+                chain = new ArrayDeque<>();
+            }
+            chain.push((Ast.BinOp) expression);
+            expression = ((Ast.BinOp) expression).left;
+        }
+        if (expression instanceof Ast.VarRef) {
+            declareVariable(((Ast.VarRef) expression).variable);
+        }
+        while (chain != null && !chain.isEmpty()) {
+            declareVariables(chain.pop().right);
+        }
     }
     
     /**
@@ -143,23 +703,29 @@ public class LLVMGenerator {
     /**
      * Generates code for the Code non-terminal
      * Code -> Instruction ; Code | epsilon
+     * The Code nodes are followed in a loop, and a node may also hold all its instructions at once
+     * when the parser flattened them (see Parser#setExactTree)
      * 
      * @param tree The parse tree node for Code
      */
     private void generateCode(ParseTree tree) {
-        List<ParseTree> children = tree.getChildren();
-        if (children == null || children.isEmpty()) {
-            // Epsilon production
-            return;
-        }
-        
-        // children[0] = Instruction
-        // children[1] = semicolon
-        // children[2] = Code (recursive)
-        
-        generateInstruction(children.get(0));
-        if (children.size() > 2) {
-            generateCode(children.get(2));
+        while (tree != null) {
+            List<ParseTree> children = tree.getChildren();
+            tree = null;
+            if (children == null) {
+                return;
+            }
+
+            // children[2k] = Instruction
+            // children[2k+1] = semicolon
+            // children[last] = Code (recursive), if the count is odd
+
+            for (int i = 0; i + 1 < children.size(); i += 2) {
+                generateInstruction(children.get(i));
+            }
+            if (children.size() % 2 == 1) {
+                tree = children.get(children.size() - 1);
+            }
         }
     }
     
@@ -177,17 +743,17 @@ public class LLVMGenerator {
         ParseTree instruction = children.get(0);
         Symbol symbol = instruction.getLabel();
         
-        String symbolStr = symbol.getValue();
+        NonTermUnit unit = symbol.getNonTermType();
         
-        if (symbolStr.contains("Assign")) {
+        if (unit == NonTermUnit.Assign) {
             generateAssign(instruction);
-        } else if (symbolStr.contains("If")) {
+        } else if (unit == NonTermUnit.If) {
             generateIf(instruction);
-        } else if (symbolStr.contains("While")) {
+        } else if (unit == NonTermUnit.While) {
             generateWhile(instruction);
-        } else if (symbolStr.contains("Output")) {
+        } else if (unit == NonTermUnit.Output) {
             generateOutput(instruction);
-        } else if (symbolStr.contains("Input")) {
+        } else if (unit == NonTermUnit.Input) {
             generateInput(instruction);
         }
     }
@@ -209,12 +775,12 @@ public class LLVMGenerator {
         // children[2] = ExprArith
         
         String varName = children.get(0).getLabel().getValue();
-        String varReg = getOrCreateVariable(varName);
+        int varSlot = getOrCreateVariable(varName);
         
-        String exprReg = generateExprArith(children.get(2));
+        long exprReg = generateExprArith(children.get(2));
         
         // Store the result in the variable
-        llvmCode.append("  store i32 ").append(exprReg).append(", i32* ").append(varReg).append(", align 4\n");
+        generateStore(exprReg, varSlot);
     }
     
     /**
@@ -224,7 +790,7 @@ public class LLVMGenerator {
      * @param tree The parse tree node for ExprArith
      * @return The LLVM register containing the result
      */
-    private String generateExprArith(ParseTree tree) {
+    private long generateExprArith(ParseTree tree) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.size() < 2) {
             throw new RuntimeException("Invalid ExprArith structure");
@@ -233,44 +799,43 @@ public class LLVMGenerator {
         // children[0] = Prod
         // children[1] = ExprArith'
         
-        String prodReg = generateProd(children.get(0));
+        long prodReg = generateProd(children.get(0));
         return generateExprArithPrime(children.get(1), prodReg);
     }
     
     /**
      * Generates code for ExprArith' (handles + and - operations)
      * ExprArith' -> + Prod ExprArith' | - Prod ExprArith' | epsilon
+     * The chain is folded from the left in a loop, whether it is nested or flattened in a single node
      * 
      * @param tree The parse tree node for ExprArith'
      * @param leftReg The register containing the left operand
      * @return The LLVM register containing the result
      */
-    private String generateExprArithPrime(ParseTree tree, String leftReg) {
-        List<ParseTree> children = tree.getChildren();
-        if (children == null || children.isEmpty()) {
-            // Epsilon production
-            return leftReg;
-        }
-        
-        // children[0] = operator (+ or -)
-        // children[1] = Prod
-        // children[2] = ExprArith' (recursive)
-        
-        String operator = children.get(0).getLabel().getType().toString();
-        String rightReg = generateProd(children.get(1));
-        
-        String resultReg = newRegister();
-        if (operator.equals("PLUS")) {
-            llvmCode.append("  ").append(resultReg).append(" = add nsw i32 ").append(leftReg).append(", ").append(rightReg).append("\n");
-        } else if (operator.equals("MINUS")) {
-            llvmCode.append("  ").append(resultReg).append(" = sub nsw i32 ").append(leftReg).append(", ").append(rightReg).append("\n");
-        }
-        
-        // Continue with the rest of ExprArith'
-        if (children.size() > 2) {
-            return generateExprArithPrime(children.get(2), resultReg);
+    private long generateExprArithPrime(ParseTree tree, long leftReg) {
+        while (tree != null) {
+            List<ParseTree> children = tree.getChildren();
+            tree = null;
+            if (children == null) {
+                break;
+            }
+
+            // children[2k] = operator (+ or -)
+            // children[2k+1] = Prod
+            // children[last] = ExprArith' (recursive), if the count is odd
+
+            for (int i = 0; i + 1 < children.size(); i += 2) {
+                LexicalUnit operator = children.get(i).getLabel().getType();
+                long rightReg = generateProd(children.get(i + 1));
+                leftReg = generateOperation(operator, leftReg, rightReg);
+            }
+
+            // Continue with the rest of ExprArith'
+            if (children.size() % 2 == 1) {
+                tree = children.get(children.size() - 1);
+            }
         }
-        return resultReg;
+        return leftReg;
     }
     
     /**
@@ -280,7 +845,7 @@ public class LLVMGenerator {
      * @param tree The parse tree node for Prod
      * @return The LLVM register containing the result
      */
-    private String generateProd(ParseTree tree) {
+    private long generateProd(ParseTree tree) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.size() < 2) {
             throw new RuntimeException("Invalid Prod structure");
@@ -289,7 +854,7 @@ public class LLVMGenerator {
         // children[0] = Atom
         // children[1] = Prod'
         
-        String atomReg = generateAtom(children.get(0));
+        long atomReg = generateAtom(children.get(0));
         return generateProdPrime(children.get(1), atomReg);
     }
     
@@ -301,7 +866,7 @@ public class LLVMGenerator {
      * @param leftReg The register containing the left operand
      * @return The LLVM register containing the result
      */
-    private String generateProdPrime(ParseTree tree, String leftReg) {
+    private long generateProdPrime(ParseTree tree, long leftReg) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.isEmpty()) {
             // Epsilon production
@@ -312,18 +877,40 @@ public class LLVMGenerator {
         // children[1] = Atom
         // children may have [2] = Prod' (recursive) if continuing
         
-        String operator = children.get(0).getLabel().getType().toString();
-        String rightReg = generateAtom(children.get(1));
-        
-        String resultReg = newRegister();
-        if (operator.equals("TIMES")) {
-            llvmCode.append("  ").append(resultReg).append(" = mul nsw i32 ").append(leftReg).append(", ").append(rightReg).append("\n");
-        } else if (operator.equals("DIVIDE")) {
-            llvmCode.append("  ").append(resultReg).append(" = sdiv i32 ").append(leftReg).append(", ").append(rightReg).append("\n");
-        }
+        LexicalUnit operator = children.get(0).getLabel().getType();
+        long rightReg = generateAtom(children.get(1));
         
         // Note: Prod' after * or / becomes epsilon in our grammar, so we return here
-        return resultReg;
+        return generateOperation(operator, leftReg, rightReg);
+    }
+
+    /**
+     * Generates an arithmetic operation on two operands
+     * 
+     * @param operator PLUS, MINUS, TIMES or DIVIDE
+     * @param leftReg The register or constant of the left operand
+     * @param rightReg The register or constant of the right operand
+     * @return The LLVM register containing the result
+     */
+    private long generateOperation(LexicalUnit operator, long leftReg, long rightReg) {
+        Cfg.Opcode opcode;
+        switch (operator) {
+            case PLUS:
+                opcode = Cfg.Opcode.ADD;
+                break;
+            case MINUS:
+                opcode = Cfg.Opcode.SUB;
+                break;
+            case TIMES:
+                opcode = Cfg.Opcode.MUL;
+                break;
+            case DIVIDE:
+                opcode = Cfg.Opcode.SDIV;
+                break;
+            default:
+                throw new RuntimeException("Unknown arithmetic operator: " + operator);
+        }
+        return emitValue(opcode, new long[] {leftReg, rightReg}, -1);
     }
     
     /**
@@ -333,7 +920,7 @@ public class LLVMGenerator {
      * @param tree The parse tree node for Atom
      * @return The LLVM register containing the result
      */
-    private String generateAtom(ParseTree tree) {
+    private long generateAtom(ParseTree tree) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.isEmpty()) {
             throw new RuntimeException("Invalid Atom structure");
@@ -345,19 +932,14 @@ public class LLVMGenerator {
         if (type == LexicalUnit.VARNAME) {
             // Load variable value
             String varName = firstChild.getLabel().getValue();
-            String varReg = getOrCreateVariable(varName);
-            String resultReg = newRegister();
-            llvmCode.append("  ").append(resultReg).append(" = load i32, i32* ").append(varReg).append(", align 4\n");
-            return resultReg;
+            return generateLoad(getOrCreateVariable(varName));
         } else if (type == LexicalUnit.NUMBER) {
             // Return the constant value
-            return firstChild.getLabel().getValue();
+            return constant(firstChild.getLabel().getValue());
         } else if (type == LexicalUnit.MINUS) {
             // Unary minus: 0 - Atom
-            String atomReg = generateAtom(children.get(1));
-            String resultReg = newRegister();
-            llvmCode.append("  ").append(resultReg).append(" = sub nsw i32 0, ").append(atomReg).append("\n");
-            return resultReg;
+            long atomReg = generateAtom(children.get(1));
+            return generateOperation(LexicalUnit.MINUS, 0, atomReg);
         } else if (type == LexicalUnit.LPAREN) {
             // Parenthesized expression
             return generateExprArith(children.get(1));
@@ -387,30 +969,30 @@ public class LLVMGenerator {
         // children[5] = Code (then branch)
         // children[6] = C (End or Else Code End)
         
-        String thenLabel = newLabel();
-        String elseLabel = newLabel();
-        String endLabel = newLabel();
+        int thenLabel = newLabel();
+        int elseLabel = newLabel();
+        int endLabel = newLabel();
         
         // Generate condition code
-        String condReg = generateCond(children.get(2), thenLabel, elseLabel);
+        generateCond(children.get(2), thenLabel, elseLabel);
         
         // Then branch
-        llvmCode.append(thenLabel).append(":\n");
+        startBlock(thenLabel);
         generateCode(children.get(5));
-        llvmCode.append("  br label %").append(endLabel).append("\n");
+        generateBranch(endLabel);
         
         // Else branch (if present)
-        llvmCode.append(elseLabel).append(":\n");
+        startBlock(elseLabel);
         ParseTree cNode = children.get(6);
         List<ParseTree> cChildren = cNode.getChildren();
         if (cChildren != null && !cChildren.isEmpty() && cChildren.get(0).getLabel().getType() == LexicalUnit.ELSE) {
             // Has else branch: children[1] = Code
             generateCode(cChildren.get(1));
         }
-        llvmCode.append("  br label %").append(endLabel).append("\n");
+        generateBranch(endLabel);
         
         // End label
-        llvmCode.append(endLabel).append(":\n");
+        startBlock(endLabel);
     }
     
     /**
@@ -433,24 +1015,24 @@ public class LLVMGenerator {
         // children[5] = Code (loop body)
         // children[6] = End keyword
         
-        String condLabel = newLabel();
-        String bodyLabel = newLabel();
-        String endLabel = newLabel();
+        int condLabel = newLabel();
+        int bodyLabel = newLabel();
+        int endLabel = newLabel();
         
         // Jump to condition
-        llvmCode.append("  br label %").append(condLabel).append("\n");
+        generateBranch(condLabel);
         
         // Condition label
-        llvmCode.append(condLabel).append(":\n");
-        String condReg = generateCond(children.get(2), bodyLabel, endLabel);
+        startBlock(condLabel);
+        generateCond(children.get(2), bodyLabel, endLabel);
         
         // Body label
-        llvmCode.append(bodyLabel).append(":\n");
+        startBlock(bodyLabel);
         generateCode(children.get(5));
-        llvmCode.append("  br label %").append(condLabel).append("\n");
+        generateBranch(condLabel);
         
         // End label
-        llvmCode.append(endLabel).append(":\n");
+        startBlock(endLabel);
     }
     
     /**
@@ -462,17 +1044,17 @@ public class LLVMGenerator {
      * @param falseLabel The label to jump to if condition is false
      * @return The register containing the boolean result
      */
-    private String generateCond(ParseTree tree, String trueLabel, String falseLabel) {
+    private long generateCond(ParseTree tree, int trueLabel, int falseLabel) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.isEmpty()) {
             throw new RuntimeException("Invalid Cond structure");
         }
         
         // Cond -> CondA
-        String condReg = generateCondA(children.get(0));
+        long condReg = generateCondA(children.get(0));
         
         // Branch based on condition
-        llvmCode.append("  br i1 ").append(condReg).append(", label %").append(trueLabel).append(", label %").append(falseLabel).append("\n");
+        generateBranch(condReg, trueLabel, falseLabel);
         
         return condReg;
     }
@@ -484,7 +1066,7 @@ public class LLVMGenerator {
      * @param tree The parse tree node for CondA
      * @return The register containing the boolean result
      */
-    private String generateCondA(ParseTree tree) {
+    private long generateCondA(ParseTree tree) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.isEmpty()) {
             throw new RuntimeException("Invalid CondA structure");
@@ -494,24 +1076,15 @@ public class LLVMGenerator {
         
         // Check if it's a negation (| Cond |)
         if (firstChild.getLabel().getType() == LexicalUnit.PIPE) {
-            // This is negation - but wait, the grammar shows this differently
-            // Let me check: CondA -> | Cond |
-            // Actually in our grammar: CondA -> Cond PIPE | ExprArith D
-            // Let me re-examine...
-        }
-        
-        // Check the symbol to determine which production
-        String symbolStr = firstChild.getLabel().getValue();
-        if (symbolStr.contains("Cond")) {
-            // CondA -> Cond |
-            String innerCondReg = generateCondHelper(children.get(0));
+            // children[0] = |
+            // children[1] = Cond
+            // children[2] = |
+            long innerCondReg = generateCondHelper(children.get(1));
             // Negate the condition
-            String resultReg = newRegister();
-            llvmCode.append("  ").append(resultReg).append(" = xor i1 ").append(innerCondReg).append(", true\n");
-            return resultReg;
+            return generateNot(innerCondReg);
         } else {
             // CondA -> ExprArith D
-            String leftReg = generateExprArith(children.get(0));
+            long leftReg = generateExprArith(children.get(0));
             return generateD(children.get(1), leftReg);
         }
     }
@@ -522,7 +1095,7 @@ public class LLVMGenerator {
      * @param tree The parse tree node
      * @return The register containing the boolean result
      */
-    private String generateCondHelper(ParseTree tree) {
+    private long generateCondHelper(ParseTree tree) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.isEmpty()) {
             throw new RuntimeException("Invalid condition structure");
@@ -539,7 +1112,7 @@ public class LLVMGenerator {
      * @param leftReg The register containing the left operand
      * @return The register containing the boolean result
      */
-    private String generateD(ParseTree tree, String leftReg) {
+    private long generateD(ParseTree tree, long leftReg) {
         List<ParseTree> children = tree.getChildren();
         if (children == null || children.size() < 2) {
             throw new RuntimeException("Invalid D structure");
@@ -549,30 +1122,68 @@ public class LLVMGenerator {
         // children[1] = ExprArith
         
         LexicalUnit operator = children.get(0).getLabel().getType();
-        String rightReg = generateExprArith(children.get(1));
-        
-        String resultReg = newRegister();
-        String comparison = "";
+        long rightReg = generateExprArith(children.get(1));
+        return generateComparison(operator, leftReg, rightReg);
+    }
+
+    /**
+     * Generates a comparison of two operands
+     * 
+     * @param operator EQUAL, SMALEQ or SMALLER
+     * @param leftReg The register or constant of the left operand
+     * @param rightReg The register or constant of the right operand
+     * @return The register containing the boolean result
+     */
+    private long generateComparison(LexicalUnit operator, long leftReg, long rightReg) {
+        Cfg.Opcode comparison;
         
         switch (operator) {
             case EQUAL:
-                comparison = "eq";
+                comparison = Cfg.Opcode.EQ;
                 break;
             case SMALEQ:
-                comparison = "sle";
+                comparison = Cfg.Opcode.SLE;
                 break;
             case SMALLER:
-                comparison = "slt";
+                comparison = Cfg.Opcode.SLT;
                 break;
             default:
                 throw new RuntimeException("Unknown comparison operator: " + operator);
         }
         
-        llvmCode.append("  ").append(resultReg).append(" = icmp ").append(comparison).append(" i32 ").append(leftReg).append(", ").append(rightReg).append("\n");
-        
-        return resultReg;
+        return emitValue(comparison, new long[] {leftReg, rightReg}, -1);
     }
     
+    /**
+     * Generates the negation of a condition
+     * 
+     * @param condReg The register containing the condition
+     * @return The register containing the negated condition
+     */
+    private long generateNot(long condReg) {
+        return emitValue(Cfg.Opcode.NOT, new long[] {condReg}, -1);
+    }
+
+    /**
+     * Generates the loading of the value of a variable from its stack slot
+     * 
+     * @param varSlot The stack slot of the variable
+     * @return The register containing the value
+     */
+    private long generateLoad(int varSlot) {
+        return emitValue(Cfg.Opcode.LOAD, NO_OPERANDS, varSlot);
+    }
+
+    /**
+     * Generates the storing of a value into the stack slot of a variable
+     * 
+     * @param valueReg The register or constant of the value
+     * @param varSlot The stack slot of the variable
+     */
+    private void generateStore(long valueReg, int varSlot) {
+        emit(Cfg.Opcode.STORE, Cfg.NO_RESULT, new long[] {valueReg}, NO_BLOCKS, varSlot);
+    }
+
     /**
      * Generates code for Print statement
      * Output -> Print ( [VarName] )
@@ -590,18 +1201,21 @@ public class LLVMGenerator {
         // children[2] = VarName
         // children[3] = )
         
-        String varName = children.get(2).getLabel().getValue();
-        String varReg = getOrCreateVariable(varName);
-        
+        generatePrint(children.get(2).getLabel().getValue());
+    }
+
+    /**
+     * Generates the printing of a variable
+     * 
+     * @param varName The variable name
+     */
+    private void generatePrint(String varName) {
         // Load the variable value
-        String valueReg = newRegister();
-        llvmCode.append("  ").append(valueReg).append(" = load i32, i32* ").append(varReg).append(", align 4\n");
+        long valueReg = readVariable(varName);
         
         // Call printf
-        String formatReg = newRegister();
-        String secReg = newRegister();
-        llvmCode.append("  ").append(formatReg).append(" = getelementptr inbounds [4 x i8], [4 x i8]* @.str_int, i32 0, i32 0\n");
-        llvmCode.append("  ").append(secReg).append(" = call i32 (i8*, ...) @printf(i8* ").append(formatReg).append(", i32 ").append(valueReg).append(")\n");
+        long formatReg = emitValue(Cfg.Opcode.PRINT_FORMAT, NO_OPERANDS, -1);
+        emitValue(Cfg.Opcode.PRINT, new long[] {formatReg, valueReg}, -1);
     }
     
     /**
@@ -621,13 +1235,406 @@ public class LLVMGenerator {
         // children[2] = VarName
         // children[3] = )
         
-        String varName = children.get(2).getLabel().getValue();
-        String varReg = getOrCreateVariable(varName);
+        generateRead(children.get(2).getLabel().getValue());
+    }
+
+    /**
+     * Generates the reading of a variable
+     * 
+     * @param varName The variable name
+     */
+    private void generateRead(String varName) {
+        // the slot is allocated with the variables in SSA form
+        int varSlot = ssa ? readSlot : getOrCreateVariable(varName);
         
         // Call scanf
-        String formatReg = newRegister();
-        String secReg = newRegister();
-        llvmCode.append("  ").append(formatReg).append(" = getelementptr inbounds [3 x i8], [3 x i8]* @.str_read, i32 0, i32 0\n");
-        llvmCode.append("  ").append(secReg).append(" = call i32 (i8*, ...) @scanf(i8* ").append(formatReg).append(", i32* ").append(varReg).append(")\n");
+        long formatReg = emitValue(Cfg.Opcode.READ_FORMAT, NO_OPERANDS, -1);
+        emitValue(Cfg.Opcode.READ, new long[] {formatReg}, varSlot);
+        if (ssa) {
+            values[variables.get(varName)] = generateLoad(readSlot);
+        }
+    }
+
+    /**
+     * Generates the reading of the value of a variable in an expression
+     * 
+     * @param varName The variable name
+     * @return The LLVM register, or the constant in SSA form, containing the value
+     */
+    private long readVariable(String varName) {
+        if (ssa) {
+            return values[variables.get(varName)];
+        }
+        return generateLoad(getOrCreateVariable(varName));
+    }
+
+    /**
+     * Generates code for the instructions of a block of the abstract syntax tree
+     * 
+     * @param code The instructions of the block
+     */
+    private void generateCode(Ast.Instruction[] code) {
+        for (Ast.Instruction instruction : code) {
+            if (instruction instanceof Ast.Assign) {
+                generateAssign((Ast.Assign) instruction);
+            } else if (instruction instanceof Ast.If) {
+                generateIf((Ast.If) instruction);
+            } else if (instruction instanceof Ast.While) {
+                generateWhile((Ast.While) instruction);
+            } else if (instruction instanceof Ast.Print) {
+                generatePrint(((Ast.Print) instruction).variable);
+            } else if (instruction instanceof Ast.Input) {
+                generateRead(((Ast.Input) instruction).variable);
+            }
+        }
+    }
+
+    /**
+     * Generates code for an assignment of the abstract syntax tree
+     * 
+     * @param assign The assignment
+     */
+    private void generateAssign(Ast.Assign assign) {
+        if (ssa) {
+            values[variables.get(assign.variable)] = generateExpression(assign.value);
+            return;
+        }
+        int varSlot = getOrCreateVariable(assign.variable);
+        long exprReg = generateExpression(assign.value);
+        generateStore(exprReg, varSlot);
+    }
+
+    /**
+     * Generates code for an expression of the abstract syntax tree
+     * The left operands of a chain of operations are nested, so they are followed in a loop
+     * 
+     * @param expression The expression
+     * @return The LLVM register, or the constant, containing the result
+     */
+    private long generateExpression(Ast.Expression expression) {
+        ArrayDeque<Ast.BinOp> chain = null;
+        while (expression instanceof Ast.BinOp) {
+            if (chain == null) {
+                chain = new ArrayDeque<>();
+            }
+            chain.push((Ast.BinOp) expression);
+            expression = ((Ast.BinOp) expression).left;
+        }
+
+        long leftReg;
+        if (expression instanceof Ast.Const) {
+            leftReg = constant(((Ast.Const) expression).text);
+        } else {
+            leftReg = readVariable(((Ast.VarRef) expression).variable);
+        }
+
+        while (chain != null && !chain.isEmpty()) {
+            Ast.BinOp operation = chain.pop();
+            long rightReg = generateExpression(operation.right);
+            leftReg = generateOperation(operation.operator, leftReg, rightReg);
+        }
+        return leftReg;
+    }
+
+    /**
+     * Generates code for an If statement of the abstract syntax tree
+     * 
+     * @param statement The If statement
+     */
+    private void generateIf(Ast.If statement) {
+        int thenLabel = newLabel();
+        int elseLabel = newLabel();
+        int endLabel = newLabel();
+
+        generateCond(statement.condition, thenLabel, elseLabel);
+        long[] before = values;
+
+        startBlock(thenLabel);
+        if (ssa) {
+            values = before.clone();
+        }
+        generateCode(statement.then);
+        generateBranch(endLabel);
+        int thenEnd = currentBlock;
+        long[] thenValues = values;
+
+        // the values before the If are not needed any more, the else branch updates them
+        startBlock(elseLabel);
+        values = before;
+        generateCode(statement.otherwise);
+        generateBranch(endLabel);
+        int elseEnd = currentBlock;
+
+        startBlock(endLabel);
+        if (ssa) {
+            // merge the values left different by the branches, a variable assigned in a single branch included
+            for (int i = 0; i < values.length; i++) {
+                if (thenValues[i] != values[i]) {
+                    values[i] = generatePhi(thenValues[i], thenEnd, values[i], elseEnd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates a phi node merging the values of a variable coming from two blocks
+     * 
+     * @param first The value coming from the first block
+     * @param firstBlock The label of the first block
+     * @param second The value coming from the second block
+     * @param secondBlock The label of the second block
+     * @return The register containing the merged value
+     */
+    private long generatePhi(long first, int firstBlock, long second, int secondBlock) {
+        int phiReg = cfg.newRegister();
+        emit(Cfg.Opcode.PHI, phiReg, new long[] {first, second}, new int[] {firstBlock, secondBlock}, -1);
+        return Cfg.register(phiReg);
+    }
+
+    /**
+     * Generates code for a While loop of the abstract syntax tree
+     * 
+     * @param loop The While loop
+     */
+    private void generateWhile(Ast.While loop) {
+        int condLabel = newLabel();
+        int bodyLabel = newLabel();
+        int endLabel = newLabel();
+
+        generateBranch(condLabel);
+        if (ssa) {
+            generateSsaWhile(loop, condLabel, bodyLabel, endLabel);
+            return;
+        }
+
+        startBlock(condLabel);
+        generateCond(loop.condition, bodyLabel, endLabel);
+
+        startBlock(bodyLabel);
+        generateCode(loop.body);
+        generateBranch(condLabel);
+
+        startBlock(endLabel);
+    }
+
+    /**
+     * Generates code for a While loop of the abstract syntax tree in SSA form, once the branch to its condition is
+     * generated. Each variable assigned in the loop gets a phi node at the start of the condition, merging its value
+     * before the loop with its value at the end of the body. The registers of the phi nodes come before the ones of
+     * the condition, but the values from the body are only known once it is generated, so the phi nodes are inserted
+     * at the start of the condition block afterwards, the blocks of the loop being printed only then.
+     * 
+     * @param loop The While loop
+     * @param condLabel The label of the condition
+     * @param bodyLabel The label of the body
+     * @param endLabel The label following the loop
+     */
+    private void generateSsaWhile(Ast.While loop, int condLabel, int bodyLabel, int endLabel) {
+        int entryBlock = currentBlock;
+        Set<String> assigned = new LinkedHashSet<>();
+        collectAssigned(loop.body, assigned);
+        int[] indexes = new int[assigned.size()];
+        long[] initialValues = new long[assigned.size()];
+        int i = 0;
+        for (String variable : assigned) {
+            indexes[i] = variables.get(variable);
+            initialValues[i] = values[indexes[i]];
+            values[indexes[i++]] = newRegister();
+        }
+
+        Cfg.Block condition = startBlock(condLabel);
+        loopDepth++;
+        generateCond(loop.condition, bodyLabel, endLabel);
+        long[] conditionValues = values;
+
+        startBlock(bodyLabel);
+        values = conditionValues.clone();
+        generateCode(loop.body);
+        generateBranch(condLabel);
+        loopDepth--;
+
+        for (i = 0; i < indexes.length; i++) {
+            long[] incoming = {initialValues[i], values[indexes[i]]};
+            condition.instructions.add(i, new Cfg.Instruction(Cfg.Opcode.PHI, Cfg.registerOf(conditionValues[indexes[i]]),
+                    incoming, new int[] {entryBlock, currentBlock}, -1));
+        }
+        // the loop is left from its condition
+        values = conditionValues;
+
+        startBlock(endLabel);
+    }
+
+    /**
+     * Collects the variables assigned or read by Input in a block of the abstract syntax tree, nested blocks included
+     * 
+     * @param code The instructions of the block
+     * @param assigned Receives the variables, in the order they are first met
+     */
+    static void collectAssigned(Ast.Instruction[] code, Set<String> assigned) {
+        for (Ast.Instruction instruction : code) {
+            if (instruction instanceof Ast.Assign) {
+                assigned.add(((Ast.Assign) instruction).variable);
+            } else if (instruction instanceof Ast.Input) {
+                assigned.add(((Ast.Input) instruction).variable);
+            } else if (instruction instanceof Ast.If) {
+                collectAssigned(((Ast.If) instruction).then, assigned);
+                collectAssigned(((Ast.If) instruction).otherwise, assigned);
+            } else if (instruction instanceof Ast.While) {
+                collectAssigned(((Ast.While) instruction).body, assigned);
+            }
+        }
+    }
+
+    /**
+     * Generates code for a condition of the abstract syntax tree and branching
+     * 
+     * @param condition The condition
+     * @param trueLabel The label to jump to if condition is true
+     * @param falseLabel The label to jump to if condition is false
+     */
+    private void generateCond(Ast.Condition condition, int trueLabel, int falseLabel) {
+        generateBranch(generateCondition(condition), trueLabel, falseLabel);
+    }
+
+    /**
+     * Generates code for a condition of the abstract syntax tree
+     * 
+     * @param condition The condition
+     * @return The register containing the boolean result
+     */
+    private long generateCondition(Ast.Condition condition) {
+        if (condition instanceof Ast.Not) {
+            return generateNot(generateCondition(((Ast.Not) condition).condition));
+        }
+        Ast.Compare comparison = (Ast.Compare) condition;
+        long leftReg = generateExpression(comparison.left);
+        long rightReg = generateExpression(comparison.right);
+        return generateComparison(comparison.operator, leftReg, rightReg);
+    }
+
+    /**
+     * Emitter generating the code of the productions as the parser recognizes them, values being the registers
+     * or constants holding them. The labels of the If and While still open are kept on a stack, three per block.
+     */
+    private final class Emission implements Emitter<Long> {
+        /** Labels of the open blocks, the ones of the innermost block on top */
+        private int[] labels = new int[48];
+        /** Number of labels on the stack */
+        private int top;
+
+        /**
+         * Pushes a label on the stack
+         * 
+         * @param label The label
+         */
+        private void push(int label) {
+            if (top == labels.length) {
+                labels = Arrays.copyOf(labels, top * 2);
+            }
+            labels[top++] = label;
+        }
+
+        @Override
+        public void beginAssign(String variable) {
+            getOrCreateVariable(variable);
+        }
+
+        @Override
+        public void endAssign(String variable, Long value) {
+            generateStore(value, getOrCreateVariable(variable));
+        }
+
+        @Override
+        public void beginIf() {
+            // end, else and then labels, then on top
+            int thenLabel = newLabel();
+            int elseLabel = newLabel();
+            push(newLabel());
+            push(elseLabel);
+            push(thenLabel);
+        }
+
+        @Override
+        public void thenBranch(Long condition) {
+            int thenLabel = labels[--top];
+            generateBranch(condition, thenLabel, labels[top - 1]);
+            startBlock(thenLabel);
+        }
+
+        @Override
+        public void elseBranch() {
+            int elseLabel = labels[--top];
+            generateBranch(labels[top - 1]);
+            startBlock(elseLabel);
+        }
+
+        @Override
+        public void endIf() {
+            int endLabel = labels[--top];
+            generateBranch(endLabel);
+            startBlock(endLabel);
+        }
+
+        @Override
+        public void beginWhile() {
+            // end, condition and body labels, body on top
+            int condLabel = newLabel();
+            int bodyLabel = newLabel();
+            push(newLabel());
+            push(condLabel);
+            push(bodyLabel);
+            generateBranch(condLabel);
+            startBlock(condLabel);
+        }
+
+        @Override
+        public void loopBody(Long condition) {
+            int bodyLabel = labels[--top];
+            generateBranch(condition, bodyLabel, labels[top - 2]);
+            startBlock(bodyLabel);
+        }
+
+        @Override
+        public void endWhile() {
+            int condLabel = labels[--top];
+            int endLabel = labels[--top];
+            generateBranch(condLabel);
+            startBlock(endLabel);
+        }
+
+        @Override
+        public void print(String variable) {
+            generatePrint(variable);
+        }
+
+        @Override
+        public void input(String variable) {
+            generateRead(variable);
+        }
+
+        @Override
+        public Long number(String text) {
+            return constant(text);
+        }
+
+        @Override
+        public Long variable(String variable) {
+            return generateLoad(getOrCreateVariable(variable));
+        }
+
+        @Override
+        public Long operation(LexicalUnit operator, Long left, Long right) {
+            return generateOperation(operator, left, right);
+        }
+
+        @Override
+        public Long comparison(LexicalUnit operator, Long left, Long right) {
+            return generateComparison(operator, left, right);
+        }
+
+        @Override
+        public Long not(Long condition) {
+            return generateNot(condition);
+        }
     }
 }
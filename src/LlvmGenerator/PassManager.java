@@ -0,0 +1,121 @@
+package llvmGenerator;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs passes over the control flow graph of a program, in the order they were added, timing each of them.
+ * The graph can be checked by the {@link CfgVerifier} before the first pass and after each pass changing it, so that
+ * a pass breaking the graph is named rather than the printed code being rejected by LLVM.
+ *
+ * @author Alex Bataille
+ */
+public class PassManager {
+    /**
+     * A transformation of the control flow graph
+     */
+    public interface Pass {
+        /**
+         * Returns the name of the pass, as the timings show it
+         *
+         * @return the name of the pass
+         */
+        String getName();
+
+        /**
+         * Runs the pass over a graph
+         *
+         * @param cfg the graph, modified in place
+         * @return whether the graph changed
+         */
+        boolean run(Cfg cfg);
+    }
+
+    /** Passes, in the order they are run */
+    private final List<Pass> passes = new ArrayList<>();
+    /** Time spent in each pass so far, in nanoseconds */
+    private final List<Long> times = new ArrayList<>();
+    /** Whether the graph is verified around the passes */
+    private boolean verifying;
+    /** Time spent verifying so far, in nanoseconds */
+    private long verifyTime;
+
+    /**
+     * Adds a pass after the others
+     *
+     * @param pass the pass
+     * @return this manager
+     */
+    public PassManager add(Pass pass) {
+        passes.add(pass);
+        times.add(0L);
+        return this;
+    }
+
+    /**
+     * Sets whether the graph is verified before the first pass and after each pass changing it
+     *
+     * @param verifying true to verify the graph
+     */
+    public void setVerifying(boolean verifying) {
+        this.verifying = verifying;
+    }
+
+    /**
+     * Runs the passes over a graph, numbering its registers again after each pass changing it
+     *
+     * @param cfg the graph, modified in place
+     * @throws IllegalStateException if the graph is not valid before a pass or after it, when it is verified
+     */
+    public void run(Cfg cfg) {
+        verify(cfg, "before the passes");
+        for (int i = 0; i < passes.size(); i++) {
+            Pass pass = passes.get(i);
+            long start = System.nanoTime();
+            boolean changed = pass.run(cfg);
+            if (changed) {
+                cfg.renumber();
+            }
+            times.set(i, times.get(i) + System.nanoTime() - start);
+            if (changed) {
+                verify(cfg, "after " + pass.getName());
+            }
+        }
+    }
+
+    /**
+     * Prints the time spent in each pass, and verifying the graph if it was
+     *
+     * @param out the stream receiving the timings
+     */
+    public void printTimings(PrintStream out) {
+        for (int i = 0; i < passes.size(); i++) {
+            out.printf("%-24s %8.3f ms%n", passes.get(i).getName(), times.get(i) / 1e6);
+        }
+        if (verifying) {
+            out.printf("%-24s %8.3f ms%n", "verification", verifyTime / 1e6);
+        }
+    }
+
+    /**
+     * Verifies a graph if the passes are verified
+     *
+     * @param cfg the graph
+     * @param when when the graph is verified, for the message of the failure
+     * @throws IllegalStateException if the graph is not valid
+     */
+    private void verify(Cfg cfg, String when) {
+        if (!verifying) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            CfgVerifier.verify(cfg);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Invalid control flow graph " + when + ": " + e.getMessage(), e);
+        } finally {
+            verifyTime += System.nanoTime() - start;
+        }
+    }
+}
@@ -1,17 +1,42 @@
+import LexicalAnalyzer.ByteLexer;
 import LexicalAnalyzer.LexicalAnalyzer;
+import LexicalAnalyzer.TokenFile;
+import LexicalAnalyzer.TokenSequence;
+import LexicalAnalyzer.TokenSource;
+import LexicalAnalyzer.TokenStream;
+import Parser.ParseException;
 import Parser.Parser;
 import Parser.ParseTree;
+import llvmGenerator.DeadCodeElimination;
+import llvmGenerator.IrWriter;
 import llvmGenerator.LLVMGenerator;
-import java.util.List;
-import java.util.Arrays;
+import llvmGenerator.PassManager;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 /**
  * Entry point for the compiler pipeline: runs the lexical analyzer, parser, and LLVM code generator.
  * This class orchestrates three main steps:
- * - Invokes LexicalAnalyzer to process the source program and writes its output
- * - Creates a Parser, parses the program, and optionally exports the parse tree to LaTeX if the -wt flag is provided
- * - Generates LLVM IR code from the parse tree and writes it to output file
+ * - Invokes LexicalAnalyzer on the source program, keeping its tokens in memory and optionally dumping them to a
+ *   text file (-lex) or to a binary token file (-tokens). With -stream, the parser pulls the tokens from the
+ *   scanner as it needs them instead. With -bytes, the hand-written ByteLexer scans the memory-mapped file
+ *   instead of the JFlex scanner, scanning parts of the file on several threads with -j
+ * - Creates a Parser on those tokens, parses the program, and optionally exports the parse tree to LaTeX if the -wt flag is provided,
+ *   leaving the nodes out past the number given with -wtmax.
+ *   With -table, the program is parsed by the table-driven LL(1) engine instead of recursive descent, and with -j the
+ *   large blocks of the program are parsed on that many threads. With -onepass, the code is generated while parsing,
+ *   without any tree, the variables being found by a first quick scan of the file with -stream, and with -check the syntax of the program is only checked
+ * - Generates LLVM IR code from the parse tree and writes it to output file as it is generated, also echoing it to the
+ *   standard output unless -quiet is given, keeping the variables in registers in SSA form with -ssa, folding the
+ *   constants of the program first with -fold, and removing the dead code from its control flow graph with -O
+ * With -batch, the remaining arguments are handed to {@link Batch}, which compiles many programs in parallel.
  * Any exceptions during compilation are caught and reported to System.err.
  *
  * @author Alex Bataille and Mohamed Tajani
@@ -21,71 +46,316 @@ public class Main {
     /**
      * Main entry point for the compiler pipeline
      *
-     * @param args command-line arguments: [-wt latex_file] source_file
+     * @param args command-line arguments: [-wt latex_file [-wtmax nodes]] [-lex lexer_output_file] [-tokens token_file] [-stream | -bytes] [-j threads] [-table | -onepass | -check] [-ssa] [-fold] [-O] [-quiet] source_file,
+     *             or -batch followed by the arguments of {@link Batch#main}
      * @throws FileNotFoundException if the lexical analyzer output file cannot be created
      */
     public static void main(String[] args) throws FileNotFoundException {
-        PrintStream console = System.out;
-        PrintStream lex_out = null;
-        String defaultLexFile = "test/output/LexicalAnalyzerOutput.txt";
-        String usedLexFile = defaultLexFile;
-        try {
-            lex_out = new PrintStream(new java.io.FileOutputStream(new java.io.File(defaultLexFile)));
-        } catch (java.io.FileNotFoundException e) {
-            // Fallback: use a timestamped alternative file and warn the user
-            usedLexFile = "test/output/LexicalAnalyzerOutput_" + System.currentTimeMillis() + ".txt";
-            System.err.println("Warning: could not open '" + defaultLexFile + "' (locked). Using '" + usedLexFile + "' instead.");
-            try {
-                lex_out = new PrintStream(new java.io.FileOutputStream(new java.io.File(usedLexFile)));
-            } catch (java.io.FileNotFoundException ex) {
-                System.err.println("Fatal: cannot write lexical output file; exiting.");
-                ex.printStackTrace();
-                return;
+        if (args.length > 0 && args[0].equals("-batch")) {
+            Batch.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        String latexFile = null;
+        int latexNodes = Integer.MAX_VALUE;
+        String lexFile = null;
+        String tokenFile = null;
+        boolean stream = false;
+        boolean bytes = false;
+        boolean table = false;
+        boolean onePass = false;
+        boolean check = false;
+        boolean ssa = false;
+        boolean fold = false;
+        boolean optimize = false;
+        boolean quiet = false;
+        int threads = 1;
+        int i = 0;
+        while (i < args.length - 1) {
+            if (args[i].equals("-wt")) {
+                latexFile = args[++i];
+            } else if (args[i].equals("-wtmax")) {
+                latexNodes = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-lex")) {
+                lexFile = args[++i];
+            } else if (args[i].equals("-tokens")) {
+                tokenFile = args[++i];
+            } else if (args[i].equals("-stream")) {
+                stream = true;
+            } else if (args[i].equals("-bytes")) {
+                bytes = true;
+            } else if (args[i].equals("-j")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-table")) {
+                table = true;
+            } else if (args[i].equals("-onepass")) {
+                onePass = true;
+            } else if (args[i].equals("-check")) {
+                check = true;
+            } else if (args[i].equals("-ssa")) {
+                ssa = true;
+            } else if (args[i].equals("-fold")) {
+                fold = true;
+            } else if (args[i].equals("-O")) {
+                optimize = true;
+            } else if (args[i].equals("-quiet")) {
+                quiet = true;
+            } else {
+                System.err.println("Unknown option: " + args[i]);
             }
+            i++;
+        }
+        if (i != args.length - 1) {
+            System.err.println("Usage: java -jar part3.jar [-wt latex_file [-wtmax nodes]] [-lex lexer_output_file] [-tokens token_file] [-stream | -bytes] [-j threads] [-table | -onepass | -check] [-ssa] [-fold] [-O] [-quiet] source_file");
+            return;
         }
+        if ((onePass || check) && (latexFile != null || table)) {
+            System.err.println("-onepass and -check build no tree, they cannot be used with -wt or -table");
+            return;
+        }
+        if ((ssa || fold) && (latexFile != null || table || onePass)) {
+            System.err.println("-ssa and -fold work on the abstract syntax tree, they cannot be used with -wt, -table or -onepass");
+            return;
+        }
+        String inputFile = args[args.length - 1];
 
-        System.setOut(lex_out);
+        // Run the scanner, keeping the tokens in memory or pulling them while parsing
+        PrintStream lex_out = null;
         try {
-            LexicalAnalyzer.main(Arrays.copyOfRange(args, args.length-1, args.length));
+            if (lexFile != null) {
+                lex_out = new PrintStream(new FileOutputStream(lexFile));
+            }
+            if (bytes) {
+                ByteLexer scanner = ByteLexer.open(inputFile);
+                scanner.setDump(lex_out);
+                TokenSequence tokens = threads > 1 ? scanner.scan(threads) : scanner.scan();
+                compile(tokens, inputFile, latexFile, latexNodes, table, threads, onePass, check, ssa, fold, optimize, quiet, null);
+                if (tokenFile != null) {
+                    TokenFile.write(tokens, tokenFile);
+                }
+            } else {
+                try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "UTF-8"))) {
+                    LexicalAnalyzer scanner = new LexicalAnalyzer(reader);
+                    scanner.setDump(lex_out);
+                    TokenSource tokens;
+                    if (stream) {
+                        tokens = new TokenStream(scanner);
+                        // the dumps need every token, so they are still recorded
+                        scanner.setKeepTokens(lexFile != null || tokenFile != null);
+                    } else {
+                        tokens = scanner.scan();
+                    }
+                    // the tokens pulled from the scanner are parsed on one thread
+                    // pulled tokens cannot be gone through first, so a quick scan finds the variables of the one-pass code
+                    List<String> variables = stream && onePass ? ByteLexer.open(inputFile).scanVariables() : null;
+                    compile(tokens, inputFile, latexFile, latexNodes, table, stream ? 1 : threads, onePass, check, ssa, fold, optimize, quiet, variables);
+                    if (tokenFile != null) {
+                        TokenFile.write(scanner.getTokenSequence(), tokenFile);
+                    }
+                }
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            System.err.println("File not found : \"" + inputFile + "\"");
+        } catch (IOException e) {
+            System.err.println("IO error scanning file \"" + inputFile + "\"");
+            System.err.println(e);
         } finally {
-            System.setOut(console);
             if (lex_out != null) lex_out.close();
         }
+    }
+
+    /**
+     * Parses the tokens of a program and writes the corresponding LLVM IR code to test/output, or only checks its syntax
+     *
+     * @param tokens the tokens of the program
+     * @param inputFile the path of the source file, naming the output file
+     * @param latexFile the path of the LaTeX file receiving the parse tree, or null
+     * @param latexNodes the number of parse tree nodes written to the LaTeX file
+     * @param table true to parse with the table-driven engine
+     * @param threads the number of threads parsing the program
+     * @param onePass true to generate the code while parsing, without any tree
+     * @param check true to check the syntax only, writing nothing
+     * @param ssa true to keep the variables in registers, see {@link LLVMGenerator#setSsa(boolean)}
+     * @param fold true to fold the constants before generating the code, reporting the instructions removed, the
+     *             operations folded and the reads propagated
+     * @param optimize true to run the passes over the control flow graph, verifying it and reporting their timings
+     * @param quiet true to only write the code to its file, without echoing it to the standard output
+     * @param variables the variables of the program for the one-pass code, or null to find them in the tokens
+     */
+    private static void compile(TokenSource tokens, String inputFile, String latexFile, int latexNodes, boolean table, int threads,
+                                boolean onePass, boolean check, boolean ssa, boolean fold, boolean optimize, boolean quiet,
+                                List<String> variables) {
+        // Determine output filename based on input filename
+        String baseName = new java.io.File(inputFile).getName().replace(".ycc", "");
+        Path outputFile = Paths.get("test/output/" + baseName + ".ll");
+        FileChannel channel = null;
+        boolean success = false;
         // Start the parsing
         try {
-            // Creates the parser
-            Parser parser = new Parser();
-            parser.startParsing();
-            
-            // Optionally export parse tree to LaTeX
-            if (args.length == 3 && args[0].equals("-wt")) {
-                parser.buildTree(args[1]);
+            if (check) {
+                new Parser(tokens).validate();
+                return;
             }
-            
-            // Generate LLVM IR code
-            ParseTree parseTree = parser.getParseTree();
             LLVMGenerator llvmGen = new LLVMGenerator();
-            String llvmCode = llvmGen.generate(parseTree);
-            
-            // Determine output filename based on input filename
-            String inputFile = args[args.length - 1];
-            String baseName = new java.io.File(inputFile).getName().replace(".ycc", "");
-            String outputFile = "test/output/" + baseName + ".ll";
+            llvmGen.setSsa(ssa);
+            llvmGen.setFolding(fold);
+            PassManager passes = null;
+            DeadCodeElimination deadCode = new DeadCodeElimination();
+            if (optimize) {
+                passes = new PassManager().add(deadCode);
+                passes.setVerifying(true);
+                llvmGen.setPasses(passes);
+            }
             
-            // Write LLVM IR code to file
-            try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
-                writer.print(llvmCode);
-                System.out.println(llvmCode);
-                //System.out.println("LLVM IR code generated successfully: " + outputFile);
+            // Write LLVM IR code to file as it is generated
+            try {
+                channel = FileChannel.open(outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                           StandardOpenOption.TRUNCATE_EXISTING);
             } catch (IOException e) {
-                System.err.println("Error writing LLVM output file: " + e.getMessage());
+                System.err.println("Error writing LLVM output file: " + e);
+                return;
+            }
+            IrWriter out = new IrWriter(channel, quiet ? null : Channels.newChannel(System.out), IrWriter.DEFAULT_CAPACITY);
+            if (onePass) {
+                llvmGen.generate(new Parser(tokens), variables, out);
+            } else {
+                generate(tokens, latexFile, latexNodes, table, threads, llvmGen, out);
+            }
+            channel.close();
+            success = true;
+            if (!quiet) {
+                System.out.println();
+            }
+            //System.out.println("LLVM IR code generated successfully: " + outputFile);
+            if (fold) {
+                // under -ssa the propagated reads remove no load, the variables being in registers already
+                System.err.println("Constant folding removed " + llvmGen.getRemovedInstructions() + " instructions: "
+                                   + llvmGen.getFoldedOperations() + " operations folded, "
+                                   + llvmGen.getPropagatedReads() + " variable reads propagated"
+                                   + (ssa ? " (no load removed in SSA form)" : ""));
+            }
+            if (optimize) {
+                System.err.println("Dead code elimination removed " + deadCode.getRemoved() + " instructions");
+                passes.printTimings(System.err);
             }
             
         } catch (Exception e) {
             System.err.println("Error during compilation:");
             System.err.println(e.toString());
+            if (e instanceof ParseException) {
+                System.err.print(excerpt(inputFile, (ParseException) e));
+            }
             e.printStackTrace();
+        } finally {
+            if (channel != null && !success) {
+                // no partial code is left behind, even when an Error ends the compilation
+                try {
+                    channel.close();
+                    Files.deleteIfExists(outputFile);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Reads again the source line of a syntax error, the tokens keeping no text of their line, and marks the column
+     * of the offending token under it
+     *
+     * @param inputFile the path of the source file
+     * @param e the syntax error
+     * @return the line and the mark, each followed by a line separator, or an empty string if the error has no line
+     *         or the file cannot be read any more
+     */
+    static String excerpt(String inputFile, ParseException e) {
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "UTF-8"))) {
+            return excerpt(reader, e);
+        } catch (IOException ignored) {
+            return "";
+        }
+    }
+
+    /**
+     * Reads the source line of a syntax error from the text of the program and marks the column of the offending
+     * token under it
+     *
+     * @param reader the text of the program, read up to the line of the error
+     * @param e the syntax error
+     * @return the line and the mark, each followed by a line separator, or an empty string if the error has no line
+     * @throws IOException if the text cannot be read
+     */
+    static String excerpt(Reader reader, ParseException e) throws IOException {
+        int skipped = e.getLine() - 2; // lines are numbered from 2, as Symbol does
+        if (skipped < 0) {
+            return "";
+        }
+        StringBuilder line = new StringBuilder();
+        boolean afterCR = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (afterCR && c == '\n') {
+                afterCR = false;
+                continue;
+            }
+            afterCR = c == '\r';
+            boolean end = c == '\n' || c == '\r' || c == '\u000B' || c == '\f' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+            if (skipped > 0) {
+                if (end) skipped--;
+            } else if (end) {
+                break;
+            } else {
+                line.append((char) c);
+            }
+        }
+        if (skipped > 0) {
+            return "";
+        }
+        StringBuilder mark = new StringBuilder();
+        for (int i = 0; i < e.getColumn() && i < line.length(); i++) {
+            mark.append(line.charAt(i) == '\t' ? '\t' : ' ');
+        }
+        mark.append('^');
+        return line + System.lineSeparator() + mark + System.lineSeparator();
+    }
+
+    /**
+     * Parses the tokens of a program, possibly on several threads, and generates the corresponding LLVM IR code.
+     * Every stage works on its own Parser and LLVMGenerator, so programs can be compiled concurrently.
+     *
+     * @param tokens the tokens of the program, all of them available when threads is more than 1
+     * @param latexFile the path of the LaTeX file receiving the parse tree, or null
+     * @param latexNodes the number of parse tree nodes written to the LaTeX file, see {@link Parser#buildTree(String, int)}
+     * @param table true to parse with the table-driven engine
+     * @param threads the number of threads parsing the program, see {@link Parser#setParallelism(int)}
+     * @param llvmGen the generator of the code, the program being parsed on one thread into its abstract syntax tree
+     *                when the generator needs it, see {@link LLVMGenerator#needsAst()}
+     * @param out the writer receiving the LLVM IR code of the program, flushed at the end
+     * @throws ParseException if the program is not syntactically correct
+     * @throws IOException if the LaTeX file or the code cannot be written
+     */
+    static void generate(TokenSource tokens, String latexFile, int latexNodes, boolean table, int threads, LLVMGenerator llvmGen,
+                         IrWriter out) throws ParseException, IOException {
+        // Creates the parser
+        Parser parser = new Parser(tokens);
+        if (latexFile == null && !table && (threads < 2 || llvmGen.needsAst())) {
+            // Without export the generator only needs the lean abstract syntax tree
+            parser.startParsingAst();
+            llvmGen.generate(parser.getAst(), out);
+            return;
+        }
+        // the LaTeX export needs the exact derivation, the generator is happy with the flattened tree
+        parser.setExactTree(latexFile != null);
+        parser.setTableDriven(table);
+        parser.setParallelism(threads);
+        parser.startParsing();
+
+        // Optionally export parse tree to LaTeX
+        if (latexFile != null) {
+            parser.buildTree(latexFile, latexNodes);
         }
 
+        // Generate LLVM IR code
+        ParseTree parseTree = parser.getParseTree();
+        llvmGen.generate(parseTree, out);
     }
 }
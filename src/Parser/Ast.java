@@ -0,0 +1,230 @@
+package Parser;
+
+import LexicalAnalyzer.LexicalUnit;
+
+/**
+ * Lean abstract syntax tree of a yalcc program, an alternative to the ParseTree for code generation.
+ * Only the meaning of the program is kept: there are no nodes for punctuation, keywords, epsilon productions
+ * or the intermediate non-terminals of the grammar, blocks are arrays of instructions, and chains of
+ * operations are folded from the left into binary nodes. Names and numbers are the Strings of the token pool.
+ *
+ * @author Alex Bataille
+ */
+public final class Ast {
+
+    private Ast() {
+    }
+
+    /** An instruction of a block */
+    public abstract static class Instruction {
+    }
+
+    /** An arithmetic expression */
+    public abstract static class Expression {
+    }
+
+    /** A condition of an If or a While */
+    public abstract static class Condition {
+    }
+
+    /**
+     * Prog [ProgName] Is Code End
+     */
+    public static final class Program {
+        /** Name of the program */
+        public final String name;
+        /** Instructions of the program */
+        public final Instruction[] code;
+
+        /**
+         * @param name the name of the program
+         * @param code the instructions of the program
+         */
+        public Program(String name, Instruction[] code) {
+            this.name = name;
+            this.code = code;
+        }
+    }
+
+    /**
+     * [VarName] = ExprArith
+     */
+    public static final class Assign extends Instruction {
+        /** Assigned variable */
+        public final String variable;
+        /** Assigned value */
+        public final Expression value;
+
+        /**
+         * @param variable the assigned variable
+         * @param value the assigned value
+         */
+        public Assign(String variable, Expression value) {
+            this.variable = variable;
+            this.value = value;
+        }
+    }
+
+    /**
+     * If {Cond} Then Code End, or If {Cond} Then Code Else Code End
+     */
+    public static final class If extends Instruction {
+        /** Condition */
+        public final Condition condition;
+        /** Instructions run when the condition holds */
+        public final Instruction[] then;
+        /** Instructions run otherwise, empty without Else */
+        public final Instruction[] otherwise;
+
+        /**
+         * @param condition the condition
+         * @param then the instructions run when the condition holds
+         * @param otherwise the instructions run otherwise
+         */
+        public If(Condition condition, Instruction[] then, Instruction[] otherwise) {
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+    }
+
+    /**
+     * While {Cond} Do Code End
+     */
+    public static final class While extends Instruction {
+        /** Condition */
+        public final Condition condition;
+        /** Instructions of the loop */
+        public final Instruction[] body;
+
+        /**
+         * @param condition the condition
+         * @param body the instructions of the loop
+         */
+        public While(Condition condition, Instruction[] body) {
+            this.condition = condition;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Print([VarName])
+     */
+    public static final class Print extends Instruction {
+        /** Printed variable */
+        public final String variable;
+
+        /**
+         * @param variable the printed variable
+         */
+        public Print(String variable) {
+            this.variable = variable;
+        }
+    }
+
+    /**
+     * Input([VarName])
+     */
+    public static final class Input extends Instruction {
+        /** Read variable */
+        public final String variable;
+
+        /**
+         * @param variable the read variable
+         */
+        public Input(String variable) {
+            this.variable = variable;
+        }
+    }
+
+    /**
+     * [Number]
+     */
+    public static final class Const extends Expression {
+        /** Text of the number, as written in the source */
+        public final String text;
+
+        /**
+         * @param text the text of the number
+         */
+        public Const(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * [VarName] read in an expression
+     */
+    public static final class VarRef extends Expression {
+        /** Read variable */
+        public final String variable;
+
+        /**
+         * @param variable the read variable
+         */
+        public VarRef(String variable) {
+            this.variable = variable;
+        }
+    }
+
+    /**
+     * Binary operation, also standing for the unary minus as 0 - Atom
+     */
+    public static final class BinOp extends Expression {
+        /** Operator: PLUS, MINUS, TIMES or DIVIDE */
+        public final LexicalUnit operator;
+        /** Left operand */
+        public final Expression left;
+        /** Right operand */
+        public final Expression right;
+
+        /**
+         * @param operator the operator
+         * @param left the left operand
+         * @param right the right operand
+         */
+        public BinOp(LexicalUnit operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /**
+     * ExprArith == ExprArith, ExprArith &lt;= ExprArith or ExprArith &lt; ExprArith
+     */
+    public static final class Compare extends Condition {
+        /** Operator: EQUAL, SMALEQ or SMALLER */
+        public final LexicalUnit operator;
+        /** Left operand */
+        public final Expression left;
+        /** Right operand */
+        public final Expression right;
+
+        /**
+         * @param operator the operator
+         * @param left the left operand
+         * @param right the right operand
+         */
+        public Compare(LexicalUnit operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /**
+     * | Cond |, the negation of a condition
+     */
+    public static final class Not extends Condition {
+        /** Negated condition */
+        public final Condition condition;
+
+        /**
+         * @param condition the negated condition
+         */
+        public Not(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package Parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import LexicalAnalyzer.LexicalUnit;
+
+/**
+ * Emitter building the abstract syntax tree of a program, see {@link Parser#startParsingAst()}.
+ * Values are the {@link Ast.Expression} and {@link Ast.Condition} nodes. The instructions of the blocks still open
+ * are gathered in a list shared by all of them, so only the final array of each block is allocated.
+ *
+ * @author Alex Bataille
+ */
+final class AstBuilder implements Emitter<Object> {
+    /** Empty block, shared by all of them */
+    private static final Ast.Instruction[] NO_INSTRUCTIONS = new Ast.Instruction[0];
+    /** Number 0, shared by the unary minus and the zeros of the program */
+    private static final Ast.Const ZERO = new Ast.Const("0");
+
+    /** Instructions of the blocks still open, innermost block last */
+    private final List<Ast.Instruction> pending = new ArrayList<>();
+    /** Index in pending of the first instruction of each block still open */
+    private int[] starts = new int[16];
+    /** Number of blocks still open */
+    private int depth;
+    /** Conditions of the If and While still open, innermost last */
+    private final List<Ast.Condition> conditions = new ArrayList<>();
+    /** Instructions run when the condition holds of the If whose Else is being built, innermost last */
+    private final List<Ast.Instruction[]> thens = new ArrayList<>();
+    /** Name of the program */
+    private String name;
+    /** The tree, once the program is ended */
+    Ast.Program program;
+
+    /**
+     * Opens a block, whose instructions are the ones added to pending from now on
+     */
+    private void openBlock() {
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth++] = pending.size();
+    }
+
+    /**
+     * Closes the innermost block
+     *
+     * @return the instructions of the block
+     */
+    private Ast.Instruction[] closeBlock() {
+        List<Ast.Instruction> block = pending.subList(starts[--depth], pending.size());
+        Ast.Instruction[] code = block.toArray(NO_INSTRUCTIONS);
+        block.clear();
+        return code;
+    }
+
+    /**
+     * Removes the condition of the innermost If or While
+     *
+     * @return the condition
+     */
+    private Ast.Condition popCondition() {
+        return conditions.remove(conditions.size() - 1);
+    }
+
+    @Override
+    public void beginProgram(String name) {
+        this.name = name;
+        openBlock();
+    }
+
+    @Override
+    public void endProgram() {
+        program = new Ast.Program(name, closeBlock());
+    }
+
+    @Override
+    public void endAssign(String variable, Object value) {
+        pending.add(new Ast.Assign(variable, (Ast.Expression) value));
+    }
+
+    @Override
+    public void thenBranch(Object condition) {
+        conditions.add((Ast.Condition) condition);
+        openBlock();
+    }
+
+    @Override
+    public void elseBranch() {
+        thens.add(closeBlock());
+        openBlock();
+    }
+
+    @Override
+    public void endIf() {
+        Ast.Instruction[] otherwise = closeBlock();
+        Ast.Instruction[] then = thens.remove(thens.size() - 1);
+        pending.add(new Ast.If(popCondition(), then, otherwise));
+    }
+
+    @Override
+    public void loopBody(Object condition) {
+        conditions.add((Ast.Condition) condition);
+        openBlock();
+    }
+
+    @Override
+    public void endWhile() {
+        Ast.Instruction[] body = closeBlock();
+        pending.add(new Ast.While(popCondition(), body));
+    }
+
+    @Override
+    public void print(String variable) {
+        pending.add(new Ast.Print(variable));
+    }
+
+    @Override
+    public void input(String variable) {
+        pending.add(new Ast.Input(variable));
+    }
+
+    @Override
+    public Object number(String text) {
+        return text.equals(ZERO.text) ? ZERO : new Ast.Const(text);
+    }
+
+    @Override
+    public Object variable(String variable) {
+        return new Ast.VarRef(variable);
+    }
+
+    @Override
+    public Object operation(LexicalUnit operator, Object left, Object right) {
+        return new Ast.BinOp(operator, (Ast.Expression) left, (Ast.Expression) right);
+    }
+
+    @Override
+    public Object comparison(LexicalUnit operator, Object left, Object right) {
+        return new Ast.Compare(operator, (Ast.Expression) left, (Ast.Expression) right);
+    }
+
+    @Override
+    public Object not(Object condition) {
+        return new Ast.Not((Ast.Condition) condition);
+    }
+}
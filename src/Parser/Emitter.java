@@ -0,0 +1,169 @@
+package Parser;
+
+import LexicalAnalyzer.LexicalUnit;
+
+/**
+ * Receives the productions of a program as {@link Parser#startParsing(Emitter)} recognizes them, so that code can be
+ * generated in a single pass without any tree. The callbacks come in the order of the source: the operands of an
+ * operation are given before it, and the instructions of a block between the callbacks opening and closing the block,
+ * so an emitter only needs to remember the blocks still open.
+ * <br>
+ * Every callback does nothing by default, values being null, so that {@link #RECOGNIZER} only checks the syntax.
+ * The abstract syntax tree is built by an emitter too, the {@link AstBuilder}, as is the one-pass code of the
+ * LLVMGenerator.
+ *
+ * @param <V> the values of the expressions and conditions, such as the registers holding them
+ * @author Alex Bataille
+ */
+public interface Emitter<V> {
+    /** Emitter doing nothing, with which the parser only recognizes the program */
+    Emitter<Object> RECOGNIZER = new Emitter<Object>() {
+    };
+
+    /**
+     * Starts the program, after Prog [ProgName] Is
+     *
+     * @param name the name of the program
+     */
+    default void beginProgram(String name) {
+    }
+
+    /**
+     * Ends the program, after its last End
+     */
+    default void endProgram() {
+    }
+
+    /**
+     * Starts an assignment, before its value
+     *
+     * @param variable the assigned variable
+     */
+    default void beginAssign(String variable) {
+    }
+
+    /**
+     * Ends an assignment
+     *
+     * @param variable the assigned variable
+     * @param value the assigned value
+     */
+    default void endAssign(String variable, V value) {
+    }
+
+    /**
+     * Starts an If, before its condition
+     */
+    default void beginIf() {
+    }
+
+    /**
+     * Starts the instructions run when the condition of the innermost If holds
+     *
+     * @param condition the condition
+     */
+    default void thenBranch(V condition) {
+    }
+
+    /**
+     * Starts the instructions run otherwise, given whether or not the If has an Else
+     */
+    default void elseBranch() {
+    }
+
+    /**
+     * Ends the innermost If
+     */
+    default void endIf() {
+    }
+
+    /**
+     * Starts a While, before its condition
+     */
+    default void beginWhile() {
+    }
+
+    /**
+     * Starts the instructions of the innermost While
+     *
+     * @param condition the condition
+     */
+    default void loopBody(V condition) {
+    }
+
+    /**
+     * Ends the innermost While
+     */
+    default void endWhile() {
+    }
+
+    /**
+     * Prints a variable
+     *
+     * @param variable the printed variable
+     */
+    default void print(String variable) {
+    }
+
+    /**
+     * Reads a variable
+     *
+     * @param variable the read variable
+     */
+    default void input(String variable) {
+    }
+
+    /**
+     * Returns the value of a number
+     *
+     * @param text the text of the number, as written in the source
+     * @return the value
+     */
+    default V number(String text) {
+        return null;
+    }
+
+    /**
+     * Returns the value of a variable read in an expression
+     *
+     * @param variable the read variable
+     * @return the value
+     */
+    default V variable(String variable) {
+        return null;
+    }
+
+    /**
+     * Returns the value of an operation, the unary minus being a subtraction from the number 0
+     *
+     * @param operator PLUS, MINUS, TIMES or DIVIDE
+     * @param left the left operand
+     * @param right the right operand
+     * @return the value
+     */
+    default V operation(LexicalUnit operator, V left, V right) {
+        return null;
+    }
+
+    /**
+     * Returns the value of a comparison
+     *
+     * @param operator EQUAL, SMALEQ or SMALLER
+     * @param left the left operand
+     * @param right the right operand
+     * @return the value
+     */
+    default V comparison(LexicalUnit operator, V left, V right) {
+        return null;
+    }
+
+    /**
+     * Returns the value of the negation of a condition
+     *
+     * @param condition the negated condition
+     * @return the value
+     */
+    default V not(V condition) {
+        return null;
+    }
+}
@@ -0,0 +1,233 @@
+package Parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import LexicalAnalyzer.LexicalUnit;
+import LexicalAnalyzer.NonTermUnit;
+
+/**
+ * LL(1) grammar of the yalcc language, declared once as a list of productions and compiled into a parse table.
+ * <br>
+ * Grammar symbols are encoded as ints: a terminal is the ordinal of its LexicalUnit, a non-terminal is
+ * {@link #NONTERM} plus the ordinal of its NonTermUnit. Sets of terminals are {@code long} bitmasks indexed by
+ * LexicalUnit ordinal, the bit of {@link LexicalUnit#Epsilon} marking a nullable sequence in FIRST sets.
+ * The compiled table maps a non-terminal and a lookahead terminal to the production to apply, or -1.
+ *
+ * @author Alex Bataille
+ */
+public class Grammar {
+    /** Offset of the non-terminals in the encoding of the symbols */
+    public static final int NONTERM = 64;
+    /** Bit of the empty word in FIRST sets */
+    private static final long EPSILON = 1L << LexicalUnit.Epsilon.ordinal();
+    /** Number of terminals */
+    private static final int TERMINALS = LexicalUnit.values().length;
+    /** Number of non-terminals */
+    private static final int NONTERMINALS = NonTermUnit.values().length;
+
+    /** The grammar of the yalcc language, numbered as in the report */
+    public static final Grammar YALCC = new Grammar()
+        .production(1, NonTermUnit.Program, LexicalUnit.PROG, LexicalUnit.PROGNAME, LexicalUnit.IS, NonTermUnit.Code, LexicalUnit.END)
+        .production(2, NonTermUnit.Code, NonTermUnit.Instruction, LexicalUnit.SEMI, NonTermUnit.Code)
+        .production(3, NonTermUnit.Code)
+        .production(4, NonTermUnit.Instruction, NonTermUnit.Assign)
+        .production(5, NonTermUnit.Instruction, NonTermUnit.If)
+        .production(6, NonTermUnit.Instruction, NonTermUnit.While)
+        .production(7, NonTermUnit.Instruction, NonTermUnit.Output)
+        .production(8, NonTermUnit.Instruction, NonTermUnit.Input)
+        .production(10, NonTermUnit.Assign, LexicalUnit.VARNAME, LexicalUnit.ASSIGN, NonTermUnit.ExprArith)
+        .production(11, NonTermUnit.ExprArith, NonTermUnit.Prod, NonTermUnit.ExprArithp)
+        .production(12, NonTermUnit.ExprArithp, LexicalUnit.PLUS, NonTermUnit.Prod, NonTermUnit.ExprArithp)
+        .production(13, NonTermUnit.ExprArithp, LexicalUnit.MINUS, NonTermUnit.Prod, NonTermUnit.ExprArithp)
+        .production(14, NonTermUnit.ExprArithp)
+        .production(15, NonTermUnit.Prod, NonTermUnit.Atom, NonTermUnit.Prodp)
+        .production(16, NonTermUnit.Prodp, LexicalUnit.TIMES, NonTermUnit.Atom)
+        .production(17, NonTermUnit.Prodp, LexicalUnit.DIVIDE, NonTermUnit.Atom)
+        .production(18, NonTermUnit.Prodp)
+        .production(19, NonTermUnit.Atom, LexicalUnit.VARNAME)
+        .production(20, NonTermUnit.Atom, LexicalUnit.NUMBER)
+        .production(21, NonTermUnit.Atom, LexicalUnit.MINUS, NonTermUnit.Atom)
+        .production(22, NonTermUnit.Atom, LexicalUnit.LPAREN, NonTermUnit.ExprArith, LexicalUnit.RPAREN)
+        .production(23, NonTermUnit.If, LexicalUnit.IF, LexicalUnit.LBRACK, NonTermUnit.Cond, LexicalUnit.RBRACK, LexicalUnit.THEN, NonTermUnit.Code, NonTermUnit.C)
+        .production(24, NonTermUnit.C, LexicalUnit.END)
+        .production(25, NonTermUnit.C, LexicalUnit.ELSE, NonTermUnit.Code, LexicalUnit.END)
+        .production(26, NonTermUnit.Cond, NonTermUnit.CondA)
+        .production(29, NonTermUnit.CondA, LexicalUnit.PIPE, NonTermUnit.Cond, LexicalUnit.PIPE)
+        .production(30, NonTermUnit.CondA, NonTermUnit.ExprArith, NonTermUnit.D)
+        .production(31, NonTermUnit.D, LexicalUnit.EQUAL, NonTermUnit.ExprArith)
+        .production(32, NonTermUnit.D, LexicalUnit.SMALEQ, NonTermUnit.ExprArith)
+        .production(33, NonTermUnit.D, LexicalUnit.SMALLER, NonTermUnit.ExprArith)
+        .production(34, NonTermUnit.While, LexicalUnit.WHILE, LexicalUnit.LBRACK, NonTermUnit.Cond, LexicalUnit.RBRACK, LexicalUnit.DO, NonTermUnit.Code, LexicalUnit.END)
+        .production(35, NonTermUnit.Output, LexicalUnit.PRINT, LexicalUnit.LPAREN, LexicalUnit.VARNAME, LexicalUnit.RPAREN)
+        .production(36, NonTermUnit.Input, LexicalUnit.INPUT, LexicalUnit.LPAREN, LexicalUnit.VARNAME, LexicalUnit.RPAREN)
+        .compile(NonTermUnit.Program);
+
+    /** Number of each production, as used in the report */
+    private final List<Integer> numbers = new ArrayList<>();
+    /** Left-hand side of each production, as a NonTermUnit ordinal */
+    private final List<Integer> lefts = new ArrayList<>();
+    /** Right-hand side of each production, as encoded symbols */
+    private final List<int[]> rights = new ArrayList<>();
+
+    /** FIRST set of each non-terminal */
+    private long[] first;
+    /** FOLLOW set of each non-terminal */
+    private long[] follow;
+    /** Production to apply for each non-terminal and lookahead terminal, -1 for a syntax error */
+    private int[][] table;
+    /** Right-hand sides indexed by production */
+    private int[][] rhs;
+
+    /**
+     * Adds a production
+     *
+     * @param number the number of the production in the report
+     * @param left the non-terminal being rewritten
+     * @param right the symbols it is rewritten to, LexicalUnits and NonTermUnits, none for epsilon
+     * @return this grammar
+     */
+    private Grammar production(int number, NonTermUnit left, Object... right) {
+        int[] symbols = new int[right.length];
+        for (int i = 0; i < right.length; i++) {
+            if (right[i] instanceof LexicalUnit) {
+                symbols[i] = ((LexicalUnit) right[i]).ordinal();
+            } else {
+                symbols[i] = NONTERM + ((NonTermUnit) right[i]).ordinal();
+            }
+        }
+        numbers.add(number);
+        lefts.add(left.ordinal());
+        rights.add(symbols);
+        return this;
+    }
+
+    /**
+     * Computes the FIRST and FOLLOW sets and fills the parse table
+     *
+     * @param start the start symbol, followed by EOS
+     * @return this grammar
+     * @throws IllegalStateException if the grammar is not LL(1)
+     */
+    private Grammar compile(NonTermUnit start) {
+        int count = rights.size();
+        rhs = rights.toArray(new int[count][]);
+        first = new long[NONTERMINALS];
+        follow = new long[NONTERMINALS];
+        follow[start.ordinal()] = 1L << LexicalUnit.EOS.ordinal();
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < count; p++) {
+                int left = lefts.get(p);
+                long set = first[left] | firstOf(rhs[p], 0);
+                if (set != first[left]) {
+                    first[left] = set;
+                    changed = true;
+                }
+            }
+        }
+        changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < count; p++) {
+                int[] right = rhs[p];
+                for (int i = 0; i < right.length; i++) {
+                    if (right[i] < NONTERM) continue;
+                    int nt = right[i] - NONTERM;
+                    long rest = firstOf(right, i + 1);
+                    long set = follow[nt] | (rest & ~EPSILON);
+                    if ((rest & EPSILON) != 0) set |= follow[lefts.get(p)];
+                    if (set != follow[nt]) {
+                        follow[nt] = set;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        table = new int[NONTERMINALS][TERMINALS];
+        for (int[] row : table) Arrays.fill(row, -1);
+        for (int p = 0; p < count; p++) {
+            int left = lefts.get(p);
+            long predict = firstOf(rhs[p], 0);
+            if ((predict & EPSILON) != 0) predict = (predict & ~EPSILON) | follow[left];
+            for (int t = 0; t < TERMINALS; t++) {
+                if ((predict & (1L << t)) == 0) continue;
+                if (table[left][t] != -1) {
+                    throw new IllegalStateException("Grammar is not LL(1): rules " + numbers.get(table[left][t]) + " and "
+                        + numbers.get(p) + " both apply to " + NonTermUnit.values()[left] + " on " + LexicalUnit.values()[t]);
+                }
+                table[left][t] = p;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the FIRST set of a suffix of a sequence of symbols
+     *
+     * @param symbols the sequence
+     * @param from the start of the suffix
+     * @return the terminals starting the suffix, plus EPSILON if it can derive the empty word
+     */
+    private long firstOf(int[] symbols, int from) {
+        long set = 0;
+        for (int i = from; i < symbols.length; i++) {
+            if (symbols[i] < NONTERM) {
+                return set | (1L << symbols[i]);
+            }
+            long f = first[symbols[i] - NONTERM];
+            set |= f & ~EPSILON;
+            if ((f & EPSILON) == 0) {
+                return set;
+            }
+        }
+        return set | EPSILON;
+    }
+
+    /**
+     * Returns the production to apply
+     *
+     * @param nonTerminal the ordinal of the non-terminal on top of the stack
+     * @param lookahead the ordinal of the current terminal
+     * @return the index of the production, or -1 if no production applies
+     */
+    public int predict(int nonTerminal, int lookahead) {
+        return table[nonTerminal][lookahead];
+    }
+
+    /**
+     * Returns the right-hand side of a production
+     *
+     * @param production the index of the production
+     * @return its encoded symbols, not to be modified
+     */
+    public int[] right(int production) {
+        return rhs[production];
+    }
+
+    /**
+     * Returns whether a terminal may start a non-terminal
+     *
+     * @param nonTerminal the non-terminal
+     * @param terminal the terminal
+     * @return true iff the terminal is in FIRST of the non-terminal
+     */
+    public boolean inFirst(NonTermUnit nonTerminal, LexicalUnit terminal) {
+        return (first[nonTerminal.ordinal()] & (1L << terminal.ordinal())) != 0;
+    }
+
+    /**
+     * Returns whether a terminal may follow a non-terminal
+     *
+     * @param nonTerminal the non-terminal
+     * @param terminal the terminal
+     * @return true iff the terminal is in FOLLOW of the non-terminal
+     */
+    public boolean inFollow(NonTermUnit nonTerminal, LexicalUnit terminal) {
+        return (follow[nonTerminal.ordinal()] & (1L << terminal.ordinal())) != 0;
+    }
+}
@@ -0,0 +1,1092 @@
+package Parser;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import LexicalAnalyzer.LexicalAnalyzer;
+import LexicalAnalyzer.LexicalUnit;
+import LexicalAnalyzer.NonTermUnit;
+import LexicalAnalyzer.TokenSource;
+
+/**
+ * Front end of an editor, keeping the tokens and the parse tree of a program up to date as its text is edited.
+ * <br>
+ * An edit replaces a range of the text. The scanner is restarted at the end of the last token before the edit
+ * and stops as soon as it meets, past the edit, a token starting where an old token started: the scanner has
+ * no start condition, so from there on it would find the old tokens again. Only the tokens in between are
+ * replaced, the others keep their value and are moved by the length of the edit. A long comment extends to the
+ * last "!!" of the text, so when an edit moves it the whole text is scanned again.
+ * <br>
+ * The changed tokens are then reparsed within the smallest {@code <Code>} holding them: only the instructions
+ * they touch are parsed again and spliced into the tree, the other nodes being kept. When these instructions
+ * no longer parse on their own, for instance because a semicolon or an End was typed or erased, the enclosing
+ * If or While is reparsed instead, and the whole program last.
+ * <br>
+ * The work done by an edit therefore depends on the size of the edit and of the instructions it touches, not on
+ * the size of the program. The text, the tokens and the instructions of each block are kept in gap buffers, so an
+ * edit only moves what lies between it and the previous edit. The tokens after the gap keep their offset from the
+ * end of the text, so that they follow an edit without being touched, and the instruction holding a token is found
+ * through a Fenwick tree of the lengths of the instructions. The tree is flattened as with
+ * {@link Parser#setExactTree(boolean)} false, so it can be given to the LLVMGenerator but not exported to LaTeX.
+ *
+ * @author Alex Bataille
+ */
+public class IncrementalParser {
+    /** Initial number of tokens the arrays can hold */
+    private static final int INITIAL_CAPACITY = 256;
+    /** Lexical units indexed by ordinal */
+    private static final LexicalUnit[] UNITS = LexicalUnit.values();
+    /** Line of the first line of the text, as numbered by LexicalAnalyzer.getTokenLine and the token sequences */
+    private static final int FIRST_LINE = 2;
+    /** Index of the first token of the {@code <Code>} of the program, after Prog [ProgName] Is */
+    private static final int CODE_START = 3;
+
+    /** Text of the program */
+    private final Text text;
+    /** Number of tokens */
+    private int size;
+    /** Index of the first token after the gap of the token arrays, the token at index i being in slot {@link #slot} */
+    private int gap;
+    /** Ordinal of the LexicalUnit of each token */
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    /** Value of each token, as it appears in the text */
+    private String[] values = new String[INITIAL_CAPACITY];
+    /**
+     * Offset in the text of the first character of each token before the gap, and offset from the end of the text
+     * of each token after the gap, which an edit at the gap does not change
+     */
+    private int[] starts = new int[INITIAL_CAPACITY];
+    /** View of the tokens given to the parser */
+    private final TokenSource tokens = new Tokens();
+    /** Stream receiving the lexical errors */
+    private PrintStream errors;
+    /** Offset of the last "!!" of the text, where a long comment ends, -1 if there is none */
+    private int lastBangs = -1;
+
+    /** Parse tree of the program, null if it has not been parsed or does not parse */
+    private ParseTree tree;
+    /** Instructions of the {@code <Code>} of the program, with their extent */
+    private Block code;
+
+    /** First old token replaced by the last edit */
+    private int from;
+    /** Old token following the last token replaced by the last edit */
+    private int to;
+    /** Number of new tokens replacing them */
+    private int added;
+    /** Parser over the tokens being reparsed */
+    private Parser parser;
+    /** Number of tokens scanned by the last edit */
+    private int relexed;
+    /** Number of tokens parsed by the last edit */
+    private int reparsed;
+
+    /**
+     * The instructions of a {@code <Code>} node of the tree. The tokens are counted from the start of the instruction
+     * holding the block, or from the start of the program for the block of the program, so that an edit only
+     * changes the counts of the blocks and instructions enclosing it.
+     */
+    private static final class Block {
+        /** The {@code <Code>} node, whose children are the instructions and their semicolons */
+        final ParseTree node;
+        /** Children of the node */
+        final GapList<ParseTree> children;
+        /** Index of the first token of the block, relative to the instruction holding it */
+        int start;
+        /** Number of tokens of the block */
+        int length;
+        /** Instructions of the block */
+        final Spans items;
+
+        Block(ParseTree node, GapList<ParseTree> children, int start, Spans items) {
+            this.node = node;
+            this.children = children;
+            this.start = start;
+            this.items = items;
+        }
+    }
+
+    /**
+     * The extent of an instruction of a block, followed by its semicolon
+     */
+    private static final class Span {
+        /** Number of tokens of the instruction and its semicolon */
+        int length;
+        /** Blocks of an If or a While, in order */
+        final List<Block> blocks = new ArrayList<>(2);
+    }
+
+    /**
+     * Creates the front end of a program and scans its text, printing the lexical errors to System.err.
+     * The program is parsed by {@link #parse()}, or by the first edit.
+     *
+     * @param source the text of the program
+     */
+    public IncrementalParser(String source) {
+        this(source, System.err);
+    }
+
+    /**
+     * Creates the front end of a program and scans its text. The program is parsed by {@link #parse()},
+     * or by the first edit.
+     *
+     * @param source the text of the program
+     * @param errors the stream to print the lexical errors to, from the first scan on
+     */
+    public IncrementalParser(String source, PrintStream errors) {
+        this.text = new Text(source);
+        this.errors = Objects.requireNonNull(errors);
+        relex(0, 0, source.length(), 0, 0);
+    }
+
+    /**
+     * Sets the stream receiving the lexical errors of the next edits
+     *
+     * @param errors the stream to print the errors to
+     */
+    public void setErrors(PrintStream errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Parses the whole program
+     *
+     * @return the parse tree of the program
+     * @throws ParseException if the program is not syntactically correct
+     */
+    public ParseTree parse() throws ParseException {
+        tree = null;
+        code = null;
+        Parser full = new Parser(tokens);
+        full.setExactTree(false);
+        full.startParsing();
+        ParseTree program = full.getParseTree();
+        Block block = block(program.getChildren().get(CODE_START), CODE_START);
+        program.getChildren().set(CODE_START, block.node);
+        tree = program;
+        code = block;
+        reparsed = size;
+        return tree;
+    }
+
+    /**
+     * Replaces a range of the text, then updates the tokens and the parse tree
+     *
+     * @param offset the offset of the first replaced character
+     * @param length the number of replaced characters
+     * @param replacement the new text of the range
+     * @return the parse tree of the edited program
+     * @throws ParseException if the edited program is not syntactically correct, the tokens being updated anyway
+     */
+    public ParseTree edit(int offset, int length, String replacement) throws ParseException {
+        if (offset < 0 || length < 0 || offset + length > text.length()) {
+            throw new IndexOutOfBoundsException("Edit of " + length + " characters at " + offset + " out of " + text.length());
+        }
+        // The tokens from the first one reaching the edit are moved after the gap, so they follow the edit
+        int first = firstEndingFrom(offset);
+        int next = firstStartingFrom(offset + length);
+        moveGap(first);
+        text.replace(offset, length, replacement);
+        relex(offset, length, replacement.length(), first, next);
+
+        reparsed = 0;
+        if (tree == null) {
+            return parse();
+        }
+        if (added == 0 && from == to) {
+            return tree;
+        }
+        parser = new Parser(tokens);
+        parser.setExactTree(false);
+        boolean done = reparse(code, code.start);
+        parser = null;
+        return done ? tree : parse();
+    }
+
+    /**
+     * Scans the text again around an edit, replacing the tokens which changed. The following tokens, after the gap,
+     * already moved with the end of the text.
+     *
+     * @param offset the offset of the edit
+     * @param oldLength the number of characters replaced
+     * @param newLength the number of characters replacing them
+     * @param first the first token ending at or after the edit, at the gap
+     * @param next the first token starting at or after the end of the replaced characters, before the edit
+     */
+    private void relex(int offset, int oldLength, int newLength, int first, int next) {
+        // The last token ending before the edit is kept, the scanner restarts right after it, unless a "!!" before
+        // it may now start a long comment or no longer does
+        if (!moveLastBangs(offset, oldLength, newLength)) {
+            first = 0;
+            moveGap(0);
+        }
+        int restart = first > 0 ? end(first - 1) : 0;
+
+        LexicalAnalyzer scanner = new LexicalAnalyzer(new TextReader(text, restart));
+        scanner.setDump(null);
+        scanner.setErrors(errors);
+        scanner.setKeepTokens(false);
+
+        int count = 0;
+        int[] newKinds = new int[16];
+        String[] newValues = new String[16];
+        int[] newStarts = new int[16];
+        int position = restart;
+        int line = FIRST_LINE;
+        int column = 0;
+        boolean afterCR = false;
+        try {
+            while (true) {
+                int kind = scanner.yylex();
+                if (kind == LexicalAnalyzer.YYEOF) {
+                    next = size;
+                    break;
+                }
+                // Moves to the token, counting lines and columns as the scanner does
+                int tokenLine = scanner.getTokenLine();
+                int tokenColumn = scanner.getTokenColumn();
+                while (line != tokenLine || column != tokenColumn || afterCR && text.charAt(position) == '\n') {
+                    char c = text.charAt(position++);
+                    if (c == '\n' && afterCR) {
+                        afterCR = false;
+                    } else if (c == '\n' || c == '\r' || c == '\u000B' || c == '\u000C' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                        line++;
+                        column = 0;
+                        afterCR = c == '\r';
+                    } else {
+                        column++;
+                        afterCR = false;
+                    }
+                }
+                if (position >= offset + newLength) {
+                    while (next < size && start(next) < position) next++;
+                    if (next < size && start(next) == position) {
+                        // Synchronized with the old tokens
+                        break;
+                    }
+                }
+                if (count == newKinds.length) {
+                    newKinds = Arrays.copyOf(newKinds, count * 2);
+                    newValues = Arrays.copyOf(newValues, count * 2);
+                    newStarts = Arrays.copyOf(newStarts, count * 2);
+                }
+                newKinds[count] = kind;
+                newValues[count] = scanner.getTokenValue();
+                newStarts[count] = position;
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        relexed = count;
+
+        // The tokens scanned again which did not change are not reparsed
+        int prefix = 0;
+        while (prefix < count && first + prefix < next && same(first + prefix, newKinds[prefix], newValues[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < count - prefix && next - 1 - suffix >= first + prefix
+            && same(next - 1 - suffix, newKinds[count - 1 - suffix], newValues[count - 1 - suffix])) {
+            suffix++;
+        }
+        from = first + prefix;
+        to = next - suffix;
+        added = count - prefix - suffix;
+
+        // Replaces the tokens from first to next, right after the gap, by the new ones put before it
+        Arrays.fill(values, slot(first), slot(first) + next - first, null);
+        size -= next - first;
+        if (kinds.length - size < count) {
+            growTokens(count);
+        }
+        System.arraycopy(newKinds, 0, kinds, gap, count);
+        System.arraycopy(newValues, 0, values, gap, count);
+        System.arraycopy(newStarts, 0, starts, gap, count);
+        gap += count;
+        size += count;
+    }
+
+    /**
+     * Moves the gap of the token arrays before a token, converting the offsets of the tokens crossing it
+     *
+     * @param index the index of the token to be the first after the gap
+     */
+    private void moveGap(int index) {
+        int gapLength = kinds.length - size;
+        int length = text.length();
+        if (index < gap) {
+            int n = gap - index;
+            System.arraycopy(kinds, index, kinds, index + gapLength, n);
+            System.arraycopy(values, index, values, index + gapLength, n);
+            System.arraycopy(starts, index, starts, index + gapLength, n);
+            for (int i = index + gapLength; i < gap + gapLength; i++) {
+                starts[i] -= length;
+            }
+            Arrays.fill(values, index, Math.min(gap, index + gapLength), null);
+        } else if (index > gap) {
+            int n = index - gap;
+            System.arraycopy(kinds, gap + gapLength, kinds, gap, n);
+            System.arraycopy(values, gap + gapLength, values, gap, n);
+            System.arraycopy(starts, gap + gapLength, starts, gap, n);
+            for (int i = gap; i < index; i++) {
+                starts[i] += length;
+            }
+            Arrays.fill(values, Math.max(index, gap + gapLength), index + gapLength, null);
+        }
+        gap = index;
+    }
+
+    /**
+     * Enlarges the gap of the token arrays
+     *
+     * @param needed the number of tokens the gap must be able to hold
+     */
+    private void growTokens(int needed) {
+        int capacity = Math.max(kinds.length * 2, size + needed);
+        int tail = size - gap;
+        int[] grownKinds = new int[capacity];
+        String[] grownValues = new String[capacity];
+        int[] grownStarts = new int[capacity];
+        System.arraycopy(kinds, 0, grownKinds, 0, gap);
+        System.arraycopy(values, 0, grownValues, 0, gap);
+        System.arraycopy(starts, 0, grownStarts, 0, gap);
+        System.arraycopy(kinds, kinds.length - tail, grownKinds, capacity - tail, tail);
+        System.arraycopy(values, kinds.length - tail, grownValues, capacity - tail, tail);
+        System.arraycopy(starts, kinds.length - tail, grownStarts, capacity - tail, tail);
+        kinds = grownKinds;
+        values = grownValues;
+        starts = grownStarts;
+    }
+
+    /**
+     * Returns the slot of a token in the token arrays
+     *
+     * @param index the index of the token
+     * @return its slot, past the gap if the token is after it
+     */
+    private int slot(int index) {
+        return index < gap ? index : index + kinds.length - size;
+    }
+
+    /**
+     * Finds the last "!!" of the text after an edit
+     *
+     * @param offset the offset of the edit
+     * @param oldLength the number of characters replaced
+     * @param newLength the number of characters replacing them
+     * @return true iff the last "!!" is the same as before the edit, or there is still none
+     */
+    private boolean moveLastBangs(int offset, int oldLength, int newLength) {
+        int kept;
+        if (lastBangs < 0) {
+            kept = -1;
+        } else if (lastBangs + 1 < offset) {
+            kept = lastBangs;
+        } else if (lastBangs >= offset + oldLength) {
+            kept = lastBangs + newLength - oldLength;
+        } else {
+            // the edit touched it
+            kept = -2;
+        }
+        if (kept >= offset + newLength) {
+            lastBangs = kept;
+            return true;
+        }
+
+        int found = lastBangs(Math.min(offset + newLength - 1, text.length() - 2), Math.max(offset - 1, 0));
+        if (found < 0) {
+            found = kept == -2 ? lastBangs(offset - 2, 0) : kept;
+        }
+        lastBangs = found;
+        return found == kept;
+    }
+
+    /**
+     * Returns the last "!!" of a range of the text
+     *
+     * @param from the last offset the "!!" may start at
+     * @param to the first offset the "!!" may start at
+     * @return the offset of the "!!", -1 if there is none
+     */
+    private int lastBangs(int from, int to) {
+        for (int i = from; i >= to; i--) {
+            if (text.charAt(i) == '!' && text.charAt(i + 1) == '!') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reparses the instructions of a block touched by the last edit, or of a block nested in them
+     *
+     * @param block the block
+     * @param base the index of the first token of the block, before the edit
+     * @return true iff the tokens replaced by the edit are in the block and the instructions holding them were reparsed
+     */
+    private boolean reparse(Block block, int base) {
+        if (from < base || to > base + block.length) {
+            return false;
+        }
+        int delta = added - (to - from);
+        Spans items = block.items;
+
+        // Instructions first to last - 1 hold the replaced tokens, none if tokens were only inserted between two
+        int first = items.find(from - base);
+        int start = base + items.startOf(first);
+        int last = to > start ? items.find(to - 1 - base) + 1 : first;
+        int stop = base + items.startOf(last);
+
+        if (last - first == 1) {
+            Span span = items.get(first);
+            for (int i = 0; i < span.blocks.size(); i++) {
+                Block inner = span.blocks.get(i);
+                if (reparse(inner, start + inner.start)) {
+                    for (int k = i + 1; k < span.blocks.size(); k++) {
+                        span.blocks.get(k).start += delta;
+                    }
+                    items.resize(first, delta);
+                    block.length += delta;
+                    return true;
+                }
+            }
+        }
+
+        List<ParseTree> nodes = new ArrayList<>();
+        try {
+            if (!parser.parseInstructions(start, stop + delta, nodes)) {
+                return false;
+            }
+        } catch (ParseException e) {
+            return false;
+        }
+        List<Span> spans = new ArrayList<>(nodes.size() / 2);
+        for (int i = 0; i < nodes.size(); i += 2) {
+            spans.add(span(nodes.get(i)));
+        }
+        items.replace(first, last, spans);
+        block.children.replace(2 * first, 2 * last, nodes);
+        block.length += delta;
+        reparsed = stop + delta - start;
+        return true;
+    }
+
+    /**
+     * Measures a {@code <Code>} node and its instructions
+     *
+     * @param node the {@code <Code>} node, flattened
+     * @param start the index of its first token, relative to the instruction holding it
+     * @return the block, whose node replaces the given one, its children being kept in a gap buffer
+     */
+    private static Block block(ParseTree node, int start) {
+        GapList<ParseTree> children = new GapList<>(node.getChildren());
+        List<Span> spans = new ArrayList<>(children.size() / 2);
+        int length = 0;
+        for (int i = 0; i + 1 < children.size(); i += 2) {
+            Span span = span(children.get(i));
+            spans.add(span);
+            length += span.length;
+        }
+        Block block = new Block(new ParseTree(node.getLabel(), children), children, start, new Spans(spans));
+        block.length = length;
+        return block;
+    }
+
+    /**
+     * Measures an instruction and the blocks it holds
+     *
+     * @param instruction the {@code <Instruction>} node
+     * @return its extent, its semicolon included
+     */
+    private static Span span(ParseTree instruction) {
+        Span span = new Span();
+        span.length = measure(instruction, span, 0) + 1;
+        return span;
+    }
+
+    /**
+     * Counts the tokens of a subtree of an instruction, measuring the blocks met
+     *
+     * @param node the root of the subtree
+     * @param span the instruction
+     * @param start the index of the first token of the subtree, relative to the instruction
+     * @return the number of tokens of the subtree
+     */
+    private static int measure(ParseTree node, Span span, int start) {
+        if (node.getLabel().isTerminal()) {
+            return 1;
+        }
+        int length = 0;
+        List<ParseTree> children = node.getChildren();
+        for (int i = 0; i < children.size(); i++) {
+            ParseTree child = children.get(i);
+            if (!child.getLabel().isTerminal() && child.getLabel().getNonTermType() == NonTermUnit.Code) {
+                Block block = block(child, start + length);
+                span.blocks.add(block);
+                children.set(i, block.node);
+                length += block.length;
+            } else {
+                length += measure(child, span, start + length);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns whether a token has the given lexical unit and value
+     *
+     * @param index the index of the token
+     * @param kind the ordinal of the lexical unit
+     * @param value the value
+     * @return true iff they are those of the token
+     */
+    private boolean same(int index, int kind, String value) {
+        int slot = slot(index);
+        return kinds[slot] == kind && values[slot].equals(value);
+    }
+
+    /**
+     * Returns the offset of the first character of a token
+     *
+     * @param index the index of the token
+     * @return the offset of its start
+     */
+    private int start(int index) {
+        return index < gap ? starts[index] : text.length() + starts[slot(index)];
+    }
+
+    /**
+     * Returns the offset following the last character of a token
+     *
+     * @param index the index of the token
+     * @return the offset of its end
+     */
+    private int end(int index) {
+        return start(index) + values[slot(index)].length();
+    }
+
+    /**
+     * Returns the first token ending at or after an offset
+     *
+     * @param offset the offset in the text
+     * @return the index of the token, size if there is none
+     */
+    private int firstEndingFrom(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (end(middle) < offset) low = middle + 1; else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first token starting at or after an offset
+     *
+     * @param offset the offset in the text
+     * @return the index of the token, size if there is none
+     */
+    private int firstStartingFrom(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (start(middle) < offset) low = middle + 1; else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the parse tree of the program
+     *
+     * @return the parse tree, or null if the program was not parsed or does not parse
+     */
+    public ParseTree getParseTree() {
+        return tree;
+    }
+
+    /**
+     * Returns the tokens of the program
+     *
+     * @return the tokens, numbered like the token sequence of the scanner
+     */
+    public TokenSource getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the text of the program
+     *
+     * @return the text
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * Returns the offset of a token in the text
+     *
+     * @param index the index of the token
+     * @return the offset of its first character
+     */
+    public int getStart(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " out of " + size);
+        }
+        return start(index);
+    }
+
+    /**
+     * Returns the number of tokens scanned by the last edit
+     *
+     * @return the number of new tokens, the token the scanner synchronized on excluded
+     */
+    public int getRelexed() {
+        return relexed;
+    }
+
+    /**
+     * Returns the number of tokens parsed by the last edit
+     *
+     * @return the number of tokens of the instructions reparsed, all of them if the whole program was
+     */
+    public int getReparsed() {
+        return reparsed;
+    }
+
+    /**
+     * The tokens, their lines and columns being counted from the text only when asked for, by an error message
+     */
+    private final class Tokens implements TokenSource {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public LexicalUnit getType(int index) {
+            return UNITS[kinds[slot(index)]];
+        }
+
+        @Override
+        public String getValue(int index) {
+            return values[slot(index)];
+        }
+
+        @Override
+        public int getLine(int index) {
+            int line = FIRST_LINE;
+            int end = getStart(index);
+            for (int i = 0; i < end; i++) {
+                char c = text.charAt(i);
+                if ((c == '\n' && (i == 0 || text.charAt(i - 1) != '\r')) || c == '\r' || c == '\u000B'
+                    || c == '\u000C' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                    line++;
+                }
+            }
+            return line;
+        }
+
+        @Override
+        public int getColumn(int index) {
+            int start = getStart(index);
+            int column = 0;
+            for (int i = start - 1; i >= 0; i--) {
+                char c = text.charAt(i);
+                if (c == '\n' || c == '\r' || c == '\u000B' || c == '\u000C' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                    break;
+                }
+                column++;
+            }
+            return column;
+        }
+    }
+
+    /**
+     * Reader over the text from an offset, so that the scanner only reads as far as it scans
+     */
+    private static final class TextReader extends Reader {
+        /** The text */
+        private final Text text;
+        /** Offset of the next character to read */
+        private int position;
+
+        TextReader(Text text, int position) {
+            this.text = text;
+            this.position = position;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= text.length()) {
+                return -1;
+            }
+            int n = Math.min(length, text.length() - position);
+            text.getChars(position, position + n, buffer, offset);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Text of the program in a gap buffer, the gap following the last edit
+     */
+    private static final class Text implements CharSequence {
+        /** Characters of the text, around the gap */
+        private char[] chars;
+        /** Offset of the gap, the first character after it being the character at that offset */
+        private int gapStart;
+        /** End of the gap in the array */
+        private int gapEnd;
+
+        Text(String source) {
+            chars = new char[source.length() + INITIAL_CAPACITY];
+            source.getChars(0, source.length(), chars, 0);
+            gapStart = source.length();
+            gapEnd = chars.length;
+        }
+
+        @Override
+        public int length() {
+            return chars.length - (gapEnd - gapStart);
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index < gapStart ? index : index + gapEnd - gapStart];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            char[] copy = new char[end - start];
+            getChars(start, end, copy, 0);
+            return new String(copy);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+
+        /**
+         * Copies characters of the text
+         *
+         * @param start the offset of the first character copied
+         * @param end the offset following the last character copied
+         * @param buffer the array receiving the characters
+         * @param offset the position of the first character in the array
+         */
+        void getChars(int start, int end, char[] buffer, int offset) {
+            int before = Math.max(Math.min(end, gapStart) - start, 0);
+            System.arraycopy(chars, start, buffer, offset, before);
+            int from = Math.max(start, gapStart);
+            if (from < end) {
+                System.arraycopy(chars, from + gapEnd - gapStart, buffer, offset + before, end - from);
+            }
+        }
+
+        /**
+         * Replaces a range of the text, moving the gap there first
+         *
+         * @param offset the offset of the first replaced character
+         * @param length the number of replaced characters
+         * @param replacement the new text of the range
+         */
+        void replace(int offset, int length, String replacement) {
+            if (offset < gapStart) {
+                int n = gapStart - offset;
+                System.arraycopy(chars, offset, chars, gapEnd - n, n);
+                gapEnd -= n;
+            } else {
+                int n = offset - gapStart;
+                System.arraycopy(chars, gapEnd, chars, gapStart, n);
+                gapEnd += n;
+            }
+            gapStart = offset;
+            gapEnd += length;
+            int n = replacement.length();
+            if (gapEnd - gapStart < n) {
+                int tail = chars.length - gapEnd;
+                char[] grown = new char[Math.max(chars.length * 2, length() + n)];
+                System.arraycopy(chars, 0, grown, 0, gapStart);
+                System.arraycopy(chars, gapEnd, grown, grown.length - tail, tail);
+                chars = grown;
+                gapEnd = grown.length - tail;
+            }
+            replacement.getChars(0, n, chars, gapStart);
+            gapStart += n;
+        }
+    }
+
+    /**
+     * List kept in a gap buffer, so that replacing a range only moves the elements between it and the range
+     * replaced before. The elements crossing the gap are reported to {@link #placed} and {@link #removed}.
+     *
+     * @param <E> the type of the elements
+     */
+    private static class GapList<E> extends AbstractList<E> implements RandomAccess {
+        /** Elements of the list, around the gap */
+        Object[] elements;
+        /** Index of the first element after the gap */
+        int gap;
+        /** Number of elements */
+        private int size;
+
+        GapList(List<? extends E> initial) {
+            size = initial.size();
+            gap = size;
+            elements = initial.toArray(new Object[Math.max(size * 2, 8)]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Objects.checkIndex(index, size);
+            return (E) elements[slot(index)];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E set(int index, E element) {
+            Objects.checkIndex(index, size);
+            int slot = slot(index);
+            E old = (E) elements[slot];
+            removed(slot, old);
+            elements[slot] = element;
+            placed(slot, element);
+            return old;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            Objects.checkIndex(index, size + 1);
+            replace(index, index, Collections.singletonList(element));
+        }
+
+        @Override
+        public E remove(int index) {
+            E old = get(index);
+            replace(index, index + 1, Collections.emptyList());
+            return old;
+        }
+
+        @Override
+        protected void removeRange(int from, int to) {
+            replace(from, to, Collections.emptyList());
+        }
+
+        /**
+         * Replaces a range of elements, moving the gap there first
+         *
+         * @param from the index of the first element replaced
+         * @param to the index following the last element replaced
+         * @param with the new elements of the range
+         */
+        @SuppressWarnings("unchecked")
+        void replace(int from, int to, List<? extends E> with) {
+            int gapLength = elements.length - size;
+            while (gap > from) {
+                gap--;
+                move(gap, gap + gapLength);
+            }
+            while (gap < from) {
+                move(gap + gapLength, gap);
+                gap++;
+            }
+            for (int slot = from + gapLength; slot < to + gapLength; slot++) {
+                removed(slot, (E) elements[slot]);
+                elements[slot] = null;
+            }
+            size -= to - from;
+            if (elements.length - size < with.size()) {
+                int tail = size - gap;
+                Object[] grown = new Object[Math.max(elements.length * 2, size + with.size())];
+                System.arraycopy(elements, 0, grown, 0, gap);
+                System.arraycopy(elements, elements.length - tail, grown, grown.length - tail, tail);
+                elements = grown;
+                rebuilt();
+            }
+            for (E element : with) {
+                elements[gap] = element;
+                placed(gap, element);
+                gap++;
+                size++;
+            }
+            modCount++;
+        }
+
+        /**
+         * Moves an element across the gap
+         *
+         * @param from its slot
+         * @param to its new slot
+         */
+        @SuppressWarnings("unchecked")
+        private void move(int from, int to) {
+            E element = (E) elements[from];
+            removed(from, element);
+            elements[from] = null;
+            elements[to] = element;
+            placed(to, element);
+        }
+
+        /**
+         * Returns the slot of an element
+         *
+         * @param index the index of the element
+         * @return its slot in the array, past the gap if the element is after it
+         */
+        int slot(int index) {
+            return index < gap ? index : index + elements.length - size;
+        }
+
+        /**
+         * Returns the index of the element in a slot
+         *
+         * @param slot a slot outside of the gap, or the length of the array
+         * @return the index of its element, the size of the list for the length of the array
+         */
+        int index(int slot) {
+            return slot < gap ? slot : slot - (elements.length - size);
+        }
+
+        /**
+         * Called when an element is stored in a slot
+         *
+         * @param slot the slot
+         * @param element the element
+         */
+        void placed(int slot, E element) {
+        }
+
+        /**
+         * Called when an element leaves a slot
+         *
+         * @param slot the slot
+         * @param element the element
+         */
+        void removed(int slot, E element) {
+        }
+
+        /**
+         * Called when the elements were moved to a larger array
+         */
+        void rebuilt() {
+        }
+    }
+
+    /**
+     * The instructions of a block, with a Fenwick tree of their lengths over the slots of the gap buffer, the slots
+     * of the gap counting 0, so that the instruction holding a token is found in logarithmic time
+     */
+    private static final class Spans extends GapList<Span> {
+        /** Fenwick tree of the lengths of the slots, indexed from 1 */
+        private int[] tree;
+
+        Spans(List<Span> spans) {
+            super(spans);
+            rebuilt();
+        }
+
+        @Override
+        void placed(int slot, Span span) {
+            add(slot, span.length);
+        }
+
+        @Override
+        void removed(int slot, Span span) {
+            add(slot, -span.length);
+        }
+
+        @Override
+        void rebuilt() {
+            tree = new int[elements.length + 1];
+            for (int slot = 0; slot < elements.length; slot++) {
+                if (elements[slot] != null) {
+                    tree[slot + 1] += ((Span) elements[slot]).length;
+                }
+            }
+            for (int i = 1; i < tree.length; i++) {
+                int parent = i + (i & -i);
+                if (parent < tree.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        /**
+         * Adds to the length of a slot
+         *
+         * @param slot the slot
+         * @param delta the number of tokens added
+         */
+        private void add(int slot, int delta) {
+            for (int i = slot + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        /**
+         * Changes the length of an instruction
+         *
+         * @param index the index of the instruction
+         * @param delta the number of tokens added to it
+         */
+        void resize(int index, int delta) {
+            get(index).length += delta;
+            add(slot(index), delta);
+        }
+
+        /**
+         * Returns the number of tokens of the instructions before one
+         *
+         * @param index the index of the instruction, or the size of the list
+         * @return the index of its first token, relative to the block
+         */
+        int startOf(int index) {
+            int sum = 0;
+            for (int i = index < size() ? slot(index) : elements.length; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Finds the instruction holding a token
+         *
+         * @param token the index of the token, relative to the block
+         * @return the index of the instruction, the size of the list if the token follows the instructions
+         */
+        int find(int token) {
+            int slot = 0;
+            int rest = token;
+            for (int step = Integer.highestOneBit(elements.length); step > 0; step >>= 1) {
+                if (slot + step < tree.length && tree[slot + step] <= rest) {
+                    slot += step;
+                    rest -= tree[slot];
+                }
+            }
+            return index(slot);
+        }
+    }
+}
@@ -4,12 +4,48 @@ package Parser;
  * Special exception for Parsing
  */
 public class ParseException extends Exception {
+    /** Line of the offending token, as returned by Symbol.getLine(), or -1 if unknown */
+    private final int line;
+    /** Column of the offending token, or -1 if unknown */
+    private final int column;
+
     /**
      * constructor of Exception
      *
      * @param message the error message
      */
     public ParseException(String message){
+        this(message, -1, -1);
+    }
+
+    /**
+     * constructor of Exception locating the offending token
+     *
+     * @param message the error message
+     * @param line the line of the token, as returned by Symbol.getLine(), or -1 if unknown
+     * @param column the column of the token, or -1 if unknown
+     */
+    public ParseException(String message, int line, int column){
         super(message);
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Returns the line of the offending token
+     *
+     * @return the line as returned by Symbol.getLine(), or -1 if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column of the offending token
+     *
+     * @return the column, or -1 if unknown
+     */
+    public int getColumn() {
+        return column;
     }
 }
@@ -1,6 +1,8 @@
 package Parser;
 
 import LexicalAnalyzer.Symbol;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -65,16 +67,7 @@ public class ParseTree {
      * @return The LaTeX code in String
      */
     public String toLaTexTree() {
-        StringBuilder treeTeX = new StringBuilder();
-        treeTeX.append("[");
-        treeTeX.append("\\{" + "\'" + label.toTexString() + "\'" + "\\}");
-        treeTeX.append(" ");
-
-        for (ParseTree child : children) {
-            treeTeX.append(child.toLaTexTree());
-        }
-        treeTeX.append("]");
-        return treeTeX.toString();
+        return export(TreeExporter.Format.FOREST);
     }
 
     /**
@@ -84,16 +77,23 @@ public class ParseTree {
      * @return The TikZ code in String
      */
     public String toTikZ() {
-        StringBuilder treeTikZ = new StringBuilder();
-        treeTikZ.append("node {");
-        treeTikZ.append(label.toTexString());
-        treeTikZ.append("}\n");
-        for (ParseTree child : children) {
-            treeTikZ.append("child { ");
-            treeTikZ.append(child.toTikZ());
-            treeTikZ.append(" }\n");
+        return export(TreeExporter.Format.TIKZ);
+    }
+
+    /**
+     * Writes the tree to a String with a {@link TreeExporter}
+     *
+     * @param format the kind of code to write
+     * @return the code in String
+     */
+    private String export(TreeExporter.Format format) {
+        StringWriter code = new StringWriter();
+        try {
+            new TreeExporter(code).writeTree(this, format);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // a StringWriter does not fail
         }
-        return treeTikZ.toString();
+        return code.toString();
     }
 
     /**
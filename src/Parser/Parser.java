@@ -1,44 +1,170 @@
 package Parser;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.io.*;
 
 import LexicalAnalyzer.LexicalUnit;
 import LexicalAnalyzer.Symbol;
 import LexicalAnalyzer.NonTermUnit;
+import LexicalAnalyzer.TokenSequence;
+import LexicalAnalyzer.TokenSource;
 
 /**
  * Recursive descent parser corresponding to yalcc language
- * The parser reads the output of the scanner in test/output/LexicalAnalyzerOutput.txt, and finds 
- * the corresponding left most derivation, outputing the rule number on stdout
- * It also builds a ParseTree, representing the program according to the grammar.  
+ * The parser takes the tokens produced by the scanner, either in memory, from a binary TokenFile or from
+ * a textual dump such as test/output/LexicalAnalyzerOutput.txt, and finds the corresponding left most derivation
+ * It also builds a ParseTree, representing the program according to the grammar, or an Ast, or hands the
+ * productions to an Emitter as it recognizes them.
  *
  * @author Mohamed Tajani and Alex Bataille
  */
 public class Parser{
-    /** List of LexicalUnit storing the lexical units of the program*/
-    private List<LexicalUnit> lexunits;
-    /** List of tokens storing the corresponding values of the program*/
-    private List<String> tokens;
-    /** current index at which we are looking at in lexunits and tokens*/
+    /** Tokens of the program, as produced by the scanner*/
+    private TokenSource tokens;
+    /** current index at which we are looking at in tokens*/
     private int currentLexicalUnitIndex;
-    /** List of the rawlines of the program*/
-    private static java.util.List<String> tokenRawLines = new java.util.ArrayList<>();
-    /** List of the raw line numbers of the program*/
-    private static java.util.List<Integer> tokenLineNumbers = new java.util.ArrayList<>();
     /** ParseTree of the program, built by recursion with children*/
     private ParseTree tree;
+    /** Whether {@code <Code>} and {@code <ExprArith'>} keep the right-recursive shape of the derivation in the tree*/
+    private boolean exactTree = true;
+    /** Whether the program is parsed by the table-driven engine rather than by recursive descent*/
+    private boolean tableDriven = false;
+    /** Abstract syntax tree of the program, built by startParsingAst*/
+    private Ast.Program ast;
+    /** Number of threads parsing the program, see {@link #setParallelism(int)}*/
+    private int parallelism = 1;
+    /** Runs of instructions of the large blocks, by first token of the block, null outside a parallel parse*/
+    private Map<Integer, int[]> runs;
+    /** Blocks whose runs were handed to other tasks by this parser, to be joined before its tree is complete*/
+    private final List<ForkedBlock> forked = new ArrayList<>();
+
+    /** Text of the left operand of the unary minus, emitted as a subtraction from zero*/
+    private static final String ZERO = "0";
+
+    /** LexicalUnits indexed by ordinal*/
+    private static final LexicalUnit[] UNITS = LexicalUnit.values();
+    /** NonTermUnits indexed by ordinal*/
+    private static final NonTermUnit[] NONTERMS = NonTermUnit.values();
+    /** Index of the first token of the {@code <Code>} of the program, after Prog [ProgName] Is*/
+    private static final int CODE_START = 3;
+    /** Number of tokens from which a block is split into runs of instructions parsed by tasks of their own*/
+    private static final int RUN_LENGTH = 2048;
 
     /**
-     * Creates a new Parser and loads LexicalUnits and tokens from the scanner output file
+     * Thrown by a task of a parallel parse when its run of instructions does not end where the block index says,
+     * or does not parse: the program is then parsed again on one thread, which reports the error if there is one
+     */
+    private static final class MisspeculationException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MisspeculationException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * A block whose runs of instructions are parsed by other tasks: each run fills its own {@code <Code>} node,
+     * the one of the first run being the node of the block
+     */
+    private static final class ForkedBlock {
+        /** {@code <Code>} node of each run */
+        final ParseTree[] heads;
+        /** Task parsing each run */
+        final RunTask[] tasks;
+
+        ForkedBlock(ParseTree[] heads, RunTask[] tasks) {
+            this.heads = heads;
+            this.tasks = tasks;
+        }
+    }
+
+    /**
+     * Parses the whole program within the pool of a parallel parse, the blocks it forks included
+     */
+    private final class ProgramTask extends RecursiveTask<ParseTree> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected ParseTree compute() {
+            try {
+                ParseTree program = parseProgram();
+                joinForked();
+                return program;
+            } catch (ParseException e) {
+                throw new MisspeculationException(e);
+            }
+        }
+    }
+
+    /**
+     * Parses a run of instructions of a block with a parser of its own, forking the large blocks it holds
+     */
+    private final class RunTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** Index of the first token of the run */
+        private final int from;
+        /** Index of the token following the run */
+        private final int to;
+        /** {@code <Code>} node receiving the instructions */
+        private final ParseTree head;
+        /** {@code <Code>} node of the next run, which follows the last instruction in an exact tree, null for the last run */
+        private final ParseTree next;
+
+        RunTask(int from, int to, ParseTree head, ParseTree next) {
+            this.from = from;
+            this.to = to;
+            this.head = head;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            Parser parser = new Parser(tokens);
+            parser.exactTree = exactTree;
+            parser.runs = runs;
+            try {
+                parser.parseRun(from, to, head, next);
+            } catch (ParseException e) {
+                throw new MisspeculationException(e);
+            }
+            parser.joinForked();
+        }
+    }
+
+    /**
+     * Creates a new Parser and loads LexicalUnits and tokens from the default scanner output file
      *
      * @throws Exception if the lexical units file cannot be read or parsed
      */
     public Parser() throws Exception {
-        Pair<List<LexicalUnit>, List<String>> res = readLexicalUnitsFromFile("test/output/LexicalAnalyzerOutput.txt");
-        this.lexunits = res.getFirst();
-        this.tokens = res.getSecond();
+        this("test/output/LexicalAnalyzerOutput.txt");
+    }
+
+    /**
+     * Creates a new Parser and loads LexicalUnits and tokens from a scanner output file
+     *
+     * @param filename the path to the textual output of the scanner
+     * @throws Exception if the lexical units file cannot be read or parsed
+     */
+    public Parser(String filename) throws Exception {
+        this(TokenSequence.read(filename));
+    }
+
+    /**
+     * Creates a new Parser reading LexicalUnits and tokens directly from the scanner or from a token file,
+     * without copying them
+     *
+     * @param tokens the tokens produced by the scanner
+     */
+    public Parser(TokenSource tokens) {
+        this.tokens = tokens;
         this.currentLexicalUnitIndex = 0;
     }
 
@@ -52,10 +178,17 @@ public class Parser{
         int idx = currentLexicalUnitIndex;
         String raw = "n/a";
         int srcLine = -1;
-        if (tokenRawLines != null && idx >= 0 && idx < tokenRawLines.size()) raw = tokenRawLines.get(idx);
-        if (tokenLineNumbers != null && idx >= 0 && idx < tokenLineNumbers.size()) srcLine = tokenLineNumbers.get(idx);
+        int srcColumn = -1;
+        if (tokens.hasToken(idx)) {
+            srcLine = tokens.getLine(idx);
+            srcColumn = tokens.getColumn(idx);
+            Symbol symbol = new Symbol(tokens.getType(idx), tokens.getValue(idx));
+            raw = (srcLine > 0 ? "line: " + srcLine + " " : "") + symbol.toString();
+        } else {
+            raw = "EOS";
+        }
         String loc = srcLine > 0 ? "line " + srcLine : "token index " + idx;
-        throw new ParseException(message + " at " + loc + " -> " + raw);
+        throw new ParseException(message + " at " + loc + " -> " + raw, srcLine, srcColumn);
     }
 
     /**
@@ -64,8 +197,8 @@ public class Parser{
      * @return the current lexical unit or EOS if end of stream
      */
     private LexicalUnit lookCurrent(){
-        if (currentLexicalUnitIndex < lexunits.size()){
-            return lexunits.get(currentLexicalUnitIndex);
+        if (tokens.hasToken(currentLexicalUnitIndex)){
+            return tokens.getType(currentLexicalUnitIndex);
         }
         return LexicalUnit.EOS;
     }
@@ -78,14 +211,55 @@ public class Parser{
      * @throws ParseException if current different than expected
      */
     private ParseTree match(LexicalUnit expected) throws ParseException {
-        if (lookCurrent() == expected) {
-            String value = tokens.get(currentLexicalUnitIndex);
-            currentLexicalUnitIndex++;
-            return new ParseTree(new Symbol(expected, value));
-        } else{
+        return new ParseTree(new Symbol(expected, expect(expected)));
+    }
+
+    /**
+     * Consumes the current lexical unit if it matches the expected one, without building a node
+     *
+     * @param expected the expected lexical unit
+     * @return the value of the matched token
+     * @throws ParseException if current different than expected
+     */
+    private String expect(LexicalUnit expected) throws ParseException {
+        if (lookCurrent() != expected) {
             throwParseError("Error: Expected " + expected + " got " + lookCurrent());
-            return new ParseTree(new Symbol(LexicalUnit.EOS, ""));
-        } 
+        }
+        return tokens.getValue(currentLexicalUnitIndex++);
+    }
+
+    /**
+     * Sets whether the parse tree follows the derivation exactly, which is the default. Otherwise the instructions
+     * of a {@code <Code>} and the operations of an {@code <ExprArith'>} are flattened into a single node, which
+     * the LLVMGenerator handles the same way but which is smaller and shallower. The LaTeX export needs an exact tree.
+     *
+     * @param exactTree false to flatten the right-recursive productions
+     */
+    public void setExactTree(boolean exactTree) {
+        this.exactTree = exactTree;
+    }
+
+    /**
+     * Sets whether the program is parsed by the table-driven engine, see {@link #parseTable()}, instead of the
+     * recursive descent methods. Both build the same ParseTree and report the same errors, which check_parsers_unix
+     * compares on mutated programs.
+     *
+     * @param tableDriven true to use the table-driven engine
+     */
+    public void setTableDriven(boolean tableDriven) {
+        this.tableDriven = tableDriven;
+    }
+
+    /**
+     * Sets the number of threads parsing the program by recursive descent, 1 by default. With more, the matching
+     * End or Else of each If and While is found in one pass over the tokens, and the large blocks are split into
+     * runs of instructions which are parsed by fork-join tasks while the parser goes on after the block. The tree
+     * and the errors are the same as on one thread. The tokens must all be available, not pulled from the scanner.
+     *
+     * @param parallelism the number of threads
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
     }
 
     /**
@@ -94,7 +268,204 @@ public class Parser{
      * @throws ParseException if error occurs during parsing
      */
     public void startParsing() throws ParseException {
-        tree = parseProgram();
+        if (tableDriven) {
+            tree = parseTable();
+        } else if (parallelism > 1) {
+            tree = parseParallel();
+        } else {
+            tree = parseProgram();
+        }
+    }
+
+    /**
+     * Parses the whole program on several threads, see {@link #setParallelism(int)}. A run of instructions is
+     * parsed speculatively, from where the block index says it starts: when a run does not end where the index
+     * says, or does not parse, the program is parsed again on one thread so that the same error is reported.
+     *
+     * @return The ParseTree node for {@code <Program>}
+     * @throws ParseException if the program is not syntactically correct
+     */
+    private ParseTree parseParallel() throws ParseException {
+        runs = splitBlocks();
+        if (!runs.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                return pool.invoke(new ProgramTask());
+            } catch (MisspeculationException e) {
+                // parsed again below
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        runs = null;
+        forked.clear();
+        currentLexicalUnitIndex = 0;
+        return parseProgram();
+    }
+
+    /**
+     * Builds the block index in one pass over the tokens: the body of an If, an Else or a While starts after its
+     * Then, Else or Do and ends at the End or Else matching it. A body of at least RUN_LENGTH tokens is split
+     * after some of its own semicolons into runs of about RUN_LENGTH tokens.
+     *
+     * @return for the first token of each block split, the starts of its runs followed by the end of the block
+     */
+    private Map<Integer, int[]> splitBlocks() {
+        Map<Integer, int[]> blocks = new HashMap<>();
+        // starts of the runs of the blocks being read, innermost last, empty until the Then or Do of an If or While
+        List<List<Integer>> open = new ArrayList<>();
+        List<Integer> program = new ArrayList<>();
+        program.add(CODE_START);
+        open.add(program);
+        for (int i = 0; i < tokens.size() && !open.isEmpty(); i++) {
+            List<Integer> block = open.get(open.size() - 1);
+            switch (tokens.getType(i)) {
+                case IF: case WHILE:
+                    open.add(new ArrayList<>());
+                    break;
+                case THEN: case DO:
+                    block.clear();
+                    block.add(i + 1);
+                    break;
+                case SEMI:
+                    if (!block.isEmpty() && i + 1 - block.get(block.size() - 1) >= RUN_LENGTH) {
+                        block.add(i + 1);
+                    }
+                    break;
+                case ELSE:
+                    closeBlock(block, i, blocks);
+                    block.clear();
+                    block.add(i + 1);
+                    break;
+                case END:
+                    closeBlock(block, i, blocks);
+                    open.remove(open.size() - 1);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Adds a block to the index if it was split
+     *
+     * @param block the starts of the runs of the block
+     * @param end the index of the End or Else ending the block
+     * @param blocks the index
+     */
+    private static void closeBlock(List<Integer> block, int end, Map<Integer, int[]> blocks) {
+        if (!block.isEmpty() && block.get(block.size() - 1) == end) {
+            block.remove(block.size() - 1);
+        }
+        if (block.size() < 2) {
+            return;
+        }
+        int[] bounds = new int[block.size() + 1];
+        for (int i = 0; i < block.size(); i++) {
+            bounds[i] = block.get(i);
+        }
+        bounds[block.size()] = end;
+        blocks.put(bounds[0], bounds);
+    }
+
+    /**
+     * Parses the whole program with the parse table of {@link Grammar#YALCC} and an explicit stack, without recursion.
+     * Each entry of the stack is a grammar symbol together with the node its subtree is attached to: a terminal
+     * is matched and added as a leaf, a non-terminal gets a new node whose children are the right-hand side of
+     * the production given by the table for the current lookahead.
+     * When the tree is not exact, a {@code <Code>} or {@code <ExprArith'>} expanded right under a node of the same
+     * kind adds its children to that node instead, as parseCode and parseExprArithPrime do.
+     *
+     * @return The ParseTree node for {@code <Program>}
+     * @throws ParseException if no production applies or a terminal does not match
+     */
+    private ParseTree parseTable() throws ParseException {
+        Grammar grammar = Grammar.YALCC;
+        int[] symbols = new int[64];
+        ParseTree[] parents = new ParseTree[64];
+        int[] owners = new int[64];
+        int top = 0;
+        symbols[top] = Grammar.NONTERM + NonTermUnit.Program.ordinal();
+        owners[top] = -1;
+        top++;
+        ParseTree root = null;
+
+        while (top > 0) {
+            top--;
+            int symbol = symbols[top];
+            ParseTree parent = parents[top];
+            parents[top] = null;
+            if (symbol < Grammar.NONTERM) {
+                parent.getChildren().add(match(UNITS[symbol]));
+                continue;
+            }
+
+            int nonTerminal = symbol - Grammar.NONTERM;
+            int production = grammar.predict(nonTerminal, lookCurrent().ordinal());
+            if (production < 0) {
+                throwUnexpected(NONTERMS[nonTerminal]);
+            }
+            ParseTree node;
+            if (!exactTree && owners[top] == nonTerminal
+                    && (nonTerminal == NonTermUnit.Code.ordinal() || nonTerminal == NonTermUnit.ExprArithp.ordinal())) {
+                node = parent;
+            } else {
+                node = new ParseTree(Symbol.of(NONTERMS[nonTerminal]));
+                if (parent == null) {
+                    root = node;
+                } else {
+                    parent.getChildren().add(node);
+                }
+            }
+
+            int[] right = grammar.right(production);
+            if (top + right.length > symbols.length) {
+                int capacity = Math.max(symbols.length * 2, top + right.length);
+                symbols = java.util.Arrays.copyOf(symbols, capacity);
+                parents = java.util.Arrays.copyOf(parents, capacity);
+                owners = java.util.Arrays.copyOf(owners, capacity);
+            }
+            for (int i = right.length - 1; i >= 0; i--) {
+                symbols[top] = right[i];
+                parents[top] = node;
+                owners[top] = nonTerminal;
+                top++;
+            }
+        }
+
+        if (lookCurrent() != LexicalUnit.EOS){
+            throwParseError("Unexpected token after end of program");
+        }
+        return root;
+    }
+
+    /**
+     * Throws the ParseException the recursive descent parser reports when no production of a non-terminal
+     * applies to the current token
+     *
+     * @param nonTerminal the non-terminal on top of the stack
+     * @throws ParseException always
+     */
+    private void throwUnexpected(NonTermUnit nonTerminal) throws ParseException {
+        LexicalUnit current = lookCurrent();
+        switch (nonTerminal) {
+            case Program: throwParseError("Error: Expected " + LexicalUnit.PROG + " got " + current); break;
+            case Assign: throwParseError("Error: Expected " + LexicalUnit.VARNAME + " got " + current); break;
+            case If: throwParseError("Error: Expected " + LexicalUnit.IF + " got " + current); break;
+            case While: throwParseError("Error: Expected " + LexicalUnit.WHILE + " got " + current); break;
+            case Output: throwParseError("Error: Expected " + LexicalUnit.PRINT + " got " + current); break;
+            case Input: throwParseError("Error: Expected " + LexicalUnit.INPUT + " got " + current); break;
+            case C: throwParseError("Error : Unexpected token in <IF> : " + current); break;
+            case D: throwParseError("Error : Unexpected token in <D> : " + current); break;
+            // <Prod'> falls back to epsilon, the chain of operations then stops on this token
+            case ExprArithp: case Prodp: throwParseError("Error : Unexpected token in <ExprArith'> : " + current); break;
+            // the expression starts with an <Atom>
+            case ExprArith: case Prod: case Cond: case CondA: case Atom:
+                throwParseError("Error : Unexpected token in <Atom> : " + current); break;
+            default: throwParseError("Error : Unexpected token in <" + nonTerminal + "> : " + current);
+        }
     }
 
     /** 
@@ -118,7 +489,7 @@ public class Parser{
             throwParseError("Unexpected token after end of program");
         }
 
-        return new ParseTree(new Symbol(NonTermUnit.Program, "\\textless Prog\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.Program), childrens);
     }
 
 
@@ -127,35 +498,146 @@ public class Parser{
      * Parses the non terminal {@code <Code>} which can be :
      * - {@code <Instruction>} ; {@code <Code>}
      * - epsilon
+     * The instructions are parsed in a loop rather than by recursion, so that long programs cannot overflow the stack.
+     * With an exact tree, each {@code <Code>} node links to the next one as in the derivation, otherwise all the
+     * instructions and semicolons are children of a single {@code <Code>} node.
      *
      * @return The ParseTree node for {@code <Code>}
      * @throws ParseException if any component fails to parse
      */
     public ParseTree parseCode() throws ParseException {
         //System.out.println("2 ");
-        LexicalUnit nextLexicalUnit = lookCurrent();
-        //  Rule 2 :
-        // First¹((Instruction); (Code) Follow¹(Code))) = {[VarName], If, While, Print, Input} [cite: 8]
-        if (nextLexicalUnit == LexicalUnit.VARNAME || nextLexicalUnit == LexicalUnit.IF ||
-            nextLexicalUnit == LexicalUnit.WHILE || nextLexicalUnit == LexicalUnit.PRINT || nextLexicalUnit == LexicalUnit.INPUT){
-                List<ParseTree> childrens = new java.util.ArrayList<>(); 
-                childrens.add(parseInstruction());
-                childrens.add(match(LexicalUnit.SEMI));
-                childrens.add(parseCode());
-                return new ParseTree(new Symbol(NonTermUnit.Code, "\\textless Code\\textgreater"), childrens);
-        }
-
-        // Rule 3 : <Code> -> epsilon
-        // Follow¹(<Code>) = {End, Else} [cite: 10]
-        else if (nextLexicalUnit == LexicalUnit.END || nextLexicalUnit == LexicalUnit.ELSE){
-            //System.out.println("3 ");
-            return new ParseTree(new Symbol(NonTermUnit.Code, "\\textless Code\\textgreater"));
+        if (runs != null) {
+            int[] bounds = runs.get(currentLexicalUnitIndex);
+            if (bounds != null) {
+                return forkRuns(bounds);
+            }
         }
-        
-        else {
-            throwParseError("Error : Unexpected token in <Code> : " + nextLexicalUnit);
-            return new ParseTree(new Symbol(LexicalUnit.EOS, ""));
+        ParseTree code = new ParseTree(Symbol.of(NonTermUnit.Code));
+        List<ParseTree> childrens = code.getChildren();
+        while (true) {
+            LexicalUnit nextLexicalUnit = lookCurrent();
+            //  Rule 2 :
+            // First¹((Instruction); (Code) Follow¹(Code))) = {[VarName], If, While, Print, Input} [cite: 8]
+            if (nextLexicalUnit == LexicalUnit.VARNAME || nextLexicalUnit == LexicalUnit.IF ||
+                nextLexicalUnit == LexicalUnit.WHILE || nextLexicalUnit == LexicalUnit.PRINT || nextLexicalUnit == LexicalUnit.INPUT){
+                    childrens.add(parseInstruction());
+                    childrens.add(match(LexicalUnit.SEMI));
+                    if (exactTree) {
+                        ParseTree rest = new ParseTree(Symbol.of(NonTermUnit.Code));
+                        childrens.add(rest);
+                        childrens = rest.getChildren();
+                    }
+            }
+
+            // Rule 3 : <Code> -> epsilon
+            // Follow¹(<Code>) = {End, Else} [cite: 10]
+            else if (nextLexicalUnit == LexicalUnit.END || nextLexicalUnit == LexicalUnit.ELSE){
+                //System.out.println("3 ");
+                return code;
+            }
+
+            else {
+                throwParseError("Error : Unexpected token in <Code> : " + nextLexicalUnit);
+                return new ParseTree(new Symbol(LexicalUnit.EOS, ""));
+            }
+        }
+    }
+
+    /**
+     * Parses instructions each followed by its semicolon, as the loop of parseCode does, from a token up to
+     * another one. Used by the IncrementalParser to reparse part of a {@code <Code>}.
+     *
+     * @param start the index of the first token of the first instruction
+     * @param end the index of the token following the semicolon of the last instruction
+     * @param nodes the list receiving the instructions and semicolons
+     * @return true iff the instructions end exactly at end
+     * @throws ParseException if any component fails to parse
+     */
+    boolean parseInstructions(int start, int end, List<ParseTree> nodes) throws ParseException {
+        currentLexicalUnitIndex = start;
+        while (currentLexicalUnitIndex < end) {
+            LexicalUnit nextLexicalUnit = lookCurrent();
+            if (nextLexicalUnit != LexicalUnit.VARNAME && nextLexicalUnit != LexicalUnit.IF &&
+                nextLexicalUnit != LexicalUnit.WHILE && nextLexicalUnit != LexicalUnit.PRINT && nextLexicalUnit != LexicalUnit.INPUT){
+                    return false;
+            }
+            nodes.add(parseInstruction());
+            nodes.add(match(LexicalUnit.SEMI));
         }
+        return currentLexicalUnitIndex == end;
+    }
+
+    /**
+     * Hands the runs of instructions of a large block to tasks of their own, then goes on after the block
+     *
+     * @param bounds the starts of the runs followed by the end of the block
+     * @return The ParseTree node for {@code <Code>}, complete once the tasks are joined
+     */
+    private ParseTree forkRuns(int[] bounds) {
+        int count = bounds.length - 1;
+        ParseTree[] heads = new ParseTree[count];
+        for (int i = 0; i < count; i++) {
+            heads[i] = new ParseTree(Symbol.of(NonTermUnit.Code));
+        }
+        RunTask[] tasks = new RunTask[count];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = new RunTask(bounds[i], bounds[i + 1], heads[i], i + 1 < count ? heads[i + 1] : null);
+            tasks[i].fork();
+        }
+        forked.add(new ForkedBlock(heads, tasks));
+        currentLexicalUnitIndex = bounds[count];
+        return heads[0];
+    }
+
+    /**
+     * Parses a run of instructions of a block, as the loop of parseCode does
+     *
+     * @param from the index of the first token of the run
+     * @param to the index of the token following the run
+     * @param head the {@code <Code>} node receiving the instructions
+     * @param next the {@code <Code>} node of the next run, null for the last run
+     * @throws ParseException if any component fails to parse
+     */
+    private void parseRun(int from, int to, ParseTree head, ParseTree next) throws ParseException {
+        currentLexicalUnitIndex = from;
+        List<ParseTree> childrens = head.getChildren();
+        while (currentLexicalUnitIndex < to) {
+            LexicalUnit nextLexicalUnit = lookCurrent();
+            if (nextLexicalUnit != LexicalUnit.VARNAME && nextLexicalUnit != LexicalUnit.IF &&
+                nextLexicalUnit != LexicalUnit.WHILE && nextLexicalUnit != LexicalUnit.PRINT && nextLexicalUnit != LexicalUnit.INPUT){
+                    throw new MisspeculationException(null);
+            }
+            childrens.add(parseInstruction());
+            childrens.add(match(LexicalUnit.SEMI));
+            if (exactTree) {
+                ParseTree rest = currentLexicalUnitIndex == to && next != null ? next : new ParseTree(Symbol.of(NonTermUnit.Code));
+                childrens.add(rest);
+                childrens = rest.getChildren();
+            }
+        }
+        if (currentLexicalUnitIndex != to) {
+            throw new MisspeculationException(null);
+        }
+    }
+
+    /**
+     * Waits for the tasks forked by this parser, then gathers the instructions of each block into its node
+     * when the tree is flattened
+     */
+    private void joinForked() {
+        for (ForkedBlock block : forked) {
+            for (RunTask task : block.tasks) {
+                task.join();
+            }
+            if (!exactTree) {
+                List<ParseTree> childrens = block.heads[0].getChildren();
+                for (int i = 1; i < block.heads.length; i++) {
+                    childrens.addAll(block.heads[i].getChildren());
+                }
+            }
+        }
+        forked.clear();
     }
 
     /**
@@ -167,7 +649,7 @@ public class Parser{
     public ParseTree parseInstruction() throws ParseException{
         
         LexicalUnit nextLexicalUnit = lookCurrent();
-        Symbol retSymb = new Symbol(NonTermUnit.Instruction, "\\textless Instruction\\textgreater");
+        Symbol retSymb = Symbol.of(NonTermUnit.Instruction);
         List<ParseTree> childrens = new java.util.ArrayList<>(); 
         
         if (nextLexicalUnit == LexicalUnit.VARNAME) {
@@ -214,7 +696,7 @@ public class Parser{
         childrens.add(match(LexicalUnit.ASSIGN));
         childrens.add(parseExprArith());
         
-        return new ParseTree(new Symbol(NonTermUnit.Assign, "\\textless Assign\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.Assign), childrens);
     }
 
     /**
@@ -231,47 +713,44 @@ public class Parser{
         childrens.add(parseProd());
         childrens.add(parseExprArithPrime());
 
-        return new ParseTree(new Symbol(NonTermUnit.ExprArith, "\\textless ExprArith\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.ExprArith), childrens);
     }
 
     /**
      * Parses the non-terminal {@code <ExprArith'>}
+     * The chain of additions and subtractions is parsed in a loop rather than by recursion. With an exact tree,
+     * each {@code <ExprArith'>} node links to the next one as in the derivation, otherwise all the operators and
+     * operands of the chain are children of a single {@code <ExprArith'>} node, to be folded from the left.
      *
      * @return The ParseTree node for {@code <ExprArith'>}
      * @throws ParseException if unexpected token or error in sub-steps
      */
     public ParseTree parseExprArithPrime() throws ParseException{
-        LexicalUnit nextLexicalUnit = lookCurrent();
-        Symbol retSymb = new Symbol(NonTermUnit.ExprArithp, "\\textless ExprArith\\textquotesingle\\textgreater");
-        List<ParseTree> childrens = new java.util.ArrayList<>(); 
+        ParseTree prime = new ParseTree(Symbol.of(NonTermUnit.ExprArithp));
+        List<ParseTree> childrens = prime.getChildren();
 
-        if (nextLexicalUnit == LexicalUnit.PLUS) {
-            // Rule 12 :
-            //System.out.println("12 ");
-            childrens.add(match(LexicalUnit.PLUS));
-            childrens.add(parseProd());
-            childrens.add(parseExprArithPrime());
-        }
-        else if (nextLexicalUnit == LexicalUnit.MINUS) {
-            //  Rule 13 :
-            //System.out.println("13 ");
-            childrens.add(match(LexicalUnit.MINUS));
-            childrens.add(parseProd());
-            childrens.add(parseExprArithPrime());
-        }
-        else if (
-                    nextLexicalUnit == LexicalUnit.SEMI || nextLexicalUnit == LexicalUnit.EQUAL || 
-                    nextLexicalUnit == LexicalUnit.SMALEQ || nextLexicalUnit == LexicalUnit.SMALLER ||
-                    nextLexicalUnit == LexicalUnit.IMPLIES || nextLexicalUnit == LexicalUnit.PIPE ||
-                    nextLexicalUnit == LexicalUnit.RPAREN || nextLexicalUnit == LexicalUnit.RBRACK){
-                        //  Rule 14 :
-                        //System.out.println("14 ");
-                    }
-        else {
-                throwParseError("Error : Unexpected token in <ExprArith'> : " + nextLexicalUnit);
+        while (true) {
+            LexicalUnit nextLexicalUnit = lookCurrent();
+            if (nextLexicalUnit == LexicalUnit.PLUS || nextLexicalUnit == LexicalUnit.MINUS) {
+                // Rule 12 : + <Prod> <ExprArith'>
+                // Rule 13 : - <Prod> <ExprArith'>
+                childrens.add(match(nextLexicalUnit));
+                childrens.add(parseProd());
+                if (exactTree) {
+                    ParseTree rest = new ParseTree(Symbol.of(NonTermUnit.ExprArithp));
+                    childrens.add(rest);
+                    childrens = rest.getChildren();
+                }
+            }
+            else if (Grammar.YALCC.inFollow(NonTermUnit.ExprArithp, nextLexicalUnit)){
+                            //  Rule 14 : Follow¹(<ExprArith'>), looked up in Grammar
+                            //System.out.println("14 ");
+                            return prime;
+                        }
+            else {
+                    throwParseError("Error : Unexpected token in <ExprArith'> : " + nextLexicalUnit);
+            }
         }
-
-        return new ParseTree(retSymb, childrens);
     }
 
     /**
@@ -287,7 +766,7 @@ public class Parser{
         childrens.add(parseAtom());
         childrens.add(parseProdPrime());
 
-        return new ParseTree(new Symbol(NonTermUnit.Prod, "\\textless Prod\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.Prod), childrens);
     }
 
     /**
@@ -298,7 +777,7 @@ public class Parser{
      */
     public ParseTree parseProdPrime() throws ParseException{
         LexicalUnit nextLexicalUnit = lookCurrent();
-        Symbol retSymb = new Symbol(NonTermUnit.Prodp, "\\textless Prod\\textquotesingle\\textgreater");
+        Symbol retSymb = Symbol.of(NonTermUnit.Prodp);
         List<ParseTree> childrens = new java.util.ArrayList<>(); 
 
         //Rule 16 :
@@ -313,12 +792,8 @@ public class Parser{
             childrens.add(match(LexicalUnit.DIVIDE));
             childrens.add(parseAtom());
         }
-        else if (   
-                    nextLexicalUnit == LexicalUnit.SEMI || nextLexicalUnit == LexicalUnit.EQUAL || 
-                    nextLexicalUnit == LexicalUnit.SMALEQ || nextLexicalUnit == LexicalUnit.SMALLER ||
-                    nextLexicalUnit == LexicalUnit.IMPLIES || nextLexicalUnit == LexicalUnit.PIPE ||
-                    nextLexicalUnit == LexicalUnit.RPAREN || nextLexicalUnit == LexicalUnit.RBRACK){
-                        //  Rule 18 :
+        else if (Grammar.YALCC.inFollow(NonTermUnit.Prodp, nextLexicalUnit)){
+                        //  Rule 18 : Follow¹(<Prod'>), looked up in Grammar
                         //System.out.println("18 ");
                     }    
         return new ParseTree(retSymb, childrens);
@@ -332,7 +807,7 @@ public class Parser{
      */
     public ParseTree parseAtom() throws ParseException{
         LexicalUnit nextLexicalUnit = lookCurrent();
-        Symbol retSymb = new Symbol(NonTermUnit.Atom, "\\textless Atom\\textgreater");
+        Symbol retSymb = Symbol.of(NonTermUnit.Atom);
         List<ParseTree> childrens = new java.util.ArrayList<>(); 
             
         // Rule 19 : VARNAME
@@ -381,7 +856,7 @@ public class Parser{
         childrens.add(parseCode());
         childrens.add(parseIfPrime());
 
-        return new ParseTree(new Symbol(NonTermUnit.If, "\\textless If\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.If), childrens);
     }
     
     /**
@@ -394,7 +869,7 @@ public class Parser{
      */
     public ParseTree parseIfPrime() throws ParseException{
         LexicalUnit nextLexicalUnit = lookCurrent();
-        Symbol retSymb = new Symbol(NonTermUnit.C, "\\textless C\\textgreater");
+        Symbol retSymb = Symbol.of(NonTermUnit.C);
         List<ParseTree> childrens = new java.util.ArrayList<>(); 
 
         if (nextLexicalUnit == LexicalUnit.END){
@@ -422,7 +897,7 @@ public class Parser{
         //System.out.println("26 ");
         List<ParseTree> childrens = new java.util.ArrayList<>(); 
         childrens.add(parseCondA());
-        return new ParseTree(new Symbol(NonTermUnit.Cond, "\\textless Cond\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.Cond), childrens);
     }
 
     /**
@@ -441,7 +916,7 @@ public class Parser{
         }
         else {//System.out.println("28 ");
               } //28
-        return new ParseTree(new Symbol(NonTermUnit.CondB, "\\textless CondB\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.CondB), childrens);
     }
 
     /**
@@ -452,11 +927,12 @@ public class Parser{
      */
     public ParseTree parseCondA() throws ParseException{
         LexicalUnit nextLexicalUnit = lookCurrent();
-        Symbol retSymb = new Symbol(NonTermUnit.CondA, "\\textless CondA\\textgreater");
+        Symbol retSymb = Symbol.of(NonTermUnit.CondA);
         List<ParseTree> childrens = new java.util.ArrayList<>(); 
 
-        if(nextLexicalUnit == LexicalUnit.PIPE){ //29
+        if(nextLexicalUnit == LexicalUnit.PIPE){ //29 : | <Cond> |
             //System.out.println("29 ");
+            childrens.add(match(LexicalUnit.PIPE));
             childrens.add(parseCond());
             childrens.add(match(LexicalUnit.PIPE));
         }
@@ -477,7 +953,7 @@ public class Parser{
      */
     public ParseTree parseD() throws ParseException{
         LexicalUnit nextLexicalUnit = lookCurrent();
-        Symbol retSymb = new Symbol(NonTermUnit.D, "\\textless D\\textgreater");
+        Symbol retSymb = Symbol.of(NonTermUnit.D);
         List<ParseTree> childrens = new java.util.ArrayList<>(); 
         
         if (nextLexicalUnit == LexicalUnit.EQUAL){
@@ -516,7 +992,7 @@ public class Parser{
         childrens.add(parseCode());
         childrens.add(match(LexicalUnit.END));
 
-        return new ParseTree(new Symbol(NonTermUnit.While, "\\textless While\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.While), childrens);
     }
 
     /**
@@ -534,7 +1010,7 @@ public class Parser{
         childrens.add(match(LexicalUnit.VARNAME));
         childrens.add(match(LexicalUnit.RPAREN));
 
-        return new ParseTree(new Symbol(NonTermUnit.Output, "\\textless Output\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.Output), childrens);
     }
 
     /**
@@ -552,81 +1028,294 @@ public class Parser{
         childrens.add(match(LexicalUnit.VARNAME));
         childrens.add(match(LexicalUnit.RPAREN));
 
-        return new ParseTree(new Symbol(NonTermUnit.Input, "\\textless Input\\textgreater"), childrens);
+        return new ParseTree(Symbol.of(NonTermUnit.Input), childrens);
     }
 
     /**
-     * Reads lexunits and values from a text file and stores them in a Pair. 
+     * Parses the whole program into a lean abstract syntax tree instead of a ParseTree, see {@link Ast}.
+     * The tree is built by an {@link AstBuilder} receiving the productions of {@link #startParsing(Emitter)},
+     * so the errors are the same, and only the nodes the LLVMGenerator needs are allocated.
      *
-     * @param filename The name of the text file in which to read
-     * @return The Pair containing a List of LexicalUnit and a List of String (values)
-     * @throws Exception if error reading file or unknown lexical unit
+     * @throws ParseException if error occurs during parsing
      */
-    private static Pair<List<LexicalUnit>, List<String>> readLexicalUnitsFromFile(String filename) throws Exception {
-        List<LexicalUnit> lexunits = new java.util.ArrayList<>();
-        List<String> tokens = new java.util.ArrayList<>();
-        tokenRawLines.clear();
-        tokenLineNumbers.clear();
+    public void startParsingAst() throws ParseException {
+        AstBuilder builder = new AstBuilder();
+        startParsing(builder);
+        ast = builder.program;
+    }
 
-        try (java.io.BufferedReader reader = new java.io.BufferedReader(
-            new java.io.FileReader(filename))) {
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                
-                // Format: "token: XXX \t lexical unit: YYYY"
-                String[] parts = line.split("lexical unit:");
-                if (parts.length >= 2) {
-                    String lexicalUnitStr = parts[1].trim();
-                    LexicalUnit lexunit = null;
-                    String value = parts[0].trim().split("token:")[1].trim();
-                    try {
-                        lexunit = LexicalUnit.valueOf(lexicalUnitStr.toUpperCase());
-                    } catch (IllegalArgumentException iae) {
-                        System.err.println("ERROR: Unknown lexical unit: " + lexicalUnitStr);
-                        lexunit = null;
-                    }
-                    if (lexunit != null) {
-                        lexunits.add(lexunit);
-                        tokens.add(value);
-                    }
+    /**
+     * Parses the whole program in a single pass, handing its productions to an emitter as they are recognized
+     * instead of building a tree, so that only the blocks still open are remembered. The program is recognized
+     * by recursive descent with the same errors as {@link #startParsing()}.
+     *
+     * @param emitter the emitter of the program, {@link Emitter#RECOGNIZER} to check the syntax only
+     * @param <V> the values of the expressions and conditions of the emitter
+     * @throws ParseException if error occurs during parsing
+     */
+    public <V> void startParsing(Emitter<V> emitter) throws ParseException {
+        // Rule 1 : Prog [ProgName] Is <Code> End
+        expect(LexicalUnit.PROG);
+        String name = expect(LexicalUnit.PROGNAME);
+        expect(LexicalUnit.IS);
+        emitter.beginProgram(name);
+        emitCode(emitter);
+        expect(LexicalUnit.END);
+
+        if (lookCurrent() != LexicalUnit.EOS){
+            throwParseError("Unexpected token after end of program");
+        }
+        emitter.endProgram();
+    }
+
+    /**
+     * Checks the syntax of the whole program, allocating nothing while it is correct
+     *
+     * @throws ParseException if the program is not syntactically correct
+     */
+    public void validate() throws ParseException {
+        startParsing(Emitter.RECOGNIZER);
+    }
+
+    /**
+     * Parses {@code <Code>} (rules 2 and 3) in a loop, emitting its instructions
+     *
+     * @param emitter the emitter of the program
+     * @param <V> the values of the expressions and conditions of the emitter
+     * @throws ParseException if any component fails to parse
+     */
+    private <V> void emitCode(Emitter<V> emitter) throws ParseException {
+        while (true) {
+            LexicalUnit nextLexicalUnit = lookCurrent();
+            if (nextLexicalUnit == LexicalUnit.VARNAME || nextLexicalUnit == LexicalUnit.IF ||
+                nextLexicalUnit == LexicalUnit.WHILE || nextLexicalUnit == LexicalUnit.PRINT || nextLexicalUnit == LexicalUnit.INPUT){
+                    emitInstruction(emitter, nextLexicalUnit);
+                    expect(LexicalUnit.SEMI);
+            }
+            else if (nextLexicalUnit == LexicalUnit.END || nextLexicalUnit == LexicalUnit.ELSE){
+                return;
+            }
+            else {
+                throwParseError("Error : Unexpected token in <Code> : " + nextLexicalUnit);
+            }
+        }
+    }
+
+    /**
+     * Parses {@code <Instruction>} (rules 4 to 8) and emits the instruction it derives
+     *
+     * @param emitter the emitter of the program
+     * @param nextLexicalUnit the current lexical unit, in FIRST of {@code <Instruction>}
+     * @param <V> the values of the expressions and conditions of the emitter
+     * @throws ParseException if any component fails to parse
+     */
+    private <V> void emitInstruction(Emitter<V> emitter, LexicalUnit nextLexicalUnit) throws ParseException {
+        switch (nextLexicalUnit) {
+            case VARNAME: {
+                // Rule 10 : [VarName] = <ExprArith>
+                String variable = expect(LexicalUnit.VARNAME);
+                expect(LexicalUnit.ASSIGN);
+                emitter.beginAssign(variable);
+                emitter.endAssign(variable, emitExprArith(emitter));
+                break;
+            }
+            case IF: {
+                // Rule 23 : If {<Cond>} Then <Code> <C>
+                expect(LexicalUnit.IF);
+                expect(LexicalUnit.LBRACK);
+                emitter.beginIf();
+                V condition = emitCond(emitter);
+                expect(LexicalUnit.RBRACK);
+                expect(LexicalUnit.THEN);
+                emitter.thenBranch(condition);
+                emitCode(emitter);
+                nextLexicalUnit = lookCurrent();
+                if (nextLexicalUnit == LexicalUnit.END){
+                    // Rule 24 : End
+                    expect(LexicalUnit.END);
+                    emitter.elseBranch();
                 }
-                tokenRawLines.add(line);
-                
-                int srcLine = -1;
-                String lower = line.toLowerCase();
-                if (lower.startsWith("line:")) {
-                    String rest = line.substring(lower.indexOf(":")+1).trim();
-                    String[] partsForLine = rest.split("\\s+", 2);
-                    try { srcLine = Integer.parseInt(partsForLine[0]); } catch (Exception e) { srcLine = -1; }
+                else if (nextLexicalUnit == LexicalUnit.ELSE){
+                    // Rule 25 : Else <Code> End
+                    expect(LexicalUnit.ELSE);
+                    emitter.elseBranch();
+                    emitCode(emitter);
+                    expect(LexicalUnit.END);
                 }
-                tokenLineNumbers.add(srcLine);
+                else {throwParseError("Error : Unexpected token in <IF> : " +  nextLexicalUnit); }
+                emitter.endIf();
+                break;
+            }
+            case WHILE: {
+                // Rule 34 : While {<Cond>} Do <Code> End
+                expect(LexicalUnit.WHILE);
+                expect(LexicalUnit.LBRACK);
+                emitter.beginWhile();
+                V condition = emitCond(emitter);
+                expect(LexicalUnit.RBRACK);
+                expect(LexicalUnit.DO);
+                emitter.loopBody(condition);
+                emitCode(emitter);
+                expect(LexicalUnit.END);
+                emitter.endWhile();
+                break;
+            }
+            case PRINT: {
+                // Rule 35 : Print([VarName])
+                expect(LexicalUnit.PRINT);
+                expect(LexicalUnit.LPAREN);
+                String variable = expect(LexicalUnit.VARNAME);
+                expect(LexicalUnit.RPAREN);
+                emitter.print(variable);
+                break;
+            }
+            default: {
+                // Rule 36 : Input([VarName])
+                expect(LexicalUnit.INPUT);
+                expect(LexicalUnit.LPAREN);
+                String variable = expect(LexicalUnit.VARNAME);
+                expect(LexicalUnit.RPAREN);
+                emitter.input(variable);
             }
         }
-        
-        // Add EOS at the end
-        lexunits.add(LexicalUnit.EOS);
-        tokenRawLines.add("EOS");
-        tokenLineNumbers.add(-1);
+    }
+
+    /**
+     * Parses {@code <ExprArith>} (rules 11 to 14), emitting the additions and subtractions from the left
+     *
+     * @param emitter the emitter of the program
+     * @param <V> the values of the expressions and conditions of the emitter
+     * @return the value of the expression
+     * @throws ParseException if unexpected token or error in sub-steps
+     */
+    private <V> V emitExprArith(Emitter<V> emitter) throws ParseException {
+        V left = emitProd(emitter);
+        while (true) {
+            LexicalUnit nextLexicalUnit = lookCurrent();
+            if (nextLexicalUnit == LexicalUnit.PLUS || nextLexicalUnit == LexicalUnit.MINUS) {
+                expect(nextLexicalUnit);
+                left = emitter.operation(nextLexicalUnit, left, emitProd(emitter));
+            }
+            else if (Grammar.YALCC.inFollow(NonTermUnit.ExprArithp, nextLexicalUnit)){
+                            // Rule 14 : Follow¹(<ExprArith'>), looked up in Grammar
+                            return left;
+                        }
+            else {
+                    throwParseError("Error : Unexpected token in <ExprArith'> : " + nextLexicalUnit);
+            }
+        }
+    }
+
+    /**
+     * Parses {@code <Prod>} (rules 15 to 18)
+     *
+     * @param emitter the emitter of the program
+     * @param <V> the values of the expressions and conditions of the emitter
+     * @return the value of the expression
+     * @throws ParseException if any sub-step of parsing fails
+     */
+    private <V> V emitProd(Emitter<V> emitter) throws ParseException {
+        V left = emitAtom(emitter);
+        LexicalUnit nextLexicalUnit = lookCurrent();
+        if (nextLexicalUnit == LexicalUnit.TIMES || nextLexicalUnit == LexicalUnit.DIVIDE) {
+            expect(nextLexicalUnit);
+            return emitter.operation(nextLexicalUnit, left, emitAtom(emitter));
+        }
+        return left;
+    }
+
+    /**
+     * Parses {@code <Atom>} (rules 19 to 22), the unary minus being emitted as a subtraction from zero
+     *
+     * @param emitter the emitter of the program
+     * @param <V> the values of the expressions and conditions of the emitter
+     * @return the value of the expression
+     * @throws ParseException if unexpected token or failure in parsing
+     */
+    private <V> V emitAtom(Emitter<V> emitter) throws ParseException {
+        LexicalUnit nextLexicalUnit = lookCurrent();
+        if (nextLexicalUnit == LexicalUnit.VARNAME) {
+            return emitter.variable(expect(LexicalUnit.VARNAME));
+        }
+        else if (nextLexicalUnit == LexicalUnit.NUMBER) {
+            return emitter.number(expect(LexicalUnit.NUMBER));
+        }
+        else if (nextLexicalUnit == LexicalUnit.MINUS) {
+            expect(LexicalUnit.MINUS);
+            V zero = emitter.number(ZERO);
+            return emitter.operation(LexicalUnit.MINUS, zero, emitAtom(emitter));
+        }
+        else if (nextLexicalUnit == LexicalUnit.LPAREN) {
+            expect(LexicalUnit.LPAREN);
+            V value = emitExprArith(emitter);
+            expect(LexicalUnit.RPAREN);
+            return value;
+        }
+        throwParseError("Error : Unexpected token in <Atom> : " +  nextLexicalUnit);
+        return null;
+    }
 
-        return new Pair<List<LexicalUnit>, List<String>>(lexunits, tokens);
+    /**
+     * Parses {@code <Cond>} (rules 26 and 29 to 33)
+     *
+     * @param emitter the emitter of the program
+     * @param <V> the values of the expressions and conditions of the emitter
+     * @return the value of the condition
+     * @throws ParseException if unexpected token or failure in sub-parsing
+     */
+    private <V> V emitCond(Emitter<V> emitter) throws ParseException {
+        if (lookCurrent() == LexicalUnit.PIPE) {
+            // Rule 29 : | <Cond> |
+            expect(LexicalUnit.PIPE);
+            V condition = emitCond(emitter);
+            expect(LexicalUnit.PIPE);
+            return emitter.not(condition);
+        }
+        // Rule 30 : <ExprArith> <D>
+        V left = emitExprArith(emitter);
+        LexicalUnit nextLexicalUnit = lookCurrent();
+        if (nextLexicalUnit == LexicalUnit.EQUAL || nextLexicalUnit == LexicalUnit.SMALEQ || nextLexicalUnit == LexicalUnit.SMALLER) {
+            expect(nextLexicalUnit);
+            return emitter.comparison(nextLexicalUnit, left, emitExprArith(emitter));
+        }
+        throwParseError("Error : Unexpected token in <D> : " +  nextLexicalUnit);
+        return null;
     }
 
     /**
      * Writes the LaTeX code to a tex file, that can be compiled to make a pdf of the derivation tree
      *
      * @param filepath the path to the tex file
-     * @throws FileNotFoundException if the file doesn't exist
+     * @throws IOException if the file cannot be written
      */
-    public void buildTree(String filepath) throws FileNotFoundException {
-        String latexCode = tree.toLaTeX();
-        PrintStream latexFile = new PrintStream(new File(filepath));
-        PrintStream console = System.out;
-        System.setOut(latexFile);
-        System.out.println(latexCode);
-        System.setOut(console);
+    public void buildTree(String filepath) throws IOException {
+        buildTree(filepath, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes the LaTeX code to a tex file as it walks the derivation tree, leaving the nodes out past a number of
+     * them so that the tree of a large program stays small enough to be compiled
+     *
+     * @param filepath the path to the tex file
+     * @param maxNodes the number of nodes written, see {@link TreeExporter#setMaxNodes(int)}
+     * @throws IOException if the file cannot be written
+     */
+    public void buildTree(String filepath, int maxNodes) throws IOException {
+        try (BufferedWriter latexFile = new BufferedWriter(new FileWriter(filepath))) {
+            TreeExporter exporter = new TreeExporter(latexFile);
+            exporter.setMaxNodes(maxNodes);
+            exporter.writeDocument(tree);
+            latexFile.newLine();
+        }
+    }
+
+    /**
+     * Returns the tokens the parser reads
+     *
+     * @return The tokens of the program
+     */
+    public TokenSource getTokens() {
+        return this.tokens;
     }
 
     /**
@@ -637,5 +1326,14 @@ public class Parser{
     public ParseTree getParseTree() {
         return this.tree;
     }
+
+    /**
+     * Returns the abstract syntax tree built by startParsingAst
+     *
+     * @return The root of the abstract syntax tree
+     */
+    public Ast.Program getAst() {
+        return this.ast;
+    }
 }
 
@@ -0,0 +1,186 @@
+package Parser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a parse tree as LaTeX code straight to a Writer.
+ * The tree is walked once with an explicit stack instead of recursion, so that the deep trees of large programs
+ * neither overflow the call stack nor copy the code of every subtree into the code of its parent.
+ * The export can be limited to a depth and to a number of nodes, the children left out being replaced by a single
+ * elision leaf under their parent.
+ *
+ * @author Alex Bataille
+ */
+public class TreeExporter {
+    /**
+     * Kinds of LaTeX code written for a tree
+     */
+    public enum Format {
+        /** Bracketed tree of the forest package, as {@link ParseTree#toLaTexTree()} */
+        FOREST,
+        /** Nodes and children of TikZ, as {@link ParseTree#toTikZ()} */
+        TIKZ
+    }
+
+    /** Label of the leaf standing for the children left out */
+    private static final String ELISION = "\\ldots";
+    /** Initial depth of the stack of the walk */
+    private static final int INITIAL_DEPTH = 64;
+
+    /** Writer receiving the code */
+    private final Writer out;
+    /** Depth of the deepest nodes written, the root being at depth 0 */
+    private int maxDepth = Integer.MAX_VALUE;
+    /** Number of nodes written before leaving the others out */
+    private int maxNodes = Integer.MAX_VALUE;
+    /** Number of nodes written by the last export */
+    private int nodes;
+    /** Number of elision leaves written by the last export */
+    private int elisions;
+
+    /**
+     * Creates an exporter writing to the given writer, which should be buffered
+     *
+     * @param out the writer receiving the code
+     */
+    public TreeExporter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Limits the depth of the exported tree, the children of the nodes at that depth being left out
+     *
+     * @param maxDepth the depth of the deepest nodes written, the root being at depth 0
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Limits the number of exported nodes, the nodes met once that many are written being left out
+     *
+     * @param maxNodes the number of nodes written, elision leaves excluded
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Returns the number of nodes written by the last export
+     *
+     * @return the number of nodes, elision leaves excluded
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of elision leaves written by the last export
+     *
+     * @return 0 if the whole tree was written
+     */
+    public int getElisions() {
+        return elisions;
+    }
+
+    /**
+     * Writes a tree as a LaTeX document which can be compiled using PDFLaTeX, as {@link ParseTree#toLaTeX()}
+     *
+     * @param tree the tree to write
+     * @throws IOException if the writer fails
+     */
+    public void writeDocument(ParseTree tree) throws IOException {
+        out.write("\\documentclass[border=5pt]{standalone}\n\n\\usepackage{tikz}\n\\usepackage{forest}\n\n\\begin{document}\n\n");
+        out.write("\\begin{forest}for tree={rectangle, draw, l sep=20pt}");
+        writeTree(tree, Format.FOREST);
+        out.write(";\n\\end{forest}");
+        out.write("\n\n\\end{document}\n%% Local Variables:\n%% TeX-engine: pdflatex\n%% End:");
+    }
+
+    /**
+     * Writes the code of a tree, without the environment embedding it
+     *
+     * @param tree the tree to write
+     * @param format the kind of code to write
+     * @throws IOException if the writer fails
+     */
+    public void writeTree(ParseTree tree, Format format) throws IOException {
+        nodes = 0;
+        elisions = 0;
+        ParseTree[] stack = new ParseTree[INITIAL_DEPTH];
+        int[] next = new int[INITIAL_DEPTH];
+        int top = 0;
+        stack[0] = tree;
+        writeNode(tree, format);
+        while (top >= 0) {
+            List<ParseTree> children = stack[top].getChildren();
+            int index = next[top];
+            if (index < children.size()) {
+                if (top >= maxDepth || nodes >= maxNodes) {
+                    // the remaining children of this node are left out
+                    next[top] = children.size();
+                    writeElision(format);
+                    continue;
+                }
+                next[top] = index + 1;
+                ParseTree child = children.get(index);
+                if (++top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                    next = Arrays.copyOf(next, top * 2);
+                }
+                stack[top] = child;
+                next[top] = 0;
+                if (format == Format.TIKZ) {
+                    out.write("child { ");
+                }
+                writeNode(child, format);
+            } else {
+                stack[top] = null;
+                if (format == Format.FOREST) {
+                    out.write(']');
+                } else if (top > 0) {
+                    out.write(" }\n");
+                }
+                top--;
+            }
+        }
+    }
+
+    /**
+     * Writes the opening of a node, up to its children
+     *
+     * @param node the node
+     * @param format the kind of code to write
+     * @throws IOException if the writer fails
+     */
+    private void writeNode(ParseTree node, Format format) throws IOException {
+        nodes++;
+        if (format == Format.FOREST) {
+            out.write("[\\{'");
+            node.getLabel().writeTex(out);
+            out.write("'\\} ");
+        } else {
+            out.write("node {");
+            node.getLabel().writeTex(out);
+            out.write("}\n");
+        }
+    }
+
+    /**
+     * Writes the leaf standing for the children left out of a node
+     *
+     * @param format the kind of code to write
+     * @throws IOException if the writer fails
+     */
+    private void writeElision(Format format) throws IOException {
+        elisions++;
+        if (format == Format.FOREST) {
+            out.write("[\\{'" + ELISION + "'\\} ]");
+        } else {
+            out.write("child { node {" + ELISION + "}\n }\n");
+        }
+    }
+}
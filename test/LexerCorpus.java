@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Writes the corpus of sources on which check_lexers_unix compares the JFlex scanner with the ByteLexer, on one
+ * thread and on several. The corpus is the same on every run, the random sources coming from a fixed seed:
+ * - edge_*   : small sources on the longest-match rules, comments, line terminators and lexical errors
+ * - random_* : random sequences of lexemes, blanks, comments and stray characters
+ * - split_*  : sources large enough to be split into parts, with comments crossing the splits, among which a long
+ *              comment running from the first part to the last "!!" of the file
+ * Run it with {@code java test/LexerCorpus.java <directory>}.
+ *
+ * @author Alex Bataille
+ */
+public class LexerCorpus {
+    /** Seed of the random sources */
+    private static final long SEED = 403;
+    /** Number of random sources */
+    private static final int RANDOM_SOURCES = 150;
+    /** Size of the sources split into parts, a few times the smallest part of the ByteLexer */
+    private static final int SPLIT_SIZE = 3 << 20;
+
+    /** Lexemes of the language, and near misses of them */
+    private static final String[] LEXEMES = {
+        "Prog", "Is", "End", "If", "Then", "Else", "While", "Do", "Print", "Input", "Assign",
+        "Progs", "Endx", "Whil", "Euclid", "My_Prog", "a", "b1", "x42y", "var", "0", "7", "0908737", "123456789",
+        "->", "==", "<=", "=", "<", "+", "-", "*", "/", "|", "(", ")", "{", "}", ";", "-->", "<==", "===",
+    };
+    /** Separators, stray characters and comment delimiters */
+    private static final String[] NOISE = {
+        " ", " ", "  ", "\t", "\f", "\n", "\n", "\r\n", "\r", "\u000B", "$", "!!", "!", "&", "#", "é", "€",
+    };
+
+    /** Small sources on the rules the ByteLexer reproduces by hand */
+    private static final String[] EDGES = {
+        "",
+        "!!",
+        "!!!",
+        "!!!!",
+        "!! a !! b !! c",
+        "a !! b !! c !! d",
+        "!! unterminated\nx = 1;",
+        "$",
+        "$ comment",
+        "x $ comment\ny",
+        "x $ comment\r\ny",
+        "x $ comment\ry",
+        "x $ comment é€\ny",
+        "\r\n\r\n\r\r\n\n\r",
+        "x\u000By\u0085z w",
+        "Prog Progs Progx ProgName Is Isx End Endif If Iff Then Else While Do Print Input Assign",
+        "a=b==c<=d<e->f-->g<==h===i",
+        "0123 0 00 12ab ab12 aB Ab A_b _a",
+        "Prog Euclid Is\n  a = 3 * (b - -4) / c;\n  If {|a == 0|} Then Print(a); Else Input(b); End;\nEnd\n",
+        "&#@%é \t\f",
+        "End\r",
+    };
+
+    /**
+     * Writes the corpus
+     *
+     * @param args the directory receiving the sources
+     * @throws IOException if a source cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "test/output/lexer");
+        Files.createDirectories(directory);
+        for (int i = 0; i < EDGES.length; i++) {
+            write(directory, "edge_" + i, EDGES[i]);
+        }
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < RANDOM_SOURCES; i++) {
+            StringBuilder source = new StringBuilder();
+            int length = random.nextInt(400);
+            for (int k = 0; k < length; k++) {
+                appendPiece(source, random);
+            }
+            write(directory, "random_" + i, source.toString());
+        }
+
+        // lines of code with short comments crossing the splits
+        write(directory, "split_lines", lines(random, "\n", SPLIT_SIZE, null));
+        write(directory, "split_crlf", lines(random, "\r\n", SPLIT_SIZE, null));
+        // a long comment from the first part to the last "!!", the "!!" of the parts it covers included
+        StringBuilder comment = new StringBuilder(lines(random, "\n", SPLIT_SIZE / 8, null));
+        comment.append("!! opening the long comment\n");
+        comment.append(lines(random, "\n", SPLIT_SIZE / 2, " !! "));
+        comment.append("!! last of the file\n");
+        comment.append(lines(random, "\n", SPLIT_SIZE / 4, null));
+        write(directory, "split_long_comment", comment.toString());
+        // a long comment ending in the middle of a part, then code up to the end of the file
+        comment = new StringBuilder("!!\n");
+        comment.append(lines(random, "\n", SPLIT_SIZE / 3, null));
+        comment.append("!!");
+        comment.append(lines(random, "\n", SPLIT_SIZE / 2, null));
+        write(directory, "split_comment_ends_in_part", comment.toString());
+        // a single line, split after blanks
+        write(directory, "split_one_line", lines(random, " ", SPLIT_SIZE, null));
+    }
+
+    /**
+     * Appends a random lexeme, separator or comment
+     *
+     * @param source the source being built
+     * @param random the source of randomness
+     */
+    private static void appendPiece(StringBuilder source, Random random) {
+        int kind = random.nextInt(10);
+        if (kind < 6) {
+            source.append(LEXEMES[random.nextInt(LEXEMES.length)]);
+        } else if (kind < 9) {
+            source.append(NOISE[random.nextInt(NOISE.length)]);
+        } else {
+            source.append("$ short comment ").append(LEXEMES[random.nextInt(LEXEMES.length)]).append('\n');
+        }
+    }
+
+    /**
+     * Returns lines of assignments, some of them ending with a short comment when the separator ends the comment
+     *
+     * @param random the source of randomness
+     * @param separator the separator of the lines
+     * @param size the number of characters wanted
+     * @param extra text put now and then between two lines, or null
+     * @return the lines
+     */
+    private static String lines(Random random, String separator, int size, String extra) {
+        StringBuilder source = new StringBuilder(size + 64);
+        int n = 0;
+        while (source.length() < size) {
+            source.append("v").append(n % 97).append(" = ").append(n).append(" * (w - ").append(random.nextInt(1000))
+                  .append(");");
+            if (separator.indexOf('\n') >= 0 && random.nextInt(8) == 0) {
+                source.append(" $ comment ").append(n).append(" !! ");
+            }
+            if (extra != null && random.nextInt(64) == 0) {
+                source.append(extra);
+            }
+            source.append(separator);
+            n++;
+        }
+        return source.toString();
+    }
+
+    /**
+     * Writes a source in UTF-8
+     *
+     * @param directory the directory of the corpus
+     * @param name the name of the source, without extension
+     * @param source the text of the source
+     * @throws IOException if the source cannot be written
+     */
+    private static void write(Path directory, String name, String source) throws IOException {
+        Files.write(directory.resolve(name + ".ycc"), source.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the corpus of programs on which check_parsers_unix compares the errors reported by the recursive descent
+ * parser, the table-driven engine, the one-pass parser and the AST parser. The corpus is the same on every run:
+ * - edge_*   : programs on the cells of the parse table where the hand-written parser once differed from Grammar
+ * - mutant_* : the programs of test/input with one token deleted, repeated or replaced, from a fixed seed
+ * Run it with {@code java test/ParserCorpus.java <programs directory> <directory>}.
+ *
+ * @author Alex Bataille
+ */
+public class ParserCorpus {
+    /** Seed of the mutations */
+    private static final long SEED = 412;
+    /** Number of mutants of each program */
+    private static final int MUTANTS = 20;
+    /** Lexemes of a program, the blanks and comments between them being kept as they are */
+    private static final Pattern LEXEME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*|[0-9]+|->|==|<=|[^\\s$!]");
+
+    /** Tokens put into the programs */
+    private static final String[] TOKENS = {
+        "Prog", "Is", "End", "If", "Then", "Else", "While", "Do", "Print", "Input", "Name", "x", "0",
+        "->", "==", "<=", "=", "<", "+", "-", "*", "/", "|", "(", ")", "{", "}", ";",
+    };
+
+    /** Programs on which the engines once reported different errors */
+    private static final String[] EDGES = {
+        "Prog P Is\n  w1 = 0->;\nEnd\n",
+        "Prog P Is\n  w1 = 0 * 2 -> 3;\nEnd\n",
+        "Prog P Is\n  If {a -> b} Then Print(a); End;\nEnd\n",
+        "Prog P Is\n  While {|a < 0 ->|} Do Print(a); End;\nEnd\n",
+        "Prog P Is\n  w1 = (0 -> 1);\nEnd\n",
+    };
+
+    /**
+     * Writes the corpus
+     *
+     * @param args the directory of the programs to mutate, then the directory receiving the corpus
+     * @throws IOException if a program cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        Path programs = Paths.get(args.length > 0 ? args[0] : "test/input");
+        Path directory = Paths.get(args.length > 1 ? args[1] : "test/output/parser");
+        Files.createDirectories(directory);
+        for (int i = 0; i < EDGES.length; i++) {
+            write(directory, "edge_" + i, EDGES[i]);
+        }
+
+        List<Path> sources = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(programs, "*.ycc")) {
+            files.forEach(sources::add);
+        }
+        sources.sort(null);
+        Random random = new Random(SEED);
+        for (Path source : sources) {
+            String text = new String(Files.readAllBytes(source), StandardCharsets.UTF_8);
+            List<int[]> lexemes = new ArrayList<>();
+            Matcher matcher = LEXEME.matcher(text);
+            while (matcher.find()) {
+                lexemes.add(new int[] {matcher.start(), matcher.end()});
+            }
+            if (lexemes.isEmpty()) {
+                continue;
+            }
+            String name = source.getFileName().toString().replace(".ycc", "");
+            for (int i = 0; i < MUTANTS; i++) {
+                int[] lexeme = lexemes.get(random.nextInt(lexemes.size()));
+                String replacement;
+                switch (random.nextInt(3)) {
+                    case 0: replacement = ""; break;
+                    case 1: replacement = text.substring(lexeme[0], lexeme[1]) + " " + text.substring(lexeme[0], lexeme[1]); break;
+                    default: replacement = TOKENS[random.nextInt(TOKENS.length)];
+                }
+                write(directory, "mutant_" + name + "_" + i, text.substring(0, lexeme[0]) + replacement + text.substring(lexeme[1]));
+            }
+        }
+    }
+
+    /**
+     * Writes a program in UTF-8
+     *
+     * @param directory the directory of the corpus
+     * @param name the name of the program, without extension
+     * @param source the text of the program
+     * @throws IOException if the program cannot be written
+     */
+    private static void write(Path directory, String name, String source) throws IOException {
+        Files.write(directory.resolve(name + ".ycc"), source.getBytes(StandardCharsets.UTF_8));
+    }
+}